@@ -172,12 +172,7 @@ public class ModelAnalyser {
                 try {
                     Splitter sp = Splitter.createNToOne(bits);
                     final ObservableValue out = sp.getOutputs().get(0);
-                    out.addObserver(new NodeWithoutDelay(s.getValue()) {
-                        @Override
-                        public void hasChanged() {
-                            s.getValue().setValue(out.getValue());
-                        }
-                    });
+                    out.addObserver(new Splitter.BitCopy(out, 0, s.getValue(), 0, bits));
                     out.fireHasChanged();
 
                     SplitPinString pins = SplitPinString.create(s);
@@ -402,15 +397,57 @@ public class ModelAnalyser {
         }
 
         model.init();
-        for (int row = 0; row < rows; row++) {
-            bitsetter.fill(row);
-            model.doStep();
-            for (int i = 0; i < outputs.size(); i++) {
-                data.get(i).set(row, outputs.get(i).getValue().getBool());
+        BitParallelModel bpm = BitParallelModel.create(getValues(inputs), getValues(outputs));
+        if (bpm != null) {
+            LOGGER.debug("analyse " + BitParallelModel.LANES + " rows in parallel");
+            for (int row = 0; row < rows; row += BitParallelModel.LANES) {
+                int lanes = fillLanes(bpm, inputs.size(), row, rows);
+                for (int i = 0; i < outputs.size(); i++)
+                    for (int lane = 0; lane < lanes; lane++)
+                        data.get(i).set(row + lane, bpm.getOutput(i, lane) != 0);
+            }
+        } else {
+            for (int row = 0; row < rows; row++) {
+                bitsetter.fill(row);
+                model.doStep();
+                for (int i = 0; i < outputs.size(); i++) {
+                    data.get(i).set(row, outputs.get(i).getValue().getBool());
+                }
             }
         }
     }
 
+    /**
+     * Sets the inputs of the given rows to the lanes of the given bit parallel model
+     * and evaluates the model.
+     *
+     * @param bpm      the bit parallel model
+     * @param bitCount the number of inputs
+     * @param firstRow the first row to set
+     * @param rows     the total number of rows
+     * @return the number of lanes used
+     */
+    private int fillLanes(BitParallelModel bpm, int bitCount, int firstRow, int rows) {
+        int lanes = Math.min(BitParallelModel.LANES, rows - firstRow);
+        BitSetter bitsetter = new BitSetter(bitCount) {
+            @Override
+            public void setBit(int row, int bit, boolean value) {
+                bpm.setInput(bit, row - firstRow, value ? 1 : 0);
+            }
+        };
+        for (int lane = 0; lane < lanes; lane++)
+            bitsetter.fill(firstRow + lane);
+        bpm.evaluate();
+        return lanes;
+    }
+
+    private static ArrayList<ObservableValue> getValues(List<Signal> signals) {
+        ArrayList<ObservableValue> values = new ArrayList<>(signals.size());
+        for (Signal s : signals)
+            values.add(s.getValue());
+        return values;
+    }
+
     private void dependantFiller(TruthTable tt, DependencyAnalyser da) throws NodeException, AnalyseException {
         model.init();
         for (Signal out : outputs) {
@@ -428,10 +465,19 @@ public class ModelAnalyser {
                 }
             };
 
-            for (int row = 0; row < rows; row++) {
-                bitsetter.fill(row);
-                model.doStep();
-                e.set(row, out.getValue().getBool());
+            BitParallelModel bpm = BitParallelModel.create(getValues(ins), out.getValue().asList());
+            if (bpm != null) {
+                for (int row = 0; row < rows; row += BitParallelModel.LANES) {
+                    int lanes = fillLanes(bpm, ins.size(), row, rows);
+                    for (int lane = 0; lane < lanes; lane++)
+                        e.set(row + lane, bpm.getOutput(0, lane) != 0);
+                }
+            } else {
+                for (int row = 0; row < rows; row++) {
+                    bitsetter.fill(row);
+                    model.doStep();
+                    e.set(row, out.getValue().getBool());
+                }
             }
 
             tt.addResult(out.getName(), new BoolTableExpanded(e, ins, inputs));
@@ -0,0 +1,348 @@
+package de.neemann.digital.core;
+
+import de.neemann.digital.core.basic.*;
+import de.neemann.digital.core.wiring.Splitter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * A bit parallel simulation of the combinatorial part of a model.
+ * Every bit of every value is represented by a long. Each bit of this long represents the
+ * bit in one of 64 independent lanes. So 64 independent input vectors can be evaluated at once.
+ * <p>
+ * Only circuits which are build of the basic gates and splitters are supported.
+ * All values which are not computed from the given inputs are treated as constants, so the
+ * model has to be initialized before this class is created.
+ * The model itself is not modified by this class.
+ */
+public final class BitParallelModel {
+    /**
+     * The number of lanes evaluated in parallel
+     */
+    public static final int LANES = 64;
+
+    private static final int AND = 0;
+    private static final int OR = 1;
+    private static final int XOR = 2;
+    private static final int COPY = 3;
+    private static final int INVERT = 4;
+
+    private final long[] slots;
+    private final int[] inputSlot;
+    private final int[] inputBits;
+    private final int[] outputSlot;
+    private final int[] outputBits;
+    private final int[] opType;
+    private final int[] opDest;
+    private final int[] opSrcStart;
+    private final int[] opSrc;
+
+    /**
+     * Creates a bit parallel model.
+     *
+     * @param inputs  the inputs of the model
+     * @param outputs the outputs of the model
+     * @return the model or null if the circuit can not be evaluated bit parallel
+     */
+    public static BitParallelModel create(List<ObservableValue> inputs, List<ObservableValue> outputs) {
+        return new Builder().build(inputs, outputs);
+    }
+
+    private BitParallelModel(Builder b, int[] inputSlot, int[] inputBits, int[] outputSlot, int[] outputBits, ArrayList<Op> ops) {
+        this.inputSlot = inputSlot;
+        this.inputBits = inputBits;
+        this.outputSlot = outputSlot;
+        this.outputBits = outputBits;
+
+        slots = new long[b.slotValues.size()];
+        for (int i = 0; i < slots.length; i++)
+            if (b.isConstant(i) && (b.slotValues.get(i).getValue() & (1L << b.slotBits.get(i))) != 0)
+                slots[i] = -1;
+
+        opType = new int[ops.size()];
+        opDest = new int[ops.size()];
+        opSrcStart = new int[ops.size() + 1];
+        int srcCount = 0;
+        for (Op op : ops)
+            srcCount += op.src.length;
+        opSrc = new int[srcCount];
+        int pos = 0;
+        for (int i = 0; i < ops.size(); i++) {
+            Op op = ops.get(i);
+            opType[i] = op.type;
+            opDest[i] = op.dest;
+            opSrcStart[i] = pos;
+            for (int s : op.src)
+                opSrc[pos++] = s;
+        }
+        opSrcStart[ops.size()] = pos;
+    }
+
+    /**
+     * Sets the value of an input in the given lane
+     *
+     * @param input the number of the input
+     * @param lane  the lane
+     * @param value the value
+     */
+    public void setInput(int input, int lane, long value) {
+        final long laneMask = 1L << lane;
+        final int base = inputSlot[input];
+        for (int b = 0; b < inputBits[input]; b++) {
+            if ((value & (1L << b)) != 0)
+                slots[base + b] |= laneMask;
+            else
+                slots[base + b] &= ~laneMask;
+        }
+    }
+
+    /**
+     * Evaluates all lanes
+     */
+    public void evaluate() {
+        for (int i = 0; i < opType.length; i++) {
+            final int end = opSrcStart[i + 1];
+            int p = opSrcStart[i];
+            long v;
+            switch (opType[i] & 3) {
+                case AND:
+                    v = slots[opSrc[p++]];
+                    while (p < end)
+                        v &= slots[opSrc[p++]];
+                    break;
+                case OR:
+                    v = slots[opSrc[p++]];
+                    while (p < end)
+                        v |= slots[opSrc[p++]];
+                    break;
+                case XOR:
+                    v = slots[opSrc[p++]];
+                    while (p < end)
+                        v ^= slots[opSrc[p++]];
+                    break;
+                default:
+                    v = slots[opSrc[p]];
+            }
+            if ((opType[i] & INVERT) != 0)
+                v = ~v;
+            slots[opDest[i]] = v;
+        }
+    }
+
+    /**
+     * Returns the value of an output in the given lane
+     *
+     * @param output the number of the output
+     * @param lane   the lane
+     * @return the value
+     */
+    public long getOutput(int output, int lane) {
+        final int base = outputSlot[output];
+        long value = 0;
+        for (int b = 0; b < outputBits[output]; b++)
+            if ((slots[base + b] & (1L << lane)) != 0)
+                value |= 1L << b;
+        return value;
+    }
+
+    /**
+     * @return the number of single bit operations performed by a call of {@link #evaluate()}
+     */
+    public int getOperationCount() {
+        return opType.length;
+    }
+
+    private static final class Op {
+        private final int type;
+        private final int dest;
+        private final int[] src;
+
+        private Op(int type, int dest, int... src) {
+            this.type = type;
+            this.dest = dest;
+            this.src = src;
+        }
+    }
+
+    /**
+     * Translates the model to a list of single bit operations.
+     */
+    private static final class Builder {
+        private final HashMap<ObservableValue, Integer> slotMap = new HashMap<>();
+        private final ArrayList<ObservableValue> slotValues = new ArrayList<>();
+        private final ArrayList<Integer> slotBits = new ArrayList<>();
+        private final ArrayList<Op> writer = new ArrayList<>();
+        private final HashSet<Integer> inputSlots = new HashSet<>();
+
+        private int slot(ObservableValue value) {
+            Integer s = slotMap.get(value);
+            if (s == null) {
+                s = slotValues.size();
+                slotMap.put(value, s);
+                for (int b = 0; b < value.getBits(); b++) {
+                    slotValues.add(value);
+                    slotBits.add(b);
+                    writer.add(null);
+                }
+            }
+            return s;
+        }
+
+        private boolean isConstant(int slot) {
+            return writer.get(slot) == null && !inputSlots.contains(slot);
+        }
+
+        private boolean addOp(Op op) {
+            if (writer.get(op.dest) != null || inputSlots.contains(op.dest))
+                return false;
+            writer.set(op.dest, op);
+            return true;
+        }
+
+        private BitParallelModel build(List<ObservableValue> inputs, List<ObservableValue> outputs) {
+            int[] inputSlot = new int[inputs.size()];
+            int[] inputBits = new int[inputs.size()];
+            ArrayList<ObservableValue> todo = new ArrayList<>();
+            for (int i = 0; i < inputs.size(); i++) {
+                ObservableValue in = inputs.get(i);
+                inputSlot[i] = slot(in);
+                inputBits[i] = in.getBits();
+                for (int b = 0; b < in.getBits(); b++)
+                    inputSlots.add(inputSlot[i] + b);
+                todo.add(in);
+            }
+
+            HashSet<ObservableValue> visited = new HashSet<>();
+            HashSet<Observer> translated = new HashSet<>();
+            while (!todo.isEmpty()) {
+                ObservableValue v = todo.remove(todo.size() - 1);
+                if (!visited.add(v))
+                    continue;
+                for (Observer o : v.getObservers()) {
+                    if (translated.add(o)) {
+                        ObservableValue out = translate(o);
+                        if (out == null)
+                            return null;
+                        todo.add(out);
+                    }
+                }
+            }
+
+            int[] outputSlot = new int[outputs.size()];
+            int[] outputBits = new int[outputs.size()];
+            for (int i = 0; i < outputs.size(); i++) {
+                outputSlot[i] = slot(outputs.get(i));
+                outputBits[i] = outputs.get(i).getBits();
+            }
+
+            ArrayList<Op> sorted = sortRequiredOps(outputSlot, outputBits);
+            if (sorted == null)
+                return null;
+
+            // all values not computed by the operations are constant and can not be high z
+            for (Op op : sorted)
+                for (int s : op.src)
+                    if (isConstant(s) && slotValues.get(s).isHighZ())
+                        return null;
+            for (int s : outputSlot)
+                if (isConstant(s) && slotValues.get(s).isHighZ())
+                    return null;
+
+            return new BitParallelModel(this, inputSlot, inputBits, outputSlot, outputBits, sorted);
+        }
+
+        private ObservableValue translate(Observer o) {
+            Class<?> c = o.getClass();
+            if (c == And.class || c == NAnd.class)
+                return translateFanIn((FanIn) o, c == And.class ? AND : AND | INVERT);
+            if (c == Or.class || c == NOr.class)
+                return translateFanIn((FanIn) o, c == Or.class ? OR : OR | INVERT);
+            if (c == XOr.class || c == XNOr.class)
+                return translateFanIn((FanIn) o, c == XOr.class ? XOR : XOR | INVERT);
+            if (c == Not.class) {
+                Not not = (Not) o;
+                int in = slot(not.getInput());
+                int out = slot(not.getOutput());
+                for (int b = 0; b < not.getOutput().getBits(); b++)
+                    if (!addOp(new Op(COPY | INVERT, out + b, in + b)))
+                        return null;
+                return not.getOutput();
+            }
+            if (c == Splitter.BitCopy.class) {
+                Splitter.BitCopy bc = (Splitter.BitCopy) o;
+                int in = slot(bc.getInValue()) + bc.getInPos();
+                int out = slot(bc.getOutValue()) + bc.getOutPos();
+                for (int b = 0; b < bc.getBits(); b++)
+                    if (!addOp(new Op(COPY, out + b, in + b)))
+                        return null;
+                return bc.getOutValue();
+            }
+            return null;
+        }
+
+        private ObservableValue translateFanIn(FanIn fanIn, int type) {
+            ArrayList<ObservableValue> inputs = fanIn.getInputs();
+            int[] in = new int[inputs.size()];
+            for (int i = 0; i < in.length; i++)
+                in[i] = slot(inputs.get(i));
+            ObservableValue output = fanIn.getOutput();
+            int out = slot(output);
+            for (int b = 0; b < output.getBits(); b++) {
+                int[] src = new int[in.length];
+                for (int i = 0; i < in.length; i++)
+                    src[i] = in[i] + b;
+                if (!addOp(new Op(type, out + b, src)))
+                    return null;
+            }
+            return output;
+        }
+
+        /**
+         * Returns all operations which are required to calculate the outputs in topological order.
+         * If there is a cycle, null is returned.
+         */
+        private ArrayList<Op> sortRequiredOps(int[] outputSlot, int[] outputBits) {
+            ArrayList<Op> sorted = new ArrayList<>();
+            // 0: not visited, 1: in progress, 2: done
+            HashMap<Op, Integer> state = new HashMap<>();
+            ArrayList<Op> stack = new ArrayList<>();
+            ArrayList<Integer> stackPos = new ArrayList<>();
+            for (int o = 0; o < outputSlot.length; o++)
+                for (int b = 0; b < outputBits[o]; b++) {
+                    Op root = writer.get(outputSlot[o] + b);
+                    if (root == null || state.containsKey(root))
+                        continue;
+                    state.put(root, 1);
+                    stack.add(root);
+                    stackPos.add(0);
+                    while (!stack.isEmpty()) {
+                        int top = stack.size() - 1;
+                        Op op = stack.get(top);
+                        int p = stackPos.get(top);
+                        if (p < op.src.length) {
+                            stackPos.set(top, p + 1);
+                            Op w = writer.get(op.src[p]);
+                            if (w != null) {
+                                Integer s = state.get(w);
+                                if (s == null) {
+                                    state.put(w, 1);
+                                    stack.add(w);
+                                    stackPos.add(0);
+                                } else if (s == 1)
+                                    return null;
+                            }
+                        } else {
+                            state.put(op, 2);
+                            sorted.add(op);
+                            stack.remove(top);
+                            stackPos.remove(top);
+                        }
+                    }
+                }
+            return sorted;
+        }
+    }
+}
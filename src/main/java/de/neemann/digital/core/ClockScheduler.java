@@ -0,0 +1,113 @@
+package de.neemann.digital.core;
+
+import de.neemann.digital.core.wiring.Clock;
+
+import java.util.List;
+
+/**
+ * Drives all clocks of a model.
+ * The time of the next edge is calculated for every clock from its frequency. Every call of
+ * {@link #nextEdge()} toggles all clocks which have their next edge at the earliest time.
+ * The edge times are rational numbers and are compared exactly, so the ratio of the frequencies is
+ * maintained also for long runs. If all clocks toggle at the same time, the edge counters are reset
+ * to avoid an overflow.
+ */
+public final class ClockScheduler {
+    private final ObservableValue[] outputs;
+    private final long[] frequency;
+    private final long[] edges;
+    private final int fastest;
+    private boolean fastestToggled;
+    private double timeBase;
+    private double time;
+
+    /**
+     * Creates a new instance.
+     * The frequency of the clocks is the configured frequency, see {@link Clock#getConfiguredFrequency()}.
+     *
+     * @param clocks the clocks to drive
+     */
+    public ClockScheduler(List<Clock> clocks) {
+        if (clocks.isEmpty())
+            throw new IllegalArgumentException("no clock given");
+        outputs = new ObservableValue[clocks.size()];
+        frequency = new long[clocks.size()];
+        edges = new long[clocks.size()];
+        int f = 0;
+        for (int i = 0; i < outputs.length; i++) {
+            outputs[i] = clocks.get(i).getClockOutput();
+            frequency[i] = clocks.get(i).getConfiguredFrequency();
+            if (frequency[i] > frequency[f])
+                f = i;
+        }
+        fastest = f;
+    }
+
+    /**
+     * Toggles all clocks which have their next edge at the earliest time.
+     * The model is not updated, so {@link Model#doStep()} has to be called after this method.
+     *
+     * @return the number of clocks toggled
+     */
+    public int nextEdge() {
+        // the next edge of clock i is at (edges[i] + 1) / (2 * frequency[i])
+        int first = 0;
+        for (int i = 1; i < edges.length; i++)
+            if ((edges[i] + 1) * frequency[first] < (edges[first] + 1) * frequency[i])
+                first = i;
+
+        long e = edges[first] + 1;
+        long f = frequency[first];
+        int toggled = 0;
+        fastestToggled = false;
+        for (int i = 0; i < edges.length; i++)
+            if ((edges[i] + 1) * f == e * frequency[i]) {
+                edges[i]++;
+                outputs[i].setValue(1 - outputs[i].getValue());
+                toggled++;
+                if (i == fastest)
+                    fastestToggled = true;
+            }
+
+        time = timeBase + e / (2.0 * f);
+        if (toggled == edges.length) {
+            timeBase = time;
+            for (int i = 0; i < edges.length; i++)
+                edges[i] = 0;
+        }
+        return toggled;
+    }
+
+    /**
+     * Advances the model up to and including the next edge of the clock with the highest frequency.
+     * After every edge {@link Model#doStep()} is called.
+     * Used to drive the model with the rate of the fastest clock.
+     *
+     * @param model the model
+     * @return the number of steps performed
+     * @throws NodeException NodeException
+     */
+    public int stepFastest(Model model) throws NodeException {
+        int steps = 0;
+        do {
+            nextEdge();
+            model.doStep();
+            steps++;
+        } while (!fastestToggled);
+        return steps;
+    }
+
+    /**
+     * @return the time in seconds of the last edge
+     */
+    public double getTime() {
+        return time;
+    }
+
+    /**
+     * @return the highest frequency of all clocks
+     */
+    public long getMaxFrequency() {
+        return frequency[fastest];
+    }
+}
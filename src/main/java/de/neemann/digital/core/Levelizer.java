@@ -0,0 +1,247 @@
+package de.neemann.digital.core;
+
+import de.neemann.digital.draw.elements.PinException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Levelizes the combinatorial part of a model.
+ * All nodes which are combinatorial and which are not part of a feedback loop are sorted
+ * topologically. So they can be evaluated in a single pass: every node is evaluated after
+ * all the nodes it depends on are evaluated.
+ * All the other nodes, the nodes with a state and the nodes which are part of a strongly connected
+ * component like a RS flip flop build from gates, are left to the event driven micro step loop of the model.
+ * <p>
+ * The dependencies of the nodes are determined by the observers of the nodes outputs.
+ * If an output is observed by a {@link NodeInterface} which is not a {@link Node}, like a splitter
+ * or a bus, the outputs of this {@link NodeInterface} are followed.
+ */
+final class Levelizer {
+    private final Node[] ranked;
+    private final boolean[] dirty;
+    private int dirtyCount;
+    private int first = Integer.MAX_VALUE;
+    private int last = -1;
+
+    /**
+     * Creates a new instance.
+     * Sets the level index of all levelized nodes.
+     *
+     * @param nodes the nodes of the model
+     */
+    Levelizer(List<Node> nodes) {
+        ranked = rank(nodes);
+        for (int i = 0; i < ranked.length; i++)
+            ranked[i].setLevelIndex(i);
+        dirty = new boolean[ranked.length];
+    }
+
+    /**
+     * Returns the combinatorial nodes which are not part of a feedback loop in topological order.
+     *
+     * @param nodes the nodes of the model
+     * @return the ranked nodes
+     */
+    static Node[] rank(List<Node> nodes) {
+        HashMap<Node, Integer> index = new HashMap<>();
+        for (Node n : nodes)
+            if (n.isLevelizable())
+                index.put(n, index.size());
+
+        Node[] candidates = new Node[index.size()];
+        for (Node n : nodes) {
+            Integer i = index.get(n);
+            if (i != null)
+                candidates[i] = n;
+        }
+
+        int[][] successors = new int[candidates.length][];
+        for (int i = 0; i < candidates.length; i++)
+            successors[i] = getSuccessors(candidates[i], index);
+
+        return new TopologicalSorter(successors).sort(candidates);
+    }
+
+    private static int[] getSuccessors(Node node, HashMap<Node, Integer> index) {
+        HashSet<Integer> succ = new HashSet<>();
+        try {
+            HashSet<ObservableValue> visited = new HashSet<>();
+            for (ObservableValue v : node.getOutputs())
+                collectSuccessors(v, index, succ, visited);
+        } catch (PinException e) {
+            // outputs are unknown, so this node must not be levelized
+            succ.add(index.get(node));
+        }
+        int[] s = new int[succ.size()];
+        int i = 0;
+        for (Integer n : succ)
+            s[i++] = n;
+        return s;
+    }
+
+    private static void collectSuccessors(ObservableValue value, HashMap<Node, Integer> index, HashSet<Integer> succ, HashSet<ObservableValue> visited) throws PinException {
+        if (!visited.add(value))
+            return;
+
+        for (Observer o : value.getObservers()) {
+            if (o instanceof Node) {
+                Integer i = index.get(o);
+                if (i != null)
+                    succ.add(i);
+            } else if (o instanceof NodeInterface) {
+                for (ObservableValue v : ((NodeInterface) o).getOutputs())
+                    collectSuccessors(v, index, succ, visited);
+            }
+        }
+    }
+
+    /**
+     * @return the number of levelized nodes
+     */
+    int size() {
+        return ranked.length;
+    }
+
+    /**
+     * Marks a levelized node as to be evaluated in the next pass.
+     *
+     * @param node the node
+     */
+    void add(Node node) {
+        int i = node.getLevelIndex();
+        if (!dirty[i]) {
+            dirty[i] = true;
+            dirtyCount++;
+            if (i < first) first = i;
+            if (i > last) last = i;
+        }
+    }
+
+    /**
+     * @return true if there are levelized nodes to evaluate
+     */
+    boolean needsUpdate() {
+        return dirtyCount > 0;
+    }
+
+    /**
+     * Evaluates all dirty nodes in rank order.
+     * If a node becomes dirty which is already passed, which is only possible if nets are
+     * reconfigured by switches, this node is evaluated in the next pass.
+     *
+     * @throws NodeException NodeException
+     */
+    void evaluate() throws NodeException {
+        int i = first;
+        first = Integer.MAX_VALUE;
+        while (dirtyCount > 0 && i <= last) {
+            if (dirty[i]) {
+                dirty[i] = false;
+                dirtyCount--;
+                Node n = ranked[i];
+                n.readInputs();
+                n.writeOutputs();
+            }
+            i++;
+        }
+        if (dirtyCount == 0) {
+            first = Integer.MAX_VALUE;
+            last = -1;
+        }
+    }
+
+    /**
+     * Finds the strongly connected components with the algorithm of Tarjan.
+     * Since the components are found in reverse topological order, the nodes which
+     * are not part of a feedback loop are obtained topologically sorted.
+     * Implemented without recursion to be able to handle large models.
+     */
+    private static final class TopologicalSorter {
+        private final int[][] successors;
+        private final int[] num;
+        private final int[] low;
+        private final boolean[] onStack;
+        private final int[] stack;
+        private int stackPtr;
+        private int counter;
+
+        private TopologicalSorter(int[][] successors) {
+            this.successors = successors;
+            int n = successors.length;
+            num = new int[n];
+            low = new int[n];
+            onStack = new boolean[n];
+            stack = new int[n];
+        }
+
+        private Node[] sort(Node[] candidates) {
+            ArrayList<Node> reversed = new ArrayList<>();
+            int n = successors.length;
+            int[] callStack = new int[n];
+            int[] succPos = new int[n];
+            for (int root = 0; root < n; root++) {
+                if (num[root] != 0)
+                    continue;
+
+                int csp = 0;
+                callStack[csp++] = root;
+                visit(root);
+                while (csp > 0) {
+                    int v = callStack[csp - 1];
+                    if (succPos[v] < successors[v].length) {
+                        int w = successors[v][succPos[v]++];
+                        if (num[w] == 0) {
+                            visit(w);
+                            callStack[csp++] = w;
+                        } else if (onStack[w])
+                            low[v] = Math.min(low[v], num[w]);
+                    } else {
+                        csp--;
+                        if (csp > 0) {
+                            int parent = callStack[csp - 1];
+                            low[parent] = Math.min(low[parent], low[v]);
+                        }
+                        if (low[v] == num[v])
+                            popComponent(v, candidates, reversed);
+                    }
+                }
+            }
+
+            Node[] sorted = new Node[reversed.size()];
+            for (int i = 0; i < sorted.length; i++)
+                sorted[i] = reversed.get(sorted.length - 1 - i);
+            return sorted;
+        }
+
+        private void visit(int v) {
+            counter++;
+            num[v] = counter;
+            low[v] = counter;
+            stack[stackPtr++] = v;
+            onStack[v] = true;
+        }
+
+        private void popComponent(int v, Node[] candidates, ArrayList<Node> reversed) {
+            int size = 0;
+            int w;
+            do {
+                w = stack[--stackPtr];
+                onStack[w] = false;
+                size++;
+            } while (w != v);
+
+            if (size == 1 && !isSelfLoop(v))
+                reversed.add(candidates[v]);
+        }
+
+        private boolean isSelfLoop(int v) {
+            for (int s : successors[v])
+                if (s == v)
+                    return true;
+            return false;
+        }
+    }
+}
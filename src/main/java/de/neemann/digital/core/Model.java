@@ -4,12 +4,14 @@ import de.neemann.digital.core.io.Button;
 import de.neemann.digital.core.wiring.Break;
 import de.neemann.digital.core.wiring.Clock;
 import de.neemann.digital.core.wiring.Reset;
+import de.neemann.digital.draw.elements.PinException;
 import de.neemann.digital.gui.components.WindowPosManager;
 import de.neemann.digital.lang.Lang;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * The Model contains all the nodes of the model.
@@ -32,6 +34,16 @@ import java.util.*;
  * Reset element. Its output is hold down at zero during startup, and when a stable state is reached it becomes one.
  * </li>
  * </ol>
+ * If the levelized mode is enabled by {@link #setLevelized(boolean)}, all nodes which are purely combinatorial
+ * and are not part of a feedback loop are sorted topologically after the model is initialized.
+ * In every micro step these nodes are evaluated in a single pass in rank order, so the propagation of a
+ * change through a combinatorial cone takes no gate delay. All the other nodes are handled as described above.
+ * <br>
+ * If the parallel mode is enabled by {@link #setParallel(boolean)} and noise is turned off, the
+ * {@link Node#readInputs()} methods of large sets of nodes to update are called on multiple threads.
+ * Nodes which modify shared data in readInputs are excluded, see {@link Node#hasSideEffectsInReadInputs()}.
+ * Since the outputs are written afterwards, this does not change the behaviour of the model.
+ * <br>
  * There are also some lists to store special elements. These lists are populated by the elements during the
  * call of the registerNodes method. These lists are necessary to keep track of all elements which are not a node like
  * inputs and outputs. All elements which are nodes can be obtained by {@link #findNode(Class, NodeFilter)} or
@@ -47,6 +59,10 @@ public class Model implements Iterable<Node> {
      */
     private static final int MAX_LOOP_COUNTER = 1000;
     private static final int COLLECTING_LOOP_COUNTER = MAX_LOOP_COUNTER + 100;
+    /**
+     * The interval in milliseconds the suspended observers are called during a turbo run
+     */
+    public static final int TURBO_SYNC_INTERVAL = 100;
 
     private enum State {BUILDING, INITIALIZING, RUNNING, CLOSED}
 
@@ -62,9 +78,14 @@ public class Model implements Iterable<Node> {
     private final ArrayList<Signal> outputs;
 
     private final ArrayList<Node> nodes;
-    private ArrayList<Node> nodesToUpdateAct;
-    private ArrayList<Node> nodesToUpdateNext;
+    private Node[] nodeArray;
+    private UpdateQueue updateQueue;
+    private Random random;
     private int version;
+    private boolean levelized;
+    private Levelizer levelizer;
+    private ParallelExecutor parallelExecutor;
+    private ObservableValue[] values;
     private WindowPosManager windowPosManager;
     private HashSet<Node> oscillatingNodes;
     private boolean isInvalidSignal = false;
@@ -85,8 +106,6 @@ public class Model implements Iterable<Node> {
         this.outputs = new ArrayList<>();
         this.inputs = new ArrayList<>();
         this.nodes = new ArrayList<>();
-        this.nodesToUpdateAct = new ArrayList<>();
-        this.nodesToUpdateNext = new ArrayList<>();
         this.observers = new ArrayList<>();
     }
 
@@ -121,6 +140,75 @@ public class Model implements Iterable<Node> {
         return version;
     }
 
+    /**
+     * Enables or disables the levelized mode.
+     * In the levelized mode all purely combinatorial nodes which are not part of a feedback loop
+     * are evaluated in a single pass in rank order. Thus a combinatorial cone does not need a
+     * micro step per gate, which speeds up the simulation. But since there is no gate delay
+     * anymore inside these cones, glitches which would occur in the event driven mode are
+     * not generated. Needs to be called before the model is initialized.
+     *
+     * @param levelized true if levelized mode is to use
+     * @return this for chained calls
+     */
+    public Model setLevelized(boolean levelized) {
+        if (state != State.BUILDING)
+            throw new RuntimeException(Lang.get("err_isAlreadyInitialized"));
+        this.levelized = levelized;
+        return this;
+    }
+
+    /**
+     * Sets the seed of the random number generator which is used if the model is
+     * executed with noise. Allows to reproduce a simulation run with noise.
+     *
+     * @param seed the seed
+     * @return this for chained calls
+     */
+    public Model setNoiseSeed(long seed) {
+        random = new Random(seed);
+        return this;
+    }
+
+    /**
+     * Enables or disables the parallel mode.
+     * In the parallel mode the nodes to update in a micro step without noise read their inputs
+     * on the threads of the common fork join pool. This is only done if there are enough nodes
+     * to update, small sets of nodes are processed by the calling thread.
+     * Nodes which return true from {@link Node#hasSideEffectsInReadInputs()}, like memories which
+     * write their data in readInputs, are always processed by the calling thread.
+     *
+     * @param parallel true if parallel mode is to use
+     * @return this for chained calls
+     */
+    public Model setParallel(boolean parallel) {
+        return setParallel(parallel ? ForkJoinPool.commonPool() : null, 0);
+    }
+
+    /**
+     * Enables or disables the parallel mode.
+     *
+     * @param pool        the pool to use, null disables the parallel mode
+     * @param minParallel the minimal number of nodes to update which are processed in parallel
+     * @return this for chained calls
+     */
+    public Model setParallel(ForkJoinPool pool, int minParallel) {
+        if (pool == null)
+            parallelExecutor = null;
+        else
+            parallelExecutor = new ParallelExecutor(pool, minParallel);
+        return this;
+    }
+
+    /**
+     * @return the number of levelized nodes, zero if levelized mode is disabled
+     */
+    public int getLevelizedNodeCount() {
+        if (levelizer == null)
+            return 0;
+        return levelizer.size();
+    }
+
     /**
      * Adds a node to the model
      *
@@ -156,7 +244,14 @@ public class Model implements Iterable<Node> {
      * @throws NodeException NodeException
      */
     public void init(boolean noise) throws NodeException {
-        nodesToUpdateNext.addAll(nodes);
+        nodeArray = nodes.toArray(new Node[nodes.size()]);
+        updateQueue = new UpdateQueue(nodeArray.length);
+        for (int i = 0; i < nodeArray.length; i++) {
+            nodeArray[i].setId(i);
+            updateQueue.add(i);
+        }
+        if (random == null)
+            random = new Random();
         state = State.INITIALIZING;
         doStep(noise);
         if (!resets.isEmpty()) {
@@ -165,10 +260,117 @@ public class Model implements Iterable<Node> {
             doStep(false);
         }
         LOGGER.debug("stabilizing took " + version + " micro steps");
+        if (levelized) {
+            levelizer = new Levelizer(nodes);
+            LOGGER.debug("levelized " + levelizer.size() + " of " + nodes.size() + " nodes");
+        }
+        values = collectValues();
+        for (ObservableValue v : values)
+            v.freezeObservers();
         state = State.RUNNING;
         fireEvent(ModelEvent.STARTED);
     }
 
+    /**
+     * Collects all values which are reachable from the nodes outputs or the signals.
+     * The outputs of observers which are not nodes, like splitters, are followed.
+     */
+    private ObservableValue[] collectValues() {
+        ArrayList<ObservableValue> todo = new ArrayList<>();
+        for (Node n : nodes)
+            try {
+                todo.addAll(n.getOutputs());
+            } catch (PinException e) {
+                // outputs not available, so they are not frozen
+            }
+        for (Signal s : signals)
+            todo.add(s.getValue());
+
+        LinkedHashSet<ObservableValue> visited = new LinkedHashSet<>();
+        while (!todo.isEmpty()) {
+            ObservableValue v = todo.remove(todo.size() - 1);
+            if (v != null && visited.add(v)) {
+                for (Observer o : v.getObservers())
+                    if (o instanceof NodeInterface && !(o instanceof Node))
+                        try {
+                            todo.addAll(((NodeInterface) o).getOutputs());
+                        } catch (PinException e) {
+                            // outputs not available, so they are not collected
+                        }
+            }
+        }
+        return visited.toArray(new ObservableValue[visited.size()]);
+    }
+
+    /**
+     * Creates a snapshot of the actual state of the model.
+     * The snapshot contains all values of the model and the internal state of all nodes.
+     * A snapshot can only be created if the model is running and stable.
+     *
+     * @return the snapshot
+     * @throws NodeException if the model is not stable
+     * @see #restore(ModelSnapshot)
+     */
+    public ModelSnapshot snapshot() throws NodeException {
+        if (state != State.RUNNING)
+            throw new RuntimeException("model is not running");
+        if (needsUpdate())
+            throw new NodeException("model is not stable");
+
+        ModelSnapshot.Writer w = new ModelSnapshot.Writer();
+        long highZ = 0;
+        for (int i = 0; i < values.length; i++) {
+            w.write(values[i].getValue());
+            if (values[i].isHighZ())
+                highZ |= 1L << i;
+            if ((i & 63) == 63) {
+                w.write(highZ);
+                highZ = 0;
+            }
+        }
+        if ((values.length & 63) != 0)
+            w.write(highZ);
+
+        for (Node n : nodeArray)
+            n.saveState(w);
+        return new ModelSnapshot(this, w.toArray());
+    }
+
+    /**
+     * Restores a snapshot created by {@link #snapshot()}.
+     * At first the values are set, then the internal states of the nodes are restored.
+     * Afterwards all nodes are evaluated once, so the nodes which store the results of the
+     * last evaluation are brought to a consistent state as well.
+     *
+     * @param snapshot the snapshot to restore
+     * @throws NodeException NodeException
+     */
+    public void restore(ModelSnapshot snapshot) throws NodeException {
+        if (snapshot.getModel() != this)
+            throw new RuntimeException("snapshot belongs to a different model");
+        if (state != State.RUNNING)
+            throw new RuntimeException("model is not running");
+
+        ModelSnapshot.Reader r = snapshot.getReader();
+        long[] v = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            v[i] = r.readLong();
+            if ((i & 63) == 63 || i == values.length - 1) {
+                long highZ = r.readLong();
+                for (int j = i & ~63; j <= i; j++)
+                    values[j].set(v[j], (highZ & (1L << j)) != 0);
+            }
+        }
+        for (Node n : nodeArray)
+            n.restoreState(r);
+        if (!r.isComplete())
+            throw new RuntimeException("snapshot does not match the model");
+
+        for (Node n : nodeArray)
+            n.hasChanged();
+        doStep();
+    }
+
     /**
      * Closes the model.
      * A STOPPED event is fired.
@@ -195,11 +397,25 @@ public class Model implements Iterable<Node> {
 
     /**
      * Adds a node to the update list.
+     * A node is added only once to the list.
+     * Changes which happen before the model is initialized are ignored, because
+     * at initialization all nodes are updated.
      *
      * @param node the node
      */
     final void addToUpdateList(Node node) {
-        nodesToUpdateNext.add(node);
+        int id = node.getId();
+        if (id >= 0)
+            updateQueue.add(id);
+    }
+
+    /**
+     * Adds a levelized node to the next levelized pass.
+     *
+     * @param node the node
+     */
+    final void addToLevelizedPass(Node node) {
+        levelizer.add(node);
     }
 
     /**
@@ -232,7 +448,7 @@ public class Model implements Iterable<Node> {
                         oscillatingNodes = null;
                         throw seemsToOscillate;
                     } else {
-                        oscillatingNodes.addAll(nodesToUpdateNext);
+                        oscillatingNodes.addAll(nodesToUpdate());
                     }
                 }
                 doMicroStep(noise);
@@ -255,31 +471,36 @@ public class Model implements Iterable<Node> {
      */
     public void doMicroStep(boolean noise) throws NodeException {
         version++;
-        // swap lists
-        ArrayList<Node> nl = nodesToUpdateNext;
-        nodesToUpdateNext = nodesToUpdateAct;
-        nodesToUpdateAct = nl;
-
-        nodesToUpdateNext.clear();
+        updateQueue.swap();
+        final int[] act = updateQueue.getAct();
+        final int size = updateQueue.getActSize();
 
         if (noise) {
-            Collections.shuffle(nodesToUpdateAct);
-            for (Node n : nodesToUpdateAct) {
+            updateQueue.shuffle(random);
+            for (int i = 0; i < size; i++) {
+                Node n = nodeArray[act[i]];
                 n.readInputs();
                 n.writeOutputs();
             }
+            if (levelizer != null)
+                levelizer.evaluate();
         } else {
-            for (Node n : nodesToUpdateAct) {
-                n.readInputs();
-            }
-            for (Node n : nodesToUpdateAct) {
-                n.writeOutputs();
-            }
+            if (parallelExecutor != null)
+                parallelExecutor.readInputs(nodeArray, act, size);
+            else
+                for (int i = 0; i < size; i++)
+                    nodeArray[act[i]].readInputs();
+            // the levelized pass takes place between reading and writing, so the
+            // non levelized nodes see the values as they were at the beginning of the micro step
+            if (levelizer != null)
+                levelizer.evaluate();
+            for (int i = 0; i < size; i++)
+                nodeArray[act[i]].writeOutputs();
         }
         if (observersMicroStep != null)
             fireEvent(ModelEvent.MICROSTEP);
 
-        if (nodesToUpdateNext.isEmpty())
+        if (!needsUpdate())
             fireEvent(ModelEvent.STEP);
     }
 
@@ -290,31 +511,92 @@ public class Model implements Iterable<Node> {
      * @throws NodeException NodeException
      */
     public int runToBreak() throws NodeException {
+        return runToBreak(false);
+    }
+
+    /**
+     * Runs the model until a positive edge at the break element is detected.
+     * In turbo mode all step and micro step observers which are suspendable are not called
+     * during the run. They are only called every {@link #TURBO_SYNC_INTERVAL} milliseconds and
+     * after the break is detected, so they can resync with the state of the model.
+     * If there are several clocks, they are driven by a {@link ClockScheduler}.
+     *
+     * @param turbo if true the suspendable observers are suspended
+     * @return The number of clock cycles necessary to get the positive edge
+     * @throws NodeException NodeException
+     * @see ModelStateObserver#isSuspendable()
+     */
+    public int runToBreak(boolean turbo) throws NodeException {
         Break aBreak = breaks.get(0);
         ObservableValue brVal = aBreak.getBreakInput();
-        ObservableValue clkVal = clocks.get(0).getClockOutput();
+        ClockScheduler scheduler = new ClockScheduler(clocks);
 
         int count = aBreak.getCycles() * 2;
         boolean lastIn = brVal.getBool();
         fireEvent(ModelEvent.FASTRUN);
-        for (int i = 0; i < count; i++) {
-            clkVal.setBool(!clkVal.getBool());
-            doStep();
-            boolean brIn = brVal.getBool();
-            if (!lastIn && brIn) {
-                fireEvent(ModelEvent.BREAK);
-                return i + 1;
+
+        final ArrayList<ModelStateObserver> allStep = observersStep;
+        final ArrayList<ModelStateObserver> allMicroStep = observersMicroStep;
+        if (turbo) {
+            observersStep = getNotSuspendable(allStep);
+            observersMicroStep = getNotSuspendable(allMicroStep);
+        }
+        try {
+            long nextSync = System.currentTimeMillis() + TURBO_SYNC_INTERVAL;
+            for (int i = 0; i < count; i++) {
+                scheduler.nextEdge();
+                doStep();
+                boolean brIn = brVal.getBool();
+                if (!lastIn && brIn) {
+                    if (turbo)
+                        resyncSuspended(allStep, allMicroStep);
+                    fireEvent(ModelEvent.BREAK);
+                    return i + 1;
+                }
+                lastIn = brIn;
+
+                if (turbo && (i & 0x3ff) == 0 && System.currentTimeMillis() > nextSync) {
+                    resyncSuspended(allStep, allMicroStep);
+                    nextSync = System.currentTimeMillis() + TURBO_SYNC_INTERVAL;
+                }
             }
-            lastIn = brIn;
+            if (turbo)
+                resyncSuspended(allStep, allMicroStep);
+        } finally {
+            observersStep = allStep;
+            observersMicroStep = allMicroStep;
         }
         throw new NodeException(Lang.get("err_breakTimeOut", aBreak.getCycles()), brVal);
     }
 
+    private static ArrayList<ModelStateObserver> getNotSuspendable(ArrayList<ModelStateObserver> observers) {
+        if (observers == null)
+            return null;
+        ArrayList<ModelStateObserver> list = new ArrayList<>();
+        for (ModelStateObserver o : observers)
+            if (!o.isSuspendable())
+                list.add(o);
+        if (list.isEmpty())
+            return null;
+        return list;
+    }
+
+    private void resyncSuspended(ArrayList<ModelStateObserver> allStep, ArrayList<ModelStateObserver> allMicroStep) {
+        if (allStep != null)
+            for (ModelStateObserver o : allStep)
+                if (o.isSuspendable())
+                    o.handleEvent(ModelEvent.STEP);
+        if (allMicroStep != null)
+            for (ModelStateObserver o : allMicroStep)
+                if (o.isSuspendable())
+                    o.handleEvent(ModelEvent.MICROSTEP);
+    }
+
     /**
      * @return true if the models allows fast run steps
      */
     public boolean isFastRunModel() {
-        return clocks.size() == 1 && breaks.size() == 1;
+        return !clocks.isEmpty() && breaks.size() == 1;
     }
 
     /**
@@ -324,6 +606,17 @@ public class Model implements Iterable<Node> {
         return Collections.unmodifiableList(nodes);
     }
 
+    /**
+     * Returns the combinatorial nodes which are not part of a feedback loop.
+     * The nodes are returned in topological order, so every node is listed after all
+     * the nodes it depends on.
+     *
+     * @return the list of nodes
+     */
+    public List<Node> getAcyclicNodes() {
+        return Arrays.asList(Levelizer.rank(nodes));
+    }
+
     /**
      * Asks if an update is necessary.
      * <p>
@@ -336,14 +629,23 @@ public class Model implements Iterable<Node> {
      * @return true if model has more nodes to update
      */
     public boolean needsUpdate() {
-        return !nodesToUpdateNext.isEmpty();
+        return (updateQueue != null && updateQueue.getNextSize() > 0) || (levelizer != null && levelizer.needsUpdate());
     }
 
     /**
+     * Returns the nodes to update in the next step.
+     * The levelized nodes are not included.
+     *
      * @return the nodes to update in the next step
      */
     public Collection<Node> nodesToUpdate() {
-        return nodesToUpdateNext;
+        ArrayList<Node> list = new ArrayList<>();
+        if (updateQueue != null) {
+            int[] next = updateQueue.getNext();
+            for (int i = 0; i < updateQueue.getNextSize(); i++)
+                list.add(nodeArray[next[i]]);
+        }
+        return list;
     }
 
     /**
@@ -0,0 +1,149 @@
+package de.neemann.digital.core;
+
+import java.util.Arrays;
+
+/**
+ * A snapshot of the state of a running model.
+ * Contains all values of the model and the internal state of all nodes, stored in
+ * a single long array.
+ * A snapshot is created by {@link Model#snapshot()} and can be restored by
+ * {@link Model#restore(ModelSnapshot)}. A snapshot can only be restored to the model
+ * it was created from.
+ */
+public final class ModelSnapshot {
+    private final Model model;
+    private final long[] data;
+
+    ModelSnapshot(Model model, long[] data) {
+        this.model = model;
+        this.data = data;
+    }
+
+    /**
+     * @return the model this snapshot belongs to
+     */
+    Model getModel() {
+        return model;
+    }
+
+    /**
+     * @return a reader to read the snapshot
+     */
+    Reader getReader() {
+        return new Reader(data);
+    }
+
+    /**
+     * @return the number of longs used to store this snapshot
+     */
+    public int size() {
+        return data.length;
+    }
+
+    /**
+     * Used by the nodes to write their state.
+     */
+    public static final class Writer {
+        private long[] data = new long[256];
+        private int pos;
+
+        Writer() {
+        }
+
+        private void ensure(int n) {
+            if (pos + n > data.length)
+                data = Arrays.copyOf(data, Math.max(data.length * 2, pos + n));
+        }
+
+        /**
+         * Writes a long
+         *
+         * @param value the value
+         * @return this for chained calls
+         */
+        public Writer write(long value) {
+            ensure(1);
+            data[pos++] = value;
+            return this;
+        }
+
+        /**
+         * Writes a boolean
+         *
+         * @param value the value
+         * @return this for chained calls
+         */
+        public Writer write(boolean value) {
+            return write(value ? 1 : 0);
+        }
+
+        /**
+         * Writes an array including its length
+         *
+         * @param values the values
+         * @return this for chained calls
+         */
+        public Writer write(long[] values) {
+            ensure(values.length + 1);
+            data[pos++] = values.length;
+            System.arraycopy(values, 0, data, pos, values.length);
+            pos += values.length;
+            return this;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(data, pos);
+        }
+    }
+
+    /**
+     * Used by the nodes to read their state.
+     * The state has to be read in the same order as it was written.
+     */
+    public static final class Reader {
+        private final long[] data;
+        private int pos;
+
+        private Reader(long[] data) {
+            this.data = data;
+        }
+
+        /**
+         * @return the next long
+         */
+        public long readLong() {
+            return data[pos++];
+        }
+
+        /**
+         * @return the next int
+         */
+        public int readInt() {
+            return (int) data[pos++];
+        }
+
+        /**
+         * @return the next boolean
+         */
+        public boolean readBool() {
+            return data[pos++] != 0;
+        }
+
+        /**
+         * @return the next array
+         */
+        public long[] readArray() {
+            int len = readInt();
+            long[] values = Arrays.copyOfRange(data, pos, pos + len);
+            pos += len;
+            return values;
+        }
+
+        /**
+         * @return true if all data is read
+         */
+        boolean isComplete() {
+            return pos == data.length;
+        }
+    }
+}
@@ -14,4 +14,15 @@ public interface ModelStateObserver {
      */
     void handleEvent(ModelEvent event);
 
+    /**
+     * Returns true if this observer is only used to display the state of the model.
+     * Such observers are suspended during a turbo run, see {@link Model#runToBreak(boolean)}.
+     * Observers which check the consistency of the model like the burn check must not be suspended.
+     *
+     * @return true if this observer can be suspended
+     */
+    default boolean isSuspendable() {
+        return false;
+    }
+
 }
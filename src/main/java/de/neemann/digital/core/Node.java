@@ -20,7 +20,8 @@ public abstract class Node implements NodeInterface {
 
     private final boolean hasState;
     private Model model;
-    private int version;
+    private int id = -1;
+    private int levelIndex = -1;
     // used to store the origin of this node
     // only used to create better error messages
     private File origin;
@@ -55,10 +56,10 @@ public abstract class Node implements NodeInterface {
         if (model == null)
             throw new RuntimeException("noModelSet");
 
-        if (model.getStepCounter() != version) {
+        if (levelIndex >= 0)
+            model.addToLevelizedPass(this);
+        else
             model.addToUpdateList(this);
-            version = model.getStepCounter();
-        }
     }
 
     /**
@@ -94,6 +95,87 @@ public abstract class Node implements NodeInterface {
         return hasState;
     }
 
+    /**
+     * Writes the internal state of this node to a snapshot.
+     * Only the state which is not restored by reevaluating the node is to write, like
+     * the stored value of a flip flop or the last clock state used to detect a clock edge.
+     * Nodes which have such a state have to override this method and {@link #restoreState(ModelSnapshot.Reader)}.
+     *
+     * @param writer the writer to write the state to
+     * @see Model#snapshot()
+     */
+    public void saveState(ModelSnapshot.Writer writer) {
+    }
+
+    /**
+     * Restores the internal state of this node.
+     * The state has to be read in the same order as written by {@link #saveState(ModelSnapshot.Writer)}.
+     *
+     * @param reader the reader to read the state from
+     * @see Model#restore(ModelSnapshot)
+     */
+    public void restoreState(ModelSnapshot.Reader reader) {
+    }
+
+    /**
+     * Returns true if this node can be evaluated in a levelized pass.
+     * This is the case if the node is purely combinatorial, which means that
+     * its outputs only depend on the inputs it observes.
+     * Nodes which reschedule themselves or which reconfigure nets have to return false.
+     *
+     * @return true if the node can be levelized
+     * @see Model#setLevelized(boolean)
+     */
+    public boolean isLevelizable() {
+        return !hasState;
+    }
+
+    /**
+     * Returns true if the {@link #readInputs()} method of this node modifies data which is
+     * not owned by the node alone, like the content of a memory or the state of a dialog.
+     * In the parallel mode such nodes are not processed concurrently, but one after the other
+     * by the thread which runs the model.
+     *
+     * @return true if readInputs has side effects
+     * @see Model#setParallel(boolean)
+     */
+    public boolean hasSideEffectsInReadInputs() {
+        return false;
+    }
+
+    /**
+     * Sets the id of this node.
+     * The id is the index of this node in the model and is assigned at initialization.
+     *
+     * @param id the id
+     */
+    void setId(int id) {
+        this.id = id;
+    }
+
+    /**
+     * @return the id of this node or -1 if the model is not yet initialized
+     */
+    int getId() {
+        return id;
+    }
+
+    /**
+     * Sets the position of this node in the rank order of the levelized nodes.
+     *
+     * @param levelIndex the index
+     */
+    void setLevelIndex(int levelIndex) {
+        this.levelIndex = levelIndex;
+    }
+
+    /**
+     * @return the position of this node in the rank order or -1 if the node is not levelized
+     */
+    int getLevelIndex() {
+        return levelIndex;
+    }
+
     /**
      * Returns the origin of this node
      * Only used to show better error messages.
@@ -1,14 +1,29 @@
 package de.neemann.digital.core;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 
 /**
  * A simple observable
+ * <p>
+ * While the model is build, the observers are stored in a list. If there are many observers,
+ * a set is used to avoid adding an observer twice, so adding observers to high fan-out nets takes linear time.
+ * After the model is initialized the observers are frozen into an array by {@link #freezeObservers()}.
+ * Then firing an event is a simple array loop. All the rare modifications which happen later
+ * create a new array.
  *
  * @author hneemann
  */
 public class Observable {
-    private final ArrayList<Observer> observers;
+    private static final int SET_THRESHOLD = 16;
+    private static final Observer[] EMPTY = new Observer[0];
+
+    private ArrayList<Observer> observers;
+    private HashSet<Observer> observerSet;
+    private Observer[] frozen;
 
     /**
      * Creates a new instance
@@ -24,8 +39,19 @@ public class Observable {
      * @return observer the observer to add
      */
     public Observer addObserver(Observer observer) {
-        if (observer != null && !observers.contains(observer))
-            observers.add(observer);
+        if (observer != null && !hasObserver(observer)) {
+            if (frozen != null) {
+                Observer[] o = Arrays.copyOf(frozen, frozen.length + 1);
+                o[frozen.length] = observer;
+                frozen = o;
+            } else {
+                observers.add(observer);
+                if (observerSet != null)
+                    observerSet.add(observer);
+                else if (observers.size() > SET_THRESHOLD)
+                    observerSet = new HashSet<>(observers);
+            }
+        }
         return observer;
     }
 
@@ -33,6 +59,8 @@ public class Observable {
      * @return the numbers of observers
      */
     public int observerCount() {
+        if (frozen != null)
+            return frozen.length;
         return observers.size();
     }
 
@@ -42,7 +70,20 @@ public class Observable {
      * @param observer the observer to use
      */
     public void removeObserver(Observer observer) {
-        observers.remove(observer);
+        if (frozen != null) {
+            for (int i = 0; i < frozen.length; i++)
+                if (frozen[i].equals(observer)) {
+                    Observer[] o = new Observer[frozen.length - 1];
+                    System.arraycopy(frozen, 0, o, 0, i);
+                    System.arraycopy(frozen, i + 1, o, i, o.length - i);
+                    frozen = o;
+                    return;
+                }
+        } else {
+            observers.remove(observer);
+            if (observerSet != null)
+                observerSet.remove(observer);
+        }
     }
 
     /**
@@ -51,15 +92,29 @@ public class Observable {
      * @param observerClass the class of observers to remove
      */
     public void removeObserver(Class<? extends Observer> observerClass) {
-        observers.removeIf(observer -> observer.getClass() == observerClass);
+        if (frozen != null) {
+            frozen = Arrays.stream(frozen)
+                    .filter(observer -> observer.getClass() != observerClass)
+                    .toArray(Observer[]::new);
+        } else {
+            observers.removeIf(observer -> observer.getClass() == observerClass);
+            if (observerSet != null)
+                observerSet.removeIf(observer -> observer.getClass() == observerClass);
+        }
     }
 
     /**
      * Fires a has changed event to all observers
      */
     public void fireHasChanged() {
-        for (Observer o : observers)
-            o.hasChanged();
+        final Observer[] f = frozen;
+        if (f != null) {
+            for (Observer o : f)
+                o.hasChanged();
+        } else {
+            for (int i = 0; i < observers.size(); i++)
+                observers.get(i).hasChanged();
+        }
     }
 
 
@@ -70,14 +125,43 @@ public class Observable {
      * @return true if the given observer observes this observable
      */
     public boolean hasObserver(Observer observer) {
+        if (frozen != null) {
+            for (Observer o : frozen)
+                if (o.equals(observer))
+                    return true;
+            return false;
+        }
+        if (observerSet != null)
+            return observerSet.contains(observer);
         return observers.contains(observer);
     }
 
     /**
-     * @return tje list of observers
+     * @return the list of observers, the list can not be modified
+     */
+    public List<Observer> getObservers() {
+        if (frozen != null)
+            return Collections.unmodifiableList(Arrays.asList(frozen));
+        return Collections.unmodifiableList(observers);
+    }
+
+    /**
+     * Freezes the observers into an array.
+     * Should be called if the observers are not going to change anymore.
+     * Later modifications are still possible, but are more expensive.
      */
-    public ArrayList<Observer> getObservers() {
-        return observers;
+    public void freezeObservers() {
+        if (frozen == null) {
+            frozen = observers.isEmpty() ? EMPTY : observers.toArray(new Observer[observers.size()]);
+            observers = null;
+            observerSet = null;
+        }
     }
 
+    /**
+     * @return true if the observers are frozen
+     */
+    public boolean isFrozen() {
+        return frozen != null;
+    }
 }
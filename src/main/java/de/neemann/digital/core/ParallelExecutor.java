@@ -0,0 +1,104 @@
+package de.neemann.digital.core;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Calls the {@link Node#readInputs()} methods of a list of nodes in parallel.
+ * The list is split in chunks which are processed on a fork join pool.
+ * Most nodes only read their input values and store them in their own fields, so there is no
+ * synchronization needed between them. Nodes which modify shared data in readInputs, like the
+ * memories which store a value on a clock edge, return true from {@link Node#hasSideEffectsInReadInputs()}.
+ * These nodes are skipped by the pool and are processed by the calling thread after the
+ * parallel part is done. If the list is small, all nodes are processed by the calling thread.
+ * <p>
+ * The writing of the outputs is not parallelized, because writing a value calls all the
+ * observers of this value, and some of them like splitters or buses are shared by many nodes.
+ */
+final class ParallelExecutor {
+    /**
+     * The minimal number of nodes processed by a single task
+     */
+    static final int CHUNK_SIZE = 256;
+
+    private final ForkJoinPool pool;
+    private final int minParallel;
+
+    /**
+     * Creates a new instance
+     *
+     * @param pool        the pool to use
+     * @param minParallel the minimal number of nodes needed to process the nodes in parallel
+     */
+    ParallelExecutor(ForkJoinPool pool, int minParallel) {
+        this.pool = pool;
+        this.minParallel = Math.max(minParallel, CHUNK_SIZE * 2);
+    }
+
+    /**
+     * Calls the readInputs method of all given nodes.
+     *
+     * @param nodes the nodes of the model
+     * @param ids   the ids of the nodes to process
+     * @param size  the number of valid entries in the ids array
+     * @throws NodeException NodeException
+     */
+    void readInputs(Node[] nodes, int[] ids, int size) throws NodeException {
+        if (size < minParallel) {
+            for (int i = 0; i < size; i++)
+                nodes[ids[i]].readInputs();
+        } else {
+            try {
+                pool.invoke(new ReadTask(nodes, ids, 0, size));
+            } catch (WrappedNodeException e) {
+                throw e.cause;
+            }
+            for (int i = 0; i < size; i++) {
+                Node n = nodes[ids[i]];
+                if (n.hasSideEffectsInReadInputs())
+                    n.readInputs();
+            }
+        }
+    }
+
+    private static final class ReadTask extends RecursiveAction {
+        private final Node[] nodes;
+        private final int[] ids;
+        private final int from;
+        private final int to;
+
+        private ReadTask(Node[] nodes, int[] ids, int from, int to) {
+            this.nodes = nodes;
+            this.ids = ids;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNK_SIZE) {
+                try {
+                    for (int i = from; i < to; i++) {
+                        Node n = nodes[ids[i]];
+                        if (!n.hasSideEffectsInReadInputs())
+                            n.readInputs();
+                    }
+                } catch (NodeException e) {
+                    throw new WrappedNodeException(e);
+                }
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ReadTask(nodes, ids, from, mid), new ReadTask(nodes, ids, mid, to));
+            }
+        }
+    }
+
+    private static final class WrappedNodeException extends RuntimeException {
+        private final NodeException cause;
+
+        private WrappedNodeException(NodeException cause) {
+            super(cause);
+            this.cause = cause;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package de.neemann.digital.core;
+
+import java.util.Random;
+
+/**
+ * Holds the nodes to update in the actual and in the next micro step.
+ * The nodes are identified by their id, which is the index of the node in the model.
+ * A bit set is used to make sure that a node is added only once to the next micro step.
+ * After the queue is created, no further memory is allocated.
+ */
+final class UpdateQueue {
+    private final long[] queued;
+    private int[] act;
+    private int actSize;
+    private int[] next;
+    private int nextSize;
+
+    /**
+     * Creates a new queue
+     *
+     * @param size the number of nodes in the model
+     */
+    UpdateQueue(int size) {
+        queued = new long[(size + 63) >>> 6];
+        act = new int[size];
+        next = new int[size];
+    }
+
+    /**
+     * Adds a node to the next micro step.
+     *
+     * @param id the id of the node
+     */
+    void add(int id) {
+        final int word = id >>> 6;
+        final long bit = 1L << id;
+        if ((queued[word] & bit) == 0) {
+            queued[word] |= bit;
+            next[nextSize++] = id;
+        }
+    }
+
+    /**
+     * Makes the nodes of the next micro step the nodes of the actual micro step.
+     * Afterwards the nodes of the actual micro step can be added to the next step again.
+     */
+    void swap() {
+        int[] t = act;
+        act = next;
+        next = t;
+        actSize = nextSize;
+        nextSize = 0;
+        for (int i = 0; i < actSize; i++) {
+            final int id = act[i];
+            queued[id >>> 6] &= ~(1L << id);
+        }
+    }
+
+    /**
+     * Brings the nodes of the actual micro step in a random order.
+     *
+     * @param random the random number generator to use
+     */
+    void shuffle(Random random) {
+        for (int i = actSize - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = act[i];
+            act[i] = act[j];
+            act[j] = t;
+        }
+    }
+
+    /**
+     * @return the ids of the nodes of the actual micro step, only the first {@link #getActSize()} entries are valid
+     */
+    int[] getAct() {
+        return act;
+    }
+
+    /**
+     * @return the number of nodes in the actual micro step
+     */
+    int getActSize() {
+        return actSize;
+    }
+
+    /**
+     * @return the ids of the nodes of the next micro step, only the first {@link #getNextSize()} entries are valid
+     */
+    int[] getNext() {
+        return next;
+    }
+
+    /**
+     * @return the number of nodes in the next micro step
+     */
+    int getNextSize() {
+        return nextSize;
+    }
+}
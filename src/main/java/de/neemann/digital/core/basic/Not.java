@@ -60,6 +60,13 @@ public class Not extends Node implements Element {
         return output.asList();
     }
 
+    /**
+     * @return the input
+     */
+    public ObservableValue getInput() {
+        return input;
+    }
+
     /**
      * @return the output
      */
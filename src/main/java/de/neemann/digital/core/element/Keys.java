@@ -154,7 +154,7 @@ public final class Keys {
      * number of address bits of memory
      */
     public static final Key<Integer> ADDR_BITS
-            = new Key.KeyBits("AddrBits", 2).setMax(24); // needs to have the same default value as INPUT_COUNT!!!  see de.neemann.digital.gui.components.EditorFactory#DataFieldEditor
+            = new Key.KeyBits("AddrBits", 2).setMax(30); // needs to have the same default value as INPUT_COUNT!!!  see de.neemann.digital.gui.components.EditorFactory#DataFieldEditor
 
     /**
      * indicates a diode as blown fuse or as programmed
@@ -238,6 +238,26 @@ public final class Keys {
     public static final Key<Boolean> AUTO_RELOAD_ROM
             = new Key<>("autoReload", false);
 
+    /**
+     * the number of memory accesses recorded by a memory trace, zero disables the trace
+     */
+    public static final Key.KeyInteger TRACE_SIZE
+            = new Key.KeyInteger("traceSize", 0)
+            .setComboBoxValues(new Integer[]{0, 1024, 65536, 1048576})
+            .setMin(0);
+
+    /**
+     * the byte order used to read binary memory images
+     */
+    public static final Key<Boolean> BIG_ENDIAN
+            = new Key<>("bigEndian", false);
+
+    /**
+     * flag to map binary memory images to memory instead of copying them
+     */
+    public static final Key<Boolean> MAP_DATA_FILE
+            = new Key<>("mapDataFile", false);
+
     /**
      * flag to show the data table window
      */
@@ -256,6 +276,12 @@ public final class Keys {
     public static final Key<Boolean> SHOW_DATA_GRAPH_MICRO
             = new Key<>("showDataGraphMicro", false);
 
+    /**
+     * flag to optimize the model if the circuit is simulated without single gate steps
+     */
+    public static final Key<Boolean> OPTIMIZE_MODEL
+            = new Key<>("optimizeModel", false);
+
     /**
      * flag to enable the single gate mode in the embedded data view
      */
@@ -55,6 +55,16 @@ abstract class FlipflopBit extends Node implements Element {
         qn.setBool(true);
     }
 
+    @Override
+    public void saveState(ModelSnapshot.Writer writer) {
+        writer.write(out);
+    }
+
+    @Override
+    public void restoreState(ModelSnapshot.Reader reader) {
+        out = reader.readBool();
+    }
+
     @Override
     public void writeOutputs() throws NodeException {
         q.setBool(out);
@@ -1,6 +1,7 @@
 package de.neemann.digital.core.flipflops;
 
 import de.neemann.digital.core.BitsException;
+import de.neemann.digital.core.ModelSnapshot;
 import de.neemann.digital.core.NodeException;
 import de.neemann.digital.core.ObservableValue;
 import de.neemann.digital.core.ObservableValues;
@@ -65,6 +66,18 @@ public class FlipflopRS extends FlipflopBit {
         lastClock = clock;
     }
 
+    @Override
+    public void saveState(ModelSnapshot.Writer writer) {
+        super.saveState(writer);
+        writer.write(lastClock);
+    }
+
+    @Override
+    public void restoreState(ModelSnapshot.Reader reader) {
+        super.restoreState(reader);
+        lastClock = reader.readBool();
+    }
+
     @Override
     public void setInputs(ObservableValues inputs) throws BitsException {
         sVal = inputs.get(0).checkBits(1, this, 0);
@@ -1,6 +1,7 @@
 package de.neemann.digital.core.flipflops;
 
 import de.neemann.digital.core.BitsException;
+import de.neemann.digital.core.ModelSnapshot;
 import de.neemann.digital.core.NodeException;
 import de.neemann.digital.core.ObservableValue;
 import de.neemann.digital.core.ObservableValues;
@@ -79,6 +80,19 @@ public class FlipflopRSAsync extends FlipflopBit {
         }
     }
 
+    @Override
+    public void saveState(ModelSnapshot.Writer writer) {
+        super.saveState(writer);
+        writer.write(q).write(qn);
+    }
+
+    @Override
+    public void restoreState(ModelSnapshot.Reader reader) {
+        super.restoreState(reader);
+        q = reader.readBool();
+        qn = reader.readBool();
+    }
+
     @Override
     public void writeOutputs() throws NodeException {
         qVal.setBool(q);
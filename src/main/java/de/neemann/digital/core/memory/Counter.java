@@ -71,6 +71,18 @@ public class Counter extends Node implements Element {
         ovfOut = (counter == maxValue) && enable;
     }
 
+    @Override
+    public void saveState(ModelSnapshot.Writer writer) {
+        writer.write(lastClock).write(counter).write(ovfOut);
+    }
+
+    @Override
+    public void restoreState(ModelSnapshot.Reader reader) {
+        lastClock = reader.readBool();
+        counter = reader.readLong();
+        ovfOut = reader.readBool();
+    }
+
     @Override
     public void writeOutputs() throws NodeException {
         ovf.setBool(ovfOut);
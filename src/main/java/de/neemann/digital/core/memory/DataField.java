@@ -1,16 +1,45 @@
 package de.neemann.digital.core.memory;
 
 import de.neemann.digital.core.Bits;
+import de.neemann.digital.core.ModelSnapshot;
 import de.neemann.digital.lang.Lang;
 
 import java.io.*;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
+ * The data stored in a memory.
+ * The data is stored in pages of 4096 words. A page is allocated when a non zero
+ * value is written to it for the first time. Reading from a page which is not allocated returns zero.
+ * So large address spaces can be used as long as only a small part of the memory is used.
+ * A data field can also be backed by a read only {@link WordImage} which is mapped from an image file.
+ * In this case the pages are initialized from the image when they are written for the first time.
+ * Copies of a data field share their pages with the original. A shared page is copied when it
+ * is written, so a copy only needs memory for the pages which are modified.
+ * The pages array, the shared flags and the image are published together as an immutable snapshot,
+ * which is replaced by a compare and set if a page is allocated or the pages are shared. So a copy
+ * can be created while the original is modified by a running model, without the writer taking a lock.
+ * A value written concurrently with the creation of a copy may or may not be contained in the copy.
+ * <p>
+ * There are two kinds of listeners: The listeners added by {@link #addListener(DataListener)} are
+ * notified on every change. The listeners added by {@link #addCoalescedListener(DataListener)} are
+ * not notified immediately. Instead the modified addresses are collected and reported as coalesced
+ * ranges if {@link #publishChanges()} is called. This is used by views which are updated periodically.
+ *
  * @author hneemann
  */
 public class DataField {
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final long[][] NO_PAGES = new long[0][];
+    private static final int DIRTY_BITS = 6;
+    private static final Pages EMPTY = new Pages(NO_PAGES, null, null);
+    private static final AtomicReferenceFieldUpdater<DataField, Pages> STATE
+            = AtomicReferenceFieldUpdater.newUpdater(DataField.class, Pages.class, "state");
 
     /***
      * Simple default data field
@@ -18,9 +47,14 @@ public class DataField {
     public static final DataField DEFAULT = new DataField(0);
 
     private final int size;
-    private long[] data;
+    private volatile Pages state;
 
     private final transient ArrayList<DataListener> listeners = new ArrayList<>();
+    private final transient ArrayList<DataListener> coalescedListeners = new ArrayList<>();
+    private transient volatile boolean notify;
+    private transient volatile boolean observed;
+    private transient BitSet dirty;
+    private transient boolean allDirty;
 
     /**
      * Creates a new DataField
@@ -28,23 +62,36 @@ public class DataField {
      * @param size size
      */
     public DataField(int size) {
-        this(new long[size], size);
+        this(EMPTY, size);
     }
 
-    private DataField(long[] data, int size) {
+    /**
+     * Creates a new DataField backed by the given image
+     *
+     * @param image the image
+     */
+    DataField(WordImage image) {
+        this(new Pages(NO_PAGES, null, image), image.size());
+    }
+
+    private DataField(Pages state, int size) {
         this.size = size;
-        this.data = data;
+        this.state = state;
     }
 
     /**
      * Create a new instance based on a given instance.
-     * The data given is copied.
+     * The pages of the given instance are shared until they are written.
      *
      * @param dataField the data to use
      * @param newSize   new size
      */
     public DataField(DataField dataField, int newSize) {
-        this(Arrays.copyOf(dataField.data, newSize), newSize);
+        this(dataField.sharePages(pageCount(newSize)), newSize);
+        long[][] pages = state.pages;
+        int last = newSize & PAGE_MASK;
+        if (last != 0 && pages.length == pageCount(newSize) && pages[pages.length - 1] != null)
+            Arrays.fill(getPageToWrite(newSize - 1), last, PAGE_SIZE, 0);
     }
 
     /**
@@ -65,7 +112,7 @@ public class DataField {
      */
     public DataField(Reader reader) throws IOException {
         try (BufferedReader br = new BufferedReader(reader)) {
-            data = new long[1024];
+            state = EMPTY;
             String header = br.readLine();
             if (header == null || !header.equals("v2.0 raw"))
                 throw new IOException(Lang.get("err_invalidFileFormat"));
@@ -80,9 +127,8 @@ public class DataField {
                         line = line.trim();
                     if (line.length() > 0) {
                         long v = Bits.decode(line, 0, 16);
-                        if (pos == data.length)
-                            data = Arrays.copyOf(data, data.length * 2);
-                        data[pos] = v;
+                        if (v != 0)
+                            getPageToWrite(pos)[pos & PAGE_MASK] = v;
                         pos++;
                     }
                 } catch (Bits.NumberFormatException e) {
@@ -93,6 +139,39 @@ public class DataField {
         }
     }
 
+    /**
+     * Marks all pages as shared and returns the first pages, also marked as shared.
+     */
+    private Pages sharePages(int count) {
+        while (true) {
+            Pages s = state;
+            Pages n = s.shareAll();
+            if (STATE.compareAndSet(this, s, n))
+                return new Pages(Arrays.copyOf(n.pages, Math.min(n.pages.length, count)), null, n.image).shareAll();
+        }
+    }
+
+    private static int pageCount(int size) {
+        return (int) ((size + (long) PAGE_MASK) >> PAGE_BITS);
+    }
+
+    /**
+     * Returns the page containing the given address for writing.
+     * Only a single thread is allowed to write.
+     */
+    private long[] getPageToWrite(int addr) {
+        int p = addr >>> PAGE_BITS;
+        while (true) {
+            Pages s = state;
+            long[] page = s.getOwned(p);
+            if (page != null)
+                return page;
+            Pages n = s.withOwnedPage(p);
+            if (STATE.compareAndSet(this, s, n))
+                return n.pages[p];
+        }
+    }
+
     /**
      * Save the stored data
      *
@@ -100,11 +179,10 @@ public class DataField {
      * @throws IOException IOException
      */
     public void saveTo(File file) throws IOException {
-        DataField df = getMinimized();
         try (BufferedWriter w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "utf-8"))) {
             w.write("v2.0 raw");
             w.newLine();
-            for (long l : df.getData()) {
+            for (long l : getData()) {
                 w.write(Long.toHexString(l));
                 w.newLine();
             }
@@ -116,11 +194,11 @@ public class DataField {
      * Is not called during simulation! Is only called during editing.
      */
     public void clearAll() {
-        if (data != null)
-            Arrays.fill(data, 0);
+        state = EMPTY;
 
         // all the data have changed!
         fireChanged(-1);
+        publishChanges();
     }
 
     /**
@@ -130,13 +208,32 @@ public class DataField {
      * @param value the value
      */
     public void setData(int addr, long value) {
-        if (addr < size) {
-            if (addr >= data.length)
-                data = Arrays.copyOf(data, size);
+        if (addr >= 0 && addr < size && getDataWord(addr) != value) {
+            getPageToWrite(addr)[addr & PAGE_MASK] = value;
+            fireChanged(addr);
+        }
+    }
 
-            if (data[addr] != value) {
-                data[addr] = value;
-                fireChanged(addr);
+    /**
+     * Reports a change of the data to the listeners.
+     * The listeners added by {@link #addListener(DataListener)} are notified at once.
+     * For the coalesced listeners the change is collected until {@link #publishChanges()} is called.
+     *
+     * @param addr the address which value has changed, -1 if all values have changed
+     */
+    public void fireChanged(int addr) {
+        if (notify)
+            synchronized (listeners) {
+                for (DataListener l : listeners)
+                    l.valueChanged(addr, addr < 0 ? 0 : 1);
+            }
+        if (observed) {
+            if (addr < 0)
+                allDirty = true;
+            else {
+                if (dirty == null)
+                    dirty = new BitSet();
+                dirty.set(addr >>> DIRTY_BITS);
             }
         }
     }
@@ -148,10 +245,14 @@ public class DataField {
      * @return the value
      */
     public long getDataWord(int addr) {
-        if (addr >= data.length)
-            return 0;
-        else
-            return data[addr];
+        Pages s = state;
+        int p = addr >>> PAGE_BITS;
+        if (p >= s.pages.length)
+            return s.image == null ? 0 : s.image.get(addr);
+        long[] page = s.pages[p];
+        if (page == null)
+            return s.image == null ? 0 : s.image.get(addr);
+        return page[addr & PAGE_MASK];
     }
 
     /**
@@ -165,27 +266,65 @@ public class DataField {
 
     /**
      * Returns a new minimal {@link DataField}.
-     * All trailing zeros are removed.
+     * All pages which contain only zeros are removed.
      *
      * @return the new {@link DataField}
      */
     public DataField getMinimized() {
-        int pos = data.length;
-        while (pos > 0 && data[pos - 1] == 0) pos--;
-        if (pos == data.length)
+        Pages s = state;
+        if (s.image != null)
+            return this;
+
+        long[][] pages = s.pages;
+        int last = -1;
+        boolean empty = false;
+        for (int i = 0; i < pages.length; i++)
+            if (pages[i] != null) {
+                if (isZero(pages[i]))
+                    empty = true;
+                else
+                    last = i;
+            }
+        if (!empty && last == pages.length - 1)
             return this;
-        else
-            return new DataField(Arrays.copyOf(data, pos), size);
+
+        long[][] min = sharePages(last + 1).pages;
+        for (int i = 0; i < min.length; i++)
+            if (min[i] != null && isZero(min[i]))
+                min[i] = null;
+        return new DataField(new Pages(min, null, null).shareAll(), size);
+    }
+
+    private static boolean isZero(long[] page) {
+        for (long l : page)
+            if (l != 0)
+                return false;
+        return true;
     }
 
     /**
-     * Adds a listener to this DataField
+     * Adds a listener to this DataField.
+     * The listener is notified on every change.
      *
      * @param l the listener
      */
     public void addListener(DataListener l) {
         synchronized (listeners) {
             listeners.add(l);
+            notify = true;
+        }
+    }
+
+    /**
+     * Adds a listener to this DataField.
+     * The listener is only notified if {@link #publishChanges()} is called.
+     *
+     * @param l the listener
+     */
+    public void addCoalescedListener(DataListener l) {
+        synchronized (coalescedListeners) {
+            coalescedListeners.add(l);
+            observed = true;
         }
     }
 
@@ -197,18 +336,43 @@ public class DataField {
     public void removeListener(DataListener l) {
         synchronized (listeners) {
             listeners.remove(l);
+            notify = !listeners.isEmpty();
+        }
+        synchronized (coalescedListeners) {
+            coalescedListeners.remove(l);
+            observed = !coalescedListeners.isEmpty();
         }
     }
 
     /**
-     * Fires a valueChanged event
-     *
-     * @param addr the address which value has changed
+     * Reports all changes made since the last call to the coalesced listeners.
+     * Adjacent modified addresses are reported as a single range.
+     * Has to be called by the thread which modifies the data, or while holding the lock
+     * used by that thread.
      */
-    public void fireChanged(int addr) {
-        synchronized (listeners) {
-            for (DataListener l : listeners)
-                l.valueChanged(addr);
+    public void publishChanges() {
+        if (!observed)
+            return;
+
+        synchronized (coalescedListeners) {
+            if (allDirty) {
+                allDirty = false;
+                if (dirty != null)
+                    dirty.clear();
+                for (DataListener l : coalescedListeners)
+                    l.valueChanged(-1, 0);
+            } else if (dirty != null && !dirty.isEmpty()) {
+                int i = dirty.nextSetBit(0);
+                while (i >= 0) {
+                    int j = dirty.nextClearBit(i);
+                    int from = i << DIRTY_BITS;
+                    int to = (int) Math.min(size, (long) j << DIRTY_BITS);
+                    for (DataListener l : coalescedListeners)
+                        l.valueChanged(from, to - from);
+                    i = dirty.nextSetBit(j);
+                }
+                dirty.clear();
+            }
         }
     }
 
@@ -218,16 +382,145 @@ public class DataField {
     public interface DataListener {
         /**
          * Called if the DataField has changed.
+         * The range may contain addresses which have not changed.
          *
-         * @param addr the address which has changed, Called with addr=-1 if all values have changed!
+         * @param addr the first address of the range which has changed, Called with addr=-1 if all values have changed!
+         * @param len  the number of addresses in the range
          */
-        void valueChanged(int addr);
+        void valueChanged(int addr, int len);
     }
 
     /**
-     * @return the raw data
+     * Writes the content of this data field to a snapshot.
+     * Only the allocated pages are written.
+     *
+     * @param writer the writer
+     */
+    public void saveState(ModelSnapshot.Writer writer) {
+        long[][] pages = state.pages;
+        int count = 0;
+        for (long[] page : pages)
+            if (page != null)
+                count++;
+        writer.write(pages.length).write(count);
+        for (int i = 0; i < pages.length; i++)
+            if (pages[i] != null)
+                writer.write(i).write(pages[i]);
+    }
+
+    /**
+     * Restores the content of this data field from a snapshot.
+     *
+     * @param reader the reader
+     */
+    public void restoreState(ModelSnapshot.Reader reader) {
+        long[][] p = new long[reader.readInt()][];
+        int count = reader.readInt();
+        for (int i = 0; i < count; i++)
+            p[reader.readInt()] = reader.readArray();
+        state = new Pages(p, null, state.image);
+        fireChanged(-1);
+        publishChanges();
+    }
+
+    /**
+     * Returns the data as an array.
+     * The array ends with the last non zero value, so it may be shorter than the size of this field.
+     * Only the allocated pages and the image, if present, are read.
+     *
+     * @return the data
      */
     public long[] getData() {
+        Pages s = state;
+        long[][] pages = s.pages;
+        WordImage image = s.image;
+        int len = 0;
+        for (int i = pages.length - 1; i >= 0 && len == 0; i--)
+            if (pages[i] != null)
+                for (int j = PAGE_SIZE - 1; j >= 0; j--)
+                    if (pages[i][j] != 0) {
+                        len = (i << PAGE_BITS) + j + 1;
+                        break;
+                    }
+
+        if (image != null)
+            len = Math.min(size, Math.max(len, image.size()));
+
+        long[] data = new long[len];
+        for (int i = 0; (i << PAGE_BITS) < len; i++) {
+            int addr = i << PAGE_BITS;
+            int n = Math.min(PAGE_SIZE, len - addr);
+            if (i < pages.length && pages[i] != null)
+                System.arraycopy(pages[i], 0, data, addr, n);
+            else if (image != null)
+                image.copy(addr, data, addr, n);
+        }
+
+        if (image != null) {
+            while (len > 0 && data[len - 1] == 0) len--;
+            if (len < data.length)
+                data = Arrays.copyOf(data, len);
+        }
         return data;
     }
+
+    /**
+     * A snapshot of the pages.
+     * The arrays are never modified after the snapshot is published, only the content of
+     * the pages which are not shared is written.
+     */
+    private static final class Pages {
+        private final long[][] pages;
+        private final boolean[] shared;
+        private final WordImage image;
+
+        private Pages(long[][] pages, boolean[] shared, WordImage image) {
+            this.pages = pages;
+            this.shared = shared;
+            this.image = image;
+        }
+
+        /**
+         * @return the page if it is allocated and not shared, null otherwise
+         */
+        private long[] getOwned(int p) {
+            if (p >= pages.length)
+                return null;
+            if (shared != null && p < shared.length && shared[p])
+                return null;
+            return pages[p];
+        }
+
+        /**
+         * @return a new snapshot which contains a page which is allocated and not shared
+         */
+        private Pages withOwnedPage(int p) {
+            long[][] np = Arrays.copyOf(pages, Math.max(p + 1, pages.length));
+            long[] page = np[p];
+            if (page != null)
+                page = page.clone();
+            else {
+                page = new long[PAGE_SIZE];
+                if (image != null)
+                    image.copy(p << PAGE_BITS, page, 0, PAGE_SIZE);
+            }
+            np[p] = page;
+
+            boolean[] ns = shared;
+            if (ns != null && p < ns.length && ns[p]) {
+                ns = ns.clone();
+                ns[p] = false;
+            }
+            return new Pages(np, ns, image);
+        }
+
+        /**
+         * @return a new snapshot in which all pages are shared
+         */
+        private Pages shareAll() {
+            boolean[] ns = new boolean[pages.length];
+            Arrays.fill(ns, true);
+            return new Pages(pages, ns, image);
+        }
+    }
 }
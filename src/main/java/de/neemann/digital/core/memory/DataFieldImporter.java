@@ -0,0 +1,215 @@
+package de.neemann.digital.core.memory;
+
+import de.neemann.digital.core.element.ElementAttributes;
+import de.neemann.digital.core.element.Keys;
+import de.neemann.digital.lang.Lang;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+/**
+ * Reads the data of a memory from a file.
+ * Supported are the "v2.0 raw" text format, the Intel HEX format and plain binary images.
+ * Files with the extension "bin" are read as binary images. All other files are text files
+ * whose format is detected by their first character, a leading byte order mark and leading
+ * white space are skipped. Unknown text files are rejected.
+ * By default binary images are copied to the heap. If mapping is enabled by {@link #setMapped(boolean)}
+ * or by the {@link Keys#MAP_DATA_FILE} attribute, the image is mapped to memory instead, so even large
+ * images are loaded immediately. A mapped file must not be modified while it is in use: Some platforms
+ * lock mapped files, on others reading a truncated mapping fails.
+ * The words in binary and Intel HEX files consist of as many bytes as needed
+ * to hold the data bits, the byte order is configurable.
+ */
+public final class DataFieldImporter {
+    private static final char BOM = '\uFEFF';
+
+    private final int bytesPerWord;
+    private final boolean bigEndian;
+    private boolean mapped;
+
+    /**
+     * Creates a new instance
+     *
+     * @param attr the attributes of the memory, the data bits, the byte order and the mapping flag are used
+     */
+    public DataFieldImporter(ElementAttributes attr) {
+        this(attr.get(Keys.BITS), attr.get(Keys.BIG_ENDIAN));
+        mapped = attr.get(Keys.MAP_DATA_FILE);
+    }
+
+    /**
+     * Creates a new instance
+     *
+     * @param dataBits  the number of data bits of a word
+     * @param bigEndian if true the most significant byte of a word comes first
+     */
+    public DataFieldImporter(int dataBits, boolean bigEndian) {
+        this.bytesPerWord = Math.max(1, (dataBits + 7) / 8);
+        this.bigEndian = bigEndian;
+    }
+
+    /**
+     * Sets whether binary images are mapped to memory.
+     * If not mapped, the image is copied to the heap.
+     *
+     * @param mapped true if binary images are to be mapped
+     * @return this for chained calls
+     */
+    public DataFieldImporter setMapped(boolean mapped) {
+        this.mapped = mapped;
+        return this;
+    }
+
+    /**
+     * @return true if binary images are mapped to memory
+     */
+    public boolean isMapped() {
+        return mapped;
+    }
+
+    /**
+     * Reads the given file
+     *
+     * @param file the file to read
+     * @return the data
+     * @throws IOException IOException
+     */
+    public DataField read(File file) throws IOException {
+        if (file.getName().toLowerCase(Locale.ROOT).endsWith(".bin"))
+            return readBinary(file);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+        try {
+            switch (skipLeadingWhiteSpace(reader)) {
+                case 'v':
+                    return new DataField(reader);
+                case ':':
+                    return readIntelHex(reader);
+                default:
+                    throw new IOException(Lang.get("err_invalidFileFormat"));
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Skips a byte order mark and white space
+     *
+     * @return the next character which is not consumed, -1 at the end of the stream
+     */
+    private static int skipLeadingWhiteSpace(BufferedReader reader) throws IOException {
+        while (true) {
+            reader.mark(1);
+            int c = reader.read();
+            if (c != BOM && (c < 0 || !Character.isWhitespace(c))) {
+                reader.reset();
+                return c;
+            }
+        }
+    }
+
+    /**
+     * Reads the given binary file.
+     * If mapping is enabled, the file is mapped to memory and the returned data field
+     * reads its words directly from the file.
+     *
+     * @param file the file
+     * @return the data
+     * @throws IOException IOException
+     */
+    public DataField readBinary(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IOException(Lang.get("err_invalidFileFormat"));
+            ByteBuffer buffer;
+            if (mapped)
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            else
+                buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+            return new DataField(new WordImage(buffer, bytesPerWord, bigEndian));
+        }
+    }
+
+    /**
+     * Reads data in the Intel HEX format.
+     * The addresses in the file are byte addresses.
+     *
+     * @param reader the reader
+     * @return the data
+     * @throws IOException IOException
+     */
+    public DataField readIntelHex(Reader reader) throws IOException {
+        DataField data = new DataField(Integer.MAX_VALUE);
+        int maxWord = -1;
+        long base = 0;
+        try (BufferedReader br = new BufferedReader(reader)) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty())
+                    continue;
+
+                int[] record = decodeRecord(line);
+                int len = record[0];
+                int addr = (record[1] << 8) | record[2];
+                switch (record[3]) {
+                    case 0: // data
+                        for (int i = 0; i < len; i++) {
+                            int word = setByte(data, base + addr + i, record[4 + i]);
+                            if (word > maxWord)
+                                maxWord = word;
+                        }
+                        break;
+                    case 1: // end of file
+                        return new DataField(data, maxWord + 1);
+                    case 2: // extended segment address
+                        base = ((record[4] << 8) | record[5]) << 4;
+                        break;
+                    case 4: // extended linear address
+                        base = (long) ((record[4] << 8) | record[5]) << 16;
+                        break;
+                    default: // start addresses are ignored
+                }
+            }
+        }
+        return new DataField(data, maxWord + 1);
+    }
+
+    private static int[] decodeRecord(String line) throws IOException {
+        if (!line.startsWith(":") || (line.length() & 1) == 0 || line.length() < 11)
+            throw new IOException(Lang.get("err_invalidFileFormat") + ": " + line);
+
+        int[] record = new int[(line.length() - 1) / 2];
+        int sum = 0;
+        for (int i = 0; i < record.length; i++) {
+            int hi = Character.digit(line.charAt(i * 2 + 1), 16);
+            int lo = Character.digit(line.charAt(i * 2 + 2), 16);
+            if (hi < 0 || lo < 0)
+                throw new IOException(Lang.get("err_invalidFileFormat") + ": " + line);
+            record[i] = (hi << 4) | lo;
+            sum += record[i];
+        }
+        if (record[0] + 5 != record.length || (sum & 0xff) != 0)
+            throw new IOException(Lang.get("err_invalidFileFormat") + ": " + line);
+        return record;
+    }
+
+    private int setByte(DataField data, long byteAddr, int value) throws IOException {
+        long word = byteAddr / bytesPerWord;
+        if (word >= Integer.MAX_VALUE)
+            throw new IOException(Lang.get("err_invalidFileFormat"));
+        int w = (int) word;
+        int b = (int) (byteAddr % bytesPerWord);
+        int shift = bigEndian ? (bytesPerWord - 1 - b) * 8 : b * 8;
+        long mask = 0xffL << shift;
+        data.setData(w, (data.getDataWord(w) & ~mask) | ((long) value << shift));
+        return w;
+    }
+}
@@ -0,0 +1,227 @@
+package de.neemann.digital.core.memory;
+
+import de.neemann.digital.core.element.ElementAttributes;
+import de.neemann.digital.core.element.Keys;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Records the accesses to a memory.
+ * The accesses are stored in a ring buffer of fixed size which consists of primitive arrays,
+ * so recording an access does not allocate any memory. If the buffer is full, the oldest
+ * entries are overwritten.
+ * The trace is written by the simulation thread, so all other threads have to access it
+ * via the models sync interface.
+ * <p>
+ * The step stored with every access is the micro step counter of the model as returned by
+ * {@link de.neemann.digital.core.Model#getStepCounter()}, not a count of clock cycles.
+ * The memories record a read only if a read is enabled or its address changes, so an
+ * output which is evaluated several times without a change of its inputs is recorded once.
+ */
+public final class MemoryTrace {
+    private final int[] steps;
+    private final int[] addresses;
+    private final long[] data;
+    private final boolean[] writes;
+    private int pos;
+    private long total;
+
+    /**
+     * Creates a new instance
+     *
+     * @param capacity the number of accesses stored
+     */
+    public MemoryTrace(int capacity) {
+        steps = new int[capacity];
+        addresses = new int[capacity];
+        data = new long[capacity];
+        writes = new boolean[capacity];
+    }
+
+    private MemoryTrace(MemoryTrace other) {
+        steps = other.steps.clone();
+        addresses = other.addresses.clone();
+        data = other.data.clone();
+        writes = other.writes.clone();
+        pos = other.pos;
+        total = other.total;
+    }
+
+    /**
+     * Creates the trace configured in the given attributes
+     *
+     * @param attr the attributes of the memory
+     * @return the trace or null if no trace is configured
+     */
+    public static MemoryTrace create(ElementAttributes attr) {
+        int size = attr.get(Keys.TRACE_SIZE);
+        if (size <= 0)
+            return null;
+        return new MemoryTrace(size);
+    }
+
+    /**
+     * Records a read access
+     *
+     * @param step  the micro step counter of the model
+     * @param addr  the address
+     * @param value the value read
+     */
+    public void read(int step, int addr, long value) {
+        add(step, addr, value, false);
+    }
+
+    /**
+     * Records a write access
+     *
+     * @param step  the micro step counter of the model
+     * @param addr  the address
+     * @param value the value written
+     */
+    public void write(int step, int addr, long value) {
+        add(step, addr, value, true);
+    }
+
+    private void add(int step, int addr, long value, boolean write) {
+        steps[pos] = step;
+        addresses[pos] = addr;
+        data[pos] = value;
+        writes[pos] = write;
+        pos++;
+        if (pos == steps.length)
+            pos = 0;
+        total++;
+    }
+
+    /**
+     * @return the number of accesses stored in the buffer
+     */
+    public int size() {
+        return (int) Math.min(total, steps.length);
+    }
+
+    /**
+     * @return the number of accesses recorded since the last clear, including the overwritten ones
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Creates a copy of this trace.
+     * Used to process the trace while the simulation is running.
+     *
+     * @return the copy
+     */
+    public MemoryTrace getCopy() {
+        return new MemoryTrace(this);
+    }
+
+    /**
+     * Removes all entries
+     */
+    public void clear() {
+        pos = 0;
+        total = 0;
+    }
+
+    private int index(int i) {
+        int start = total > steps.length ? pos : 0;
+        int n = start + i;
+        if (n >= steps.length)
+            n -= steps.length;
+        return n;
+    }
+
+    /**
+     * Writes the stored accesses, the oldest first.
+     * Every line contains the micro step counter, the address, the value and the access type, separated by a comma.
+     * The address and the value are written as hex numbers.
+     *
+     * @param w the writer to write to
+     * @throws IOException IOException
+     */
+    public void writeTo(Writer w) throws IOException {
+        w.write("step,addr,data,access\n");
+        StringBuilder sb = new StringBuilder();
+        int size = size();
+        for (int i = 0; i < size; i++) {
+            int n = index(i);
+            sb.setLength(0);
+            sb.append(steps[n]).append(",")
+                    .append(Integer.toHexString(addresses[n])).append(",")
+                    .append(Long.toHexString(data[n])).append(",")
+                    .append(writes[n] ? "W" : "R").append("\n");
+            w.write(sb.toString());
+        }
+    }
+
+    /**
+     * Returns the most frequently accessed addresses in the stored accesses.
+     *
+     * @param max the maximum number of addresses to return
+     * @return the addresses, the most frequently accessed address first
+     */
+    public List<HotAddress> getHotAddresses(int max) {
+        HashMap<Integer, HotAddress> map = new HashMap<>();
+        int size = size();
+        for (int i = 0; i < size; i++) {
+            int n = index(i);
+            HotAddress h = map.computeIfAbsent(addresses[n], HotAddress::new);
+            if (writes[n])
+                h.writes++;
+            else
+                h.reads++;
+        }
+        ArrayList<HotAddress> list = new ArrayList<>(map.values());
+        list.sort((a, b) -> Integer.compare(b.getAccesses(), a.getAccesses()));
+        if (list.size() > max)
+            return new ArrayList<>(list.subList(0, max));
+        return list;
+    }
+
+    /**
+     * The access count of a single address
+     */
+    public static final class HotAddress {
+        private final int addr;
+        private int reads;
+        private int writes;
+
+        private HotAddress(int addr) {
+            this.addr = addr;
+        }
+
+        /**
+         * @return the address
+         */
+        public int getAddr() {
+            return addr;
+        }
+
+        /**
+         * @return the number of reads
+         */
+        public int getReads() {
+            return reads;
+        }
+
+        /**
+         * @return the number of writes
+         */
+        public int getWrites() {
+            return writes;
+        }
+
+        /**
+         * @return the number of accesses
+         */
+        public int getAccesses() {
+            return reads + writes;
+        }
+    }
+}
@@ -80,6 +80,11 @@ public class RAMDualAccess extends Node implements Element, RAMInterface {
         return new ObservableValues(out1, out2);
     }
 
+    @Override
+    public boolean hasSideEffectsInReadInputs() {
+        return true;
+    }
+
     @Override
     public void readInputs() throws NodeException {
         long data = 0;
@@ -103,6 +108,18 @@ public class RAMDualAccess extends Node implements Element, RAMInterface {
         lastClk = clk;
     }
 
+    @Override
+    public void saveState(ModelSnapshot.Writer writer) {
+        writer.write(lastClk);
+        memory.saveState(writer);
+    }
+
+    @Override
+    public void restoreState(ModelSnapshot.Reader reader) {
+        lastClk = reader.readBool();
+        memory.restoreState(reader);
+    }
+
     @Override
     public void writeOutputs() throws NodeException {
         if (ld) {
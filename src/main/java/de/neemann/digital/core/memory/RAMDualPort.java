@@ -27,7 +27,8 @@ public class RAMDualPort extends Node implements Element, RAMInterface {
             .addAttribute(Keys.ROTATE)
             .addAttribute(Keys.BITS)
             .addAttribute(Keys.ADDR_BITS)
-            .addAttribute(Keys.LABEL);
+            .addAttribute(Keys.LABEL)
+            .addAttribute(Keys.TRACE_SIZE);
 
     private final DataField memory;
     private final ObservableValue output;
@@ -35,6 +36,7 @@ public class RAMDualPort extends Node implements Element, RAMInterface {
     private final int bits;
     private final String label;
     private final int size;
+    private final MemoryTrace trace;
     private ObservableValue addrIn;
     private ObservableValue dataIn;
     private ObservableValue strIn;
@@ -43,6 +45,8 @@ public class RAMDualPort extends Node implements Element, RAMInterface {
     private int addr;
     private boolean lastClk = false;
     private boolean ld;
+    // the address of the last read recorded in the trace, -1 if no read is enabled
+    private int tracedAddr = -1;
 
     /**
      * Creates a new instance
@@ -57,6 +61,7 @@ public class RAMDualPort extends Node implements Element, RAMInterface {
         size = 1 << addrBits;
         memory = new DataField(size);
         label = attr.getCleanLabel();
+        trace = MemoryTrace.create(attr);
     }
 
     /**
@@ -132,6 +137,11 @@ public class RAMDualPort extends Node implements Element, RAMInterface {
         return output.asList();
     }
 
+    @Override
+    public boolean hasSideEffectsInReadInputs() {
+        return true;
+    }
+
     @Override
     public void readInputs() throws NodeException {
         long data = 0;
@@ -147,18 +157,39 @@ public class RAMDualPort extends Node implements Element, RAMInterface {
         if (ld || str)
             addr = (int) addrIn.getValue();
 
-        if (str)
+        if (str) {
             memory.setData(addr, data);
+            if (trace != null)
+                trace.write(getModel().getStepCounter(), addr, data);
+        }
 
         lastClk = clk;
     }
 
+    @Override
+    public void saveState(ModelSnapshot.Writer writer) {
+        writer.write(lastClk);
+        memory.saveState(writer);
+    }
+
+    @Override
+    public void restoreState(ModelSnapshot.Reader reader) {
+        lastClk = reader.readBool();
+        memory.restoreState(reader);
+    }
+
     @Override
     public void writeOutputs() throws NodeException {
         if (ld) {
-            output.set(memory.getDataWord(addr), false);
+            long data = memory.getDataWord(addr);
+            output.set(data, false);
+            if (trace != null && addr != tracedAddr) {
+                trace.read(getModel().getStepCounter(), addr, data);
+                tracedAddr = addr;
+            }
         } else {
             output.set(0, true);
+            tracedAddr = -1;
         }
     }
 
@@ -186,4 +217,9 @@ public class RAMDualPort extends Node implements Element, RAMInterface {
     public int getAddrBits() {
         return addrBits;
     }
+
+    @Override
+    public MemoryTrace getTrace() {
+        return trace;
+    }
 }
@@ -30,4 +30,11 @@ public interface RAMInterface {
      * @return the addr bits
      */
     int getAddrBits();
+
+    /**
+     * @return the trace of the accesses to this memory or null if no trace is recorded
+     */
+    default MemoryTrace getTrace() {
+        return null;
+    }
 }
@@ -28,7 +28,8 @@ public class RAMSinglePort extends RAMDualPort {
             .addAttribute(Keys.ROTATE)
             .addAttribute(Keys.BITS)
             .addAttribute(Keys.ADDR_BITS)
-            .addAttribute(Keys.LABEL);
+            .addAttribute(Keys.LABEL)
+            .addAttribute(Keys.TRACE_SIZE);
 
     /**
      * Creates a new instance
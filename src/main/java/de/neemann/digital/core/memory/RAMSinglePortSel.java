@@ -1,5 +1,6 @@
 package de.neemann.digital.core.memory;
 
+import de.neemann.digital.core.ModelSnapshot;
 import de.neemann.digital.core.Node;
 import de.neemann.digital.core.NodeException;
 import de.neemann.digital.core.ObservableValue;
@@ -86,6 +87,11 @@ public class RAMSinglePortSel extends Node implements Element, RAMInterface {
         dataIn = inputs.get(4).checkBits(bits, this);
     }
 
+    @Override
+    public boolean hasSideEffectsInReadInputs() {
+        return true;
+    }
+
     @Override
     public void readInputs() throws NodeException {
         final boolean weIn = this.weIn.getBool();
@@ -101,6 +107,18 @@ public class RAMSinglePortSel extends Node implements Element, RAMInterface {
         lastweIn=weIn;
     }
 
+    @Override
+    public void saveState(ModelSnapshot.Writer writer) {
+        writer.write(lastweIn);
+        memory.saveState(writer);
+    }
+
+    @Override
+    public void restoreState(ModelSnapshot.Reader reader) {
+        lastweIn = reader.readBool();
+        memory.restoreState(reader);
+    }
+
     @Override
     public void writeOutputs() throws NodeException {
         if (cs && oe) {
@@ -5,6 +5,7 @@ import de.neemann.digital.core.element.Element;
 import de.neemann.digital.core.element.ElementAttributes;
 import de.neemann.digital.core.element.ElementTypeDescription;
 import de.neemann.digital.core.element.Keys;
+import de.neemann.digital.lang.Lang;
 
 import java.io.File;
 import java.io.IOException;
@@ -34,7 +35,9 @@ public class ROM extends Node implements Element {
             .addAttribute(Keys.LABEL)
             .addAttribute(Keys.DATA)
             .addAttribute(Keys.IS_PROGRAM_MEMORY)
-            .addAttribute(Keys.AUTO_RELOAD_ROM);
+            .addAttribute(Keys.AUTO_RELOAD_ROM)
+            .addAttribute(Keys.BIG_ENDIAN)
+            .addAttribute(Keys.MAP_DATA_FILE);
 
     private DataField data;
     private final ObservableValue output;
@@ -42,6 +45,7 @@ public class ROM extends Node implements Element {
     private final File hexFile;
     private final boolean autoLoad;
     private final boolean isProgramMemory;
+    private final DataFieldImporter importer;
     private ObservableValue addrIn;
     private ObservableValue selIn;
     private int addr;
@@ -60,6 +64,7 @@ public class ROM extends Node implements Element {
         addrBits = attr.get(Keys.ADDR_BITS);
         autoLoad = attr.get(Keys.AUTO_RELOAD_ROM);
         isProgramMemory = attr.get(Keys.IS_PROGRAM_MEMORY);
+        importer = new DataFieldImporter(attr);
         if (autoLoad) {
             hexFile = attr.getFile(LAST_DATA_FILE_KEY);
         } else
@@ -97,9 +102,11 @@ public class ROM extends Node implements Element {
 
     @Override
     public void init(Model model) throws NodeException {
+        if (autoLoad && importer.isMapped())
+            throw new NodeException(Lang.get("err_mappedDataFileAutoReload"), this, -1, null);
         if (autoLoad) {
             try {
-                data = new DataField(hexFile);
+                data = importer.read(hexFile);
             } catch (IOException e) {
                 throw new NodeException(e.getMessage(), this, -1, null);
             }
@@ -127,6 +134,13 @@ public class ROM extends Node implements Element {
         return isProgramMemory;
     }
 
+    /**
+     * @return the importer used to read the data files of this ROM
+     */
+    public DataFieldImporter getImporter() {
+        return importer;
+    }
+
     /**
      * Sets the data for this ROM element
      *
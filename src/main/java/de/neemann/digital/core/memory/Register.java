@@ -58,6 +58,17 @@ public class Register extends Node implements Element {
         lastClock = clock;
     }
 
+    @Override
+    public void saveState(ModelSnapshot.Writer writer) {
+        writer.write(lastClock).write(value);
+    }
+
+    @Override
+    public void restoreState(ModelSnapshot.Reader reader) {
+        lastClock = reader.readBool();
+        value = reader.readLong();
+    }
+
     @Override
     public void writeOutputs() throws NodeException {
         q.setValue(value);
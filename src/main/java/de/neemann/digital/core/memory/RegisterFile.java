@@ -1,5 +1,6 @@
 package de.neemann.digital.core.memory;
 
+import de.neemann.digital.core.ModelSnapshot;
 import de.neemann.digital.core.Node;
 import de.neemann.digital.core.NodeException;
 import de.neemann.digital.core.ObservableValue;
@@ -31,7 +32,8 @@ public class RegisterFile extends Node implements Element, RAMInterface {
             .addAttribute(Keys.ROTATE)
             .addAttribute(Keys.BITS)
             .addAttribute(Keys.ADDR_BITS)
-            .addAttribute(Keys.LABEL);
+            .addAttribute(Keys.LABEL)
+            .addAttribute(Keys.TRACE_SIZE);
 
     private final DataField memory;
     private final ObservableValue out1;
@@ -40,6 +42,7 @@ public class RegisterFile extends Node implements Element, RAMInterface {
     private final int bits;
     private final String label;
     private final int size;
+    private final MemoryTrace trace;
     private ObservableValue reg1In;
     private ObservableValue reg2In;
     private ObservableValue regWIn;
@@ -48,6 +51,9 @@ public class RegisterFile extends Node implements Element, RAMInterface {
     private ObservableValue clk1In;
     private int reg1;
     private int reg2;
+    // the registers of the last reads recorded in the trace
+    private int tracedReg1 = -1;
+    private int tracedReg2 = -1;
     private boolean lastClk = false;
 
     /**
@@ -63,6 +69,7 @@ public class RegisterFile extends Node implements Element, RAMInterface {
         addrBits = attr.get(Keys.ADDR_BITS);
         size = 1 << addrBits;
         memory = new DataField(size);
+        trace = MemoryTrace.create(attr);
         label = attr.getCleanLabel();
     }
 
@@ -81,6 +88,11 @@ public class RegisterFile extends Node implements Element, RAMInterface {
         return new ObservableValues(out1, out2);
     }
 
+    @Override
+    public boolean hasSideEffectsInReadInputs() {
+        return true;
+    }
+
     @Override
     public void readInputs() throws NodeException {
         boolean clk = clk1In.getBool();
@@ -89,6 +101,8 @@ public class RegisterFile extends Node implements Element, RAMInterface {
             long data = data1In.getValue();
             int regW = (int) regWIn.getValue();
             memory.setData(regW, data);
+            if (trace != null)
+                trace.write(getModel().getStepCounter(), regW, data);
         }
 
         reg1 = (int) reg1In.getValue();
@@ -97,10 +111,35 @@ public class RegisterFile extends Node implements Element, RAMInterface {
         lastClk = clk;
     }
 
+    @Override
+    public void saveState(ModelSnapshot.Writer writer) {
+        writer.write(lastClk);
+        memory.saveState(writer);
+    }
+
+    @Override
+    public void restoreState(ModelSnapshot.Reader reader) {
+        lastClk = reader.readBool();
+        memory.restoreState(reader);
+    }
+
     @Override
     public void writeOutputs() throws NodeException {
-        out1.setValue(memory.getDataWord(reg1));
-        out2.setValue(memory.getDataWord(reg2));
+        long d1 = memory.getDataWord(reg1);
+        long d2 = memory.getDataWord(reg2);
+        out1.setValue(d1);
+        out2.setValue(d2);
+        if (trace != null) {
+            int step = getModel().getStepCounter();
+            if (reg1 != tracedReg1) {
+                trace.read(step, reg1, d1);
+                tracedReg1 = reg1;
+            }
+            if (reg2 != tracedReg2) {
+                trace.read(step, reg2, d2);
+                tracedReg2 = reg2;
+            }
+        }
     }
 
     @Override
@@ -127,4 +166,9 @@ public class RegisterFile extends Node implements Element, RAMInterface {
     public int getAddrBits() {
         return addrBits;
     }
+
+    @Override
+    public MemoryTrace getTrace() {
+        return trace;
+    }
 }
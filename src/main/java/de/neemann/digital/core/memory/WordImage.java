@@ -0,0 +1,70 @@
+package de.neemann.digital.core.memory;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A read only memory image which reads its words directly from a byte buffer.
+ * Usually the buffer is a {@link java.nio.MappedByteBuffer}, so the image file is not copied.
+ */
+final class WordImage {
+    private final ByteBuffer buffer;
+    private final int bytesPerWord;
+    private final boolean bigEndian;
+    private final int words;
+
+    /**
+     * Creates a new instance
+     *
+     * @param buffer       the buffer containing the data
+     * @param bytesPerWord the number of bytes in a word
+     * @param bigEndian    if true the most significant byte comes first
+     */
+    WordImage(ByteBuffer buffer, int bytesPerWord, boolean bigEndian) {
+        this.buffer = buffer;
+        this.bytesPerWord = bytesPerWord;
+        this.bigEndian = bigEndian;
+        words = (buffer.limit() + bytesPerWord - 1) / bytesPerWord;
+    }
+
+    /**
+     * @return the number of words in this image
+     */
+    int size() {
+        return words;
+    }
+
+    /**
+     * Returns the word at the given address
+     *
+     * @param addr the address
+     * @return the word, zero if the address is outside the image
+     */
+    long get(int addr) {
+        if (addr < 0 || addr >= words)
+            return 0;
+        int pos = addr * bytesPerWord;
+        int n = Math.min(bytesPerWord, buffer.limit() - pos);
+        long value = 0;
+        for (int i = 0; i < n; i++) {
+            long b = buffer.get(pos + i) & 0xff;
+            if (bigEndian)
+                value |= b << ((bytesPerWord - 1 - i) * 8);
+            else
+                value |= b << (i * 8);
+        }
+        return value;
+    }
+
+    /**
+     * Copies words of this image to the given array
+     *
+     * @param addr   the first address to copy
+     * @param dest   the destination array
+     * @param offset the offset in the destination array
+     * @param len    the number of words to copy
+     */
+    void copy(int addr, long[] dest, int offset, int len) {
+        for (int i = 0; i < len; i++)
+            dest[offset + i] = get(addr + i);
+    }
+}
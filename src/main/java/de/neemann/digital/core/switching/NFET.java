@@ -61,6 +61,11 @@ public class NFET extends Node implements Element {
         return s.getOutputs();
     }
 
+    @Override
+    public boolean isLevelizable() {
+        return false;
+    }
+
     @Override
     public void readInputs() throws NodeException {
         closed = getClosed(input);
@@ -57,6 +57,11 @@ public class Relay extends Node implements Element {
         return s.getOutputs();
     }
 
+    @Override
+    public boolean isLevelizable() {
+        return false;
+    }
+
     @Override
     public void setInputs(ObservableValues inputs) throws NodeException {
         input1 = inputs.get(0).checkBits(1, this).addObserverToValue(this);
@@ -51,6 +51,11 @@ public class TransGate extends Node implements Element {
         return aSwitch.getOutputs();
     }
 
+    @Override
+    public boolean isLevelizable() {
+        return false;
+    }
+
     @Override
     public void readInputs() throws NodeException {
         if (s.isHighZ() || ns.isHighZ())
@@ -24,6 +24,7 @@ public class Clock implements Element {
 
     private final ObservableValue output;
     private final int frequency;
+    private final int configuredFrequency;
     private final String label;
     private final String clockPin;
 
@@ -34,11 +35,12 @@ public class Clock implements Element {
      */
     public Clock(ElementAttributes attributes) {
         output = new ObservableValue("C", 1).setPinDescription(DESCRIPTION);
-        if (attributes.get(Keys.RUN_AT_REAL_TIME)) {
-            int f = attributes.get(Keys.FREQUENCY);
-            if (f < 1) f = 1;
+        int f = attributes.get(Keys.FREQUENCY);
+        if (f < 1) f = 1;
+        configuredFrequency = f;
+        if (attributes.get(Keys.RUN_AT_REAL_TIME))
             frequency = f;
-        } else
+        else
             frequency = 0;
         label = attributes.getCleanLabel();
         clockPin = attributes.get(Keys.PINNUMBER);
@@ -74,6 +76,17 @@ public class Clock implements Element {
         return frequency;
     }
 
+    /**
+     * Returns the configured frequency.
+     * In contrast to {@link #getFrequency()} the frequency is also returned if the
+     * clock does not run in real time. Used to maintain the frequency ratio of several clocks.
+     *
+     * @return the configured frequency
+     */
+    public int getConfiguredFrequency() {
+        return configuredFrequency;
+    }
+
     /**
      * @return the clocks label
      */
@@ -1,5 +1,6 @@
 package de.neemann.digital.core.wiring;
 
+import de.neemann.digital.core.ModelSnapshot;
 import de.neemann.digital.core.Node;
 import de.neemann.digital.core.NodeException;
 import de.neemann.digital.core.ObservableValue;
@@ -60,6 +61,18 @@ public class Delay extends Node implements Element {
             pos = 0;
     }
 
+    @Override
+    public void saveState(ModelSnapshot.Writer writer) {
+        writer.write(value).write(pos);
+    }
+
+    @Override
+    public void restoreState(ModelSnapshot.Reader reader) {
+        long[] v = reader.readArray();
+        System.arraycopy(v, 0, value, 0, value.length);
+        pos = reader.readInt();
+    }
+
     @Override
     public void writeOutputs() throws NodeException {
         output.setValue(value[pos]);
@@ -86,4 +99,10 @@ public class Delay extends Node implements Element {
         return output.asList();
     }
 
+    @Override
+    public boolean isLevelizable() {
+        // the delay reschedules itself, so it needs the micro step loop
+        return false;
+    }
+
 }
@@ -152,12 +152,7 @@ public class Splitter implements Element {
                         }
                     });
                 else
-                    inValue.addObserverToValue(new NodeWithoutDelay(outValue) {
-                        @Override
-                        public void hasChanged() {
-                            outValue.setValue(inValue.getValue() >> bitPos);
-                        }
-                    });
+                    inValue.addObserverToValue(new BitCopy(inValue, bitPos, outValue, 0, out.getBits()));
                 break; // done!! out is completely filled!
             }
 
@@ -169,17 +164,9 @@ public class Splitter implements Element {
             // complete in value needs to be copied to a part of the output
             if (out.getPos() <= in.getPos() && in.getPos() + in.getBits() <= out.getPos() + out.getBits()) {
                 final int bitPos = in.getPos() - out.getPos();
-                final long mask = ~(((1L << in.bits) - 1) << bitPos);
                 final ObservableValue inValue = inputs.get(in.number);
                 final ObservableValue outValue = outputs.get(out.number);
-                inputs.get(in.number).addObserverToValue(new NodeWithoutDelay(outValue) {
-                    @Override
-                    public void hasChanged() {
-                        long in1 = inValue.getValue();
-                        long out1 = outValue.getValue();
-                        outValue.setValue((out1 & mask) | (in1 << bitPos));
-                    }
-                });
+                inValue.addObserverToValue(new BitCopy(inValue, 0, outValue, bitPos, in.getBits()));
                 continue; // done with this input, its completely copied to the output!
             }
 
@@ -188,36 +175,19 @@ public class Splitter implements Element {
             // upper part of input needs to be copied to the lower part of the output
             if (in.getPos() < out.getPos()) {
                 final int bitsToCopy = in.getPos() + in.getBits() - out.getPos();
-                final long mask = ~((1L << bitsToCopy) - 1);
                 final int shift = out.getPos() - in.getPos();
                 final ObservableValue inValue = inputs.get(in.number);
                 final ObservableValue outValue = outputs.get(out.number);
-                inputs.get(in.number).addObserverToValue(new NodeWithoutDelay(outValue) {
-                    @Override
-                    public void hasChanged() {
-                        long in12 = inValue.getValue();
-                        long out12 = outValue.getValue();
-                        outValue.setValue((out12 & mask) | (in12 >> shift));
-                    }
-                });
+                inValue.addObserverToValue(new BitCopy(inValue, shift, outValue, 0, bitsToCopy));
                 continue;
             }
 
             // lower part of input needs to be copied to the upper part of the output
             final int bitsToCopy = out.getPos() + out.getBits() - in.getPos();
             final int shift = in.getPos() - out.getPos();
-            final long mask = ~(((1L << bitsToCopy) - 1) << shift);
             final ObservableValue inValue = inputs.get(in.number);
             final ObservableValue outValue = outputs.get(out.number);
-            inputs.get(in.number).addObserverToValue(new NodeWithoutDelay(outValue) {
-                @Override
-                public void hasChanged() {
-                    long in13 = inValue.getValue();
-                    long out13 = outValue.getValue();
-                    outValue.setValue((out13 & mask) | (in13 << shift));
-                }
-            });
-
+            inValue.addObserverToValue(new BitCopy(inValue, 0, outValue, shift, bitsToCopy));
         }
     }
 
@@ -237,6 +207,81 @@ public class Splitter implements Element {
             v.fireHasChanged();
     }
 
+    /**
+     * Copies a range of bits from an input value to a range of bits of an output value.
+     * The remaining bits of the output value are not modified.
+     */
+    public static final class BitCopy extends NodeWithoutDelay {
+        private final ObservableValue inValue;
+        private final int inPos;
+        private final ObservableValue outValue;
+        private final int outPos;
+        private final int bits;
+        private final long mask;
+        private final long clearMask;
+
+        /**
+         * Creates a new instance
+         *
+         * @param inValue  the input value
+         * @param inPos    the position of the first bit to copy in the input value
+         * @param outValue the output value
+         * @param outPos   the position of the first bit to write in the output value
+         * @param bits     the number of bits to copy
+         */
+        public BitCopy(ObservableValue inValue, int inPos, ObservableValue outValue, int outPos, int bits) {
+            super(outValue);
+            this.inValue = inValue;
+            this.inPos = inPos;
+            this.outValue = outValue;
+            this.outPos = outPos;
+            this.bits = bits;
+            mask = Bits.mask(bits);
+            clearMask = ~(mask << outPos);
+        }
+
+        @Override
+        public void hasChanged() {
+            long in = (inValue.getValue() >>> inPos) & mask;
+            outValue.setValue((outValue.getValue() & clearMask) | (in << outPos));
+        }
+
+        /**
+         * @return the input value
+         */
+        public ObservableValue getInValue() {
+            return inValue;
+        }
+
+        /**
+         * @return the position of the first bit to copy in the input value
+         */
+        public int getInPos() {
+            return inPos;
+        }
+
+        /**
+         * @return the output value
+         */
+        public ObservableValue getOutValue() {
+            return outValue;
+        }
+
+        /**
+         * @return the position of the first bit to write in the output value
+         */
+        public int getOutPos() {
+            return outPos;
+        }
+
+        /**
+         * @return the number of bits to copy
+         */
+        public int getBits() {
+            return bits;
+        }
+    }
+
     /**
      * A splitter port list
      */
@@ -97,13 +97,13 @@ public class DataPlotter implements Drawable {
         int[] lastRy = new int[signals];
         boolean first = true;
         double pos = 0;
-        for (Value[] s : data) {
+        for (int row = 0; row < data.getRows(); row++) {
             int xx = (int) (pos + x);
             g.drawLine(new Vector(xx, BORDER - SEP2), new Vector(xx, (SIZE + SEP) * signals + BORDER - SEP2), Style.DASH);
             y = BORDER;
             for (int i = 0; i < signals; i++) {
                 Style style;
-                switch (s[i].getState()) {
+                switch (data.getState(row, i)) {
                     case FAIL:
                         style = Style.FAILED;
                         break;
@@ -117,7 +117,7 @@ public class DataPlotter implements Drawable {
                 long width = data.getMax(i);
                 if (width == 0) width = 1;
                 int ry;
-                ry = (int) (SIZE - (SIZE * s[i].getValue()) / width);
+                ry = (int) (SIZE - (SIZE * data.getLong(row, i)) / width);
                 g.drawLine(new Vector(xx, y + ry), new Vector((int) (xx + size), y + ry), style);
                 if (!first && ry != lastRy[i])
                     g.drawLine(new Vector(xx, y + lastRy[i]), new Vector(xx, y + ry), style);
@@ -82,7 +82,13 @@ public class Value {
         this.type = Type.NORMAL;
     }
 
-    private Value(long val, Type type) {
+    /**
+     * Creates a new value of the given type
+     *
+     * @param val  the value
+     * @param type the type
+     */
+    protected Value(long val, Type type) {
         this.value = val;
         this.type = type;
     }
@@ -6,15 +6,28 @@ import java.io.*;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /**
  * Stores values in a table
+ * <p>
+ * The values are stored column by column in primitive arrays which are used as a ring buffer.
+ * If a maximum size is set, the oldest row is overwritten if the table is full, so the eviction
+ * of a row is O(1). The {@link Value} instances are only created if a value is requested.
+ * Rows which contain values which can not be represented by a long and a high z flag, like
+ * don't cares or matched test values, are additionally stored as objects.
  * Created by hneemann on 03.07.17.
  */
 public class ValueTable extends Observable implements Iterable<Value[]> {
+    private static final int INITIAL_CAPACITY = 16;
 
     private final String[] names;
-    private final ArrayList<Value[]> values;
+    private long[][] data;
+    private long[][] highZ;
+    private Value[][] objects;
+    private int capacity;
+    private int start;
+    private int size;
     private ArrayList<Integer> tableRowIndex;
     private final long[] max;
     private int maxSize = 0;
@@ -35,7 +48,8 @@ public class ValueTable extends Observable implements Iterable<Value[]> {
      */
     public ValueTable(String... names) {
         this.names = names;
-        values = new ArrayList<>();
+        data = new long[names.length][0];
+        highZ = new long[names.length][0];
         max = new long[names.length];
     }
 
@@ -46,15 +60,17 @@ public class ValueTable extends Observable implements Iterable<Value[]> {
      */
     public ValueTable(ValueTable toCopy) {
         this.names = toCopy.names;
-        values = (ArrayList<Value[]>) toCopy.values.clone();
         max = toCopy.max.clone();
+        data = new long[names.length][0];
+        highZ = new long[names.length][0];
+        resize(toCopy, toCopy.size);
     }
 
     /**
      * @return number of rows
      */
     public int getRows() {
-        return values.size();
+        return size;
     }
 
     /**
@@ -62,7 +78,7 @@ public class ValueTable extends Observable implements Iterable<Value[]> {
      */
     public int getTableRows() {
         if (tableRowIndex == null)
-            return values.size();
+            return size;
         else
             return tableRowIndex.size();
     }
@@ -74,25 +90,123 @@ public class ValueTable extends Observable implements Iterable<Value[]> {
      * @return this for chained calls
      */
     public ValueTable add(Value[] row) {
-        if (maxSize > 0 && values.size() >= maxSize) {
+        int slot = nextSlot();
 
+        boolean isPrimitive = true;
+        for (int i = 0; i < names.length; i++) {
+            Value v = row[i];
+            set(i, slot, v.getValue(), v.isHighZ());
+            if (v.getClass() != Value.class || (v.getType() != Value.Type.NORMAL && v.getType() != Value.Type.HIGHZ))
+                isPrimitive = false;
+        }
+
+        if (!isPrimitive) {
+            if (objects == null)
+                objects = new Value[capacity][];
+            objects[slot] = row;
+        } else if (objects != null)
+            objects[slot] = null;
+
+        return rowAdded();
+    }
+
+    /**
+     * Adds a row of plain values.
+     * The values are copied, so the given arrays can be reused by the caller.
+     *
+     * @param values the values
+     * @param isHighZ the high z state of the values
+     * @return this for chained calls
+     */
+    public ValueTable add(long[] values, boolean[] isHighZ) {
+        int slot = nextSlot();
+        for (int i = 0; i < names.length; i++)
+            set(i, slot, values[i], isHighZ[i]);
+        if (objects != null)
+            objects[slot] = null;
+        return rowAdded();
+    }
+
+    private int nextSlot() {
+        if (maxSize > 0 && size >= maxSize) {
             if (tableRowIndex != null)
                 throw new RuntimeException("delete not allowed if table index is present");
 
-            while (values.size() >= maxSize)
-                values.remove(0);
+            while (size >= maxSize) {
+                start = wrap(start + 1);
+                size--;
+            }
+        } else if (size == capacity) {
+            int newCapacity = Math.max(INITIAL_CAPACITY, capacity * 2);
+            if (maxSize > 0 && newCapacity > maxSize)
+                newCapacity = maxSize;
+            resize(this, newCapacity);
         }
         if (tableRowIndex != null)
-            tableRowIndex.add(values.size());
-        values.add(row);
-
-        checkMax(row);
+            tableRowIndex.add(size);
+        return wrap(start + size);
+    }
 
+    private ValueTable rowAdded() {
+        size++;
         fireHasChanged();
-
         return this;
     }
 
+    private void set(int col, int slot, long value, boolean isHighZ) {
+        data[col][slot] = value;
+        if (isHighZ)
+            highZ[col][slot >> 6] |= 1L << slot;
+        else
+            highZ[col][slot >> 6] &= ~(1L << slot);
+        if (max[col] < value) max[col] = value;
+    }
+
+    /**
+     * Copies the rows of the given table to new arrays of the given capacity.
+     * The oldest row is moved to the beginning of the arrays.
+     */
+    private void resize(ValueTable src, int newCapacity) {
+        int first = Math.min(src.size, src.capacity - src.start);
+        long[][] newData = new long[names.length][];
+        long[][] newHighZ = new long[names.length][];
+        for (int col = 0; col < names.length; col++) {
+            newData[col] = new long[newCapacity];
+            System.arraycopy(src.data[col], src.start, newData[col], 0, first);
+            System.arraycopy(src.data[col], 0, newData[col], first, src.size - first);
+            newHighZ[col] = new long[(newCapacity + 63) >> 6];
+            for (int i = 0; i < src.size; i++)
+                if (src.isHighZ(col, src.wrap(src.start + i)))
+                    newHighZ[col][i >> 6] |= 1L << i;
+        }
+        Value[][] newObjects = null;
+        if (src.objects != null) {
+            newObjects = new Value[newCapacity][];
+            System.arraycopy(src.objects, src.start, newObjects, 0, first);
+            System.arraycopy(src.objects, 0, newObjects, first, src.size - first);
+        }
+        data = newData;
+        highZ = newHighZ;
+        objects = newObjects;
+        size = src.size;
+        start = 0;
+        capacity = newCapacity;
+    }
+
+    private int wrap(int index) {
+        return index >= capacity ? index - capacity : index;
+    }
+
+    private int slot(int rowIndex) {
+        if (rowIndex < 0 || rowIndex >= size)
+            throw new IndexOutOfBoundsException("row " + rowIndex + " not available");
+        return wrap(start + rowIndex);
+    }
+
+    private boolean isHighZ(int col, int slot) {
+        return (highZ[col][slot >> 6] & (1L << slot)) != 0;
+    }
+
     /**
      * omit the last added value in a table representation
      *
@@ -101,19 +215,13 @@ public class ValueTable extends Observable implements Iterable<Value[]> {
     public ValueTable omitInTable() {
         if (tableRowIndex == null) {
             tableRowIndex = new ArrayList<>();
-            for (int i = 0; i < values.size(); i++)
+            for (int i = 0; i < size; i++)
                 tableRowIndex.add(i);
         }
         tableRowIndex.remove(tableRowIndex.size() - 1);
         return this;
     }
 
-
-    private void checkMax(Value[] row) {
-        for (int i = 0; i < row.length; i++)
-            if (max[i] < row[i].getValue()) max[i] = row[i].getValue();
-    }
-
     /**
      * provides the values
      *
@@ -122,7 +230,37 @@ public class ValueTable extends Observable implements Iterable<Value[]> {
      * @return the value stored at the given position
      */
     public Value getValue(int rowIndex, int columnIndex) {
-        return values.get(rowIndex)[columnIndex];
+        int slot = slot(rowIndex);
+        if (objects != null && objects[slot] != null)
+            return objects[slot][columnIndex];
+        if (isHighZ(columnIndex, slot))
+            return new Value(data[columnIndex][slot], Value.Type.HIGHZ);
+        return new Value(data[columnIndex][slot]);
+    }
+
+    /**
+     * Provides the value without creating a {@link Value} instance
+     *
+     * @param rowIndex    the row
+     * @param columnIndex the column
+     * @return the value stored at the given position
+     */
+    public long getLong(int rowIndex, int columnIndex) {
+        return data[columnIndex][slot(rowIndex)];
+    }
+
+    /**
+     * Provides the state of a value without creating a {@link Value} instance
+     *
+     * @param rowIndex    the row
+     * @param columnIndex the column
+     * @return the state of the value stored at the given position
+     */
+    public Value.State getState(int rowIndex, int columnIndex) {
+        int slot = slot(rowIndex);
+        if (objects != null && objects[slot] != null)
+            return objects[slot][columnIndex].getState();
+        return Value.State.NORMAL;
     }
 
     /**
@@ -134,9 +272,22 @@ public class ValueTable extends Observable implements Iterable<Value[]> {
      */
     public Value getTableValue(int rowIndex, int columnIndex) {
         if (tableRowIndex == null)
-            return values.get(rowIndex)[columnIndex];
+            return getValue(rowIndex, columnIndex);
         else
-            return values.get(tableRowIndex.get(rowIndex))[columnIndex];
+            return getValue(tableRowIndex.get(rowIndex), columnIndex);
+    }
+
+    /**
+     * Creates a row view of the given row
+     *
+     * @param rowIndex the row
+     * @return the values of the row
+     */
+    public Value[] getRow(int rowIndex) {
+        Value[] row = new Value[names.length];
+        for (int i = 0; i < row.length; i++)
+            row[i] = getValue(rowIndex, i);
+        return row;
     }
 
     /**
@@ -160,7 +311,21 @@ public class ValueTable extends Observable implements Iterable<Value[]> {
 
     @Override
     public Iterator<Value[]> iterator() {
-        return values.iterator();
+        return new Iterator<Value[]>() {
+            private int row;
+
+            @Override
+            public boolean hasNext() {
+                return row < size;
+            }
+
+            @Override
+            public Value[] next() {
+                if (row >= size)
+                    throw new NoSuchElementException();
+                return getRow(row++);
+            }
+        };
     }
 
     /**
@@ -195,10 +360,10 @@ public class ValueTable extends Observable implements Iterable<Value[]> {
             for (String s : names)
                 w.write(",\"" + s + '"');
             w.write("\n");
-            int row = 0;
-            for (Value[] s : this) {
-                w.write("\"" + (row++) + "\"");
-                for (Value value : s) w.write(",\"" + value + "\"");
+            for (int row = 0; row < size; row++) {
+                w.write("\"" + row + "\"");
+                for (int col = 0; col < names.length; col++)
+                    w.write(",\"" + getValue(row, col) + "\"");
                 w.write("\n");
             }
         } finally {
@@ -210,7 +375,9 @@ public class ValueTable extends Observable implements Iterable<Value[]> {
      * clear all values
      */
     public void clear() {
-        values.clear();
+        start = 0;
+        size = 0;
+        objects = null;
         Arrays.fill(max, 0);
         fireHasChanged();
     }
@@ -233,18 +400,11 @@ public class ValueTable extends Observable implements Iterable<Value[]> {
             sb.append(n).append(" ");
         sb.append("\n");
 
-        if (tableRowIndex == null)
-            for (Value[] row : values) {
-                for (Value v : row)
-                    sb.append(v.toString()).append(" ");
-                sb.append("\n");
-            }
-        else
-            for (int i : tableRowIndex) {
-                for (Value v : values.get(i))
-                    sb.append(v.toString()).append(" ");
-                sb.append("\n");
-            }
+        for (int i = 0; i < getTableRows(); i++) {
+            for (int col = 0; col < names.length; col++)
+                sb.append(getTableValue(i, col).toString()).append(" ");
+            sb.append("\n");
+        }
 
         return sb.toString();
     }
@@ -0,0 +1,323 @@
+package de.neemann.digital.draw.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates straight line JVM code which evaluates a combinatorial circuit.
+ * All nets are stored in a <code>long[]</code>, every net is addressed by its index, the slot.
+ * The truth tables of fused gates are stored in a <code>boolean[][]</code>.
+ * The generated code consists of static methods with the signature <code>void (long[], boolean[][])</code>.
+ * Since there are no branches in the code, the class file is written in the version 49 format
+ * which does not require stack map frames.
+ * If the code of a method becomes too large, a new method is started.
+ * The methods are returned as {@link MethodHandle}s and have to be called in the given order.
+ */
+final class CodeGenerator {
+    private static final AtomicInteger CLASS_COUNTER = new AtomicInteger();
+    private static final MethodType METHOD_TYPE = MethodType.methodType(void.class, long[].class, boolean[][].class);
+    private static final int MAX_CODE_SIZE = 60000;
+    private static final int MAX_STACK = 12;
+
+    private static final int ICONST_0 = 0x03;
+    private static final int LCONST_0 = 0x09;
+    private static final int LCONST_1 = 0x0A;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC = 0x12;
+    private static final int LDC_W = 0x13;
+    private static final int LDC2_W = 0x14;
+    private static final int ALOAD_VALUES = 0x2A; // aload_0
+    private static final int ALOAD_TABLES = 0x2B; // aload_1
+    private static final int LALOAD = 0x2F;
+    private static final int AALOAD = 0x32;
+    private static final int BALOAD = 0x33;
+    private static final int LASTORE = 0x50;
+    private static final int LSHL = 0x79;
+    private static final int LAND = 0x7F;
+    private static final int LOR = 0x81;
+    private static final int LXOR = 0x83;
+    private static final int I2L = 0x85;
+    private static final int L2I = 0x88;
+    private static final int RETURN = 0xB1;
+
+    /**
+     * The supported bitwise operations
+     */
+    enum Operation {
+        /**
+         * the and operation
+         */
+        AND(LAND),
+        /**
+         * the or operation
+         */
+        OR(LOR),
+        /**
+         * the xor operation
+         */
+        XOR(LXOR);
+
+        private final int opcode;
+
+        Operation(int opcode) {
+            this.opcode = opcode;
+        }
+    }
+
+    private final ConstantPool pool = new ConstantPool();
+    private final ArrayList<byte[]> methods = new ArrayList<>();
+    private ByteArrayOutputStream code = new ByteArrayOutputStream();
+
+    /**
+     * Adds a bitwise operation: <code>v[out] = v[in0] op v[in1] op ...</code>
+     * If inverted, the result is inverted.
+     *
+     * @param operation the operation
+     * @param out       the output slot
+     * @param in        the input slots
+     * @param invert    if true the result is inverted
+     */
+    void operation(Operation operation, int out, int[] in, boolean invert) {
+        startInstruction();
+        code.write(ALOAD_VALUES);
+        pushInt(out);
+        pushValue(in[0]);
+        for (int i = 1; i < in.length; i++) {
+            pushValue(in[i]);
+            code.write(operation.opcode);
+        }
+        if (invert)
+            invert();
+        code.write(LASTORE);
+    }
+
+    /**
+     * Adds an inverter: <code>v[out] = ~v[in]</code>
+     *
+     * @param out the output slot
+     * @param in  the input slot
+     */
+    void not(int out, int in) {
+        startInstruction();
+        code.write(ALOAD_VALUES);
+        pushInt(out);
+        pushValue(in);
+        invert();
+        code.write(LASTORE);
+    }
+
+    /**
+     * Adds a table look up: <code>v[out] = t[table][addr]</code>.
+     * The address is build from the lowest bits of the inputs, the first input is the most significant bit.
+     *
+     * @param out   the output slot
+     * @param in    the input slots
+     * @param table the index of the table
+     */
+    void lookUp(int out, int[] in, int table) {
+        startInstruction();
+        code.write(ALOAD_VALUES);
+        pushInt(out);
+        code.write(ALOAD_TABLES);
+        pushInt(table);
+        code.write(AALOAD);
+        code.write(LCONST_0);
+        for (int i : in) {
+            code.write(ICONST_0 + 1);
+            code.write(LSHL);
+            pushValue(i);
+            code.write(LCONST_1);
+            code.write(LAND);
+            code.write(LOR);
+        }
+        code.write(L2I);
+        code.write(BALOAD);
+        code.write(I2L);
+        code.write(LASTORE);
+    }
+
+    private void startInstruction() {
+        if (code.size() > MAX_CODE_SIZE)
+            finishMethod();
+    }
+
+    private void finishMethod() {
+        if (code.size() > 0) {
+            code.write(RETURN);
+            methods.add(code.toByteArray());
+            code = new ByteArrayOutputStream();
+        }
+    }
+
+    private void pushValue(int slot) {
+        code.write(ALOAD_VALUES);
+        pushInt(slot);
+        code.write(LALOAD);
+    }
+
+    private void invert() {
+        code.write(LDC2_W);
+        writeShort(pool.getLong(-1));
+        code.write(LXOR);
+    }
+
+    private void pushInt(int value) {
+        if (value >= -1 && value <= 5)
+            code.write(ICONST_0 + value);
+        else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            code.write(BIPUSH);
+            code.write(value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            code.write(SIPUSH);
+            writeShort(value);
+        } else {
+            int index = pool.getInteger(value);
+            if (index < 256) {
+                code.write(LDC);
+                code.write(index);
+            } else {
+                code.write(LDC_W);
+                writeShort(index);
+            }
+        }
+    }
+
+    private void writeShort(int value) {
+        code.write(value >> 8);
+        code.write(value);
+    }
+
+    /**
+     * Creates the class and returns the generated methods.
+     *
+     * @return the methods to call in the given order
+     */
+    MethodHandle[] create() {
+        finishMethod();
+        String name = "de/neemann/digital/draw/model/generated/Region" + CLASS_COUNTER.incrementAndGet();
+        try {
+            Class<?> clazz = new Loader().define(name.replace('/', '.'), createClassFile(name));
+            MethodHandle[] handles = new MethodHandle[methods.size()];
+            for (int i = 0; i < handles.length; i++)
+                handles[i] = MethodHandles.publicLookup().findStatic(clazz, "eval" + i, METHOD_TYPE);
+            return handles;
+        } catch (IOException | ReflectiveOperationException e) {
+            throw new RuntimeException("could not create the generated code", e);
+        }
+    }
+
+    private byte[] createClassFile(String name) throws IOException {
+        int thisClass = pool.getClass(name);
+        int superClass = pool.getClass("java/lang/Object");
+        int codeName = pool.getUtf8("Code");
+        int descriptor = pool.getUtf8(METHOD_TYPE.toMethodDescriptorString());
+        int[] methodNames = new int[methods.size()];
+        for (int i = 0; i < methodNames.length; i++)
+            methodNames[i] = pool.getUtf8("eval" + i);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0xCAFEBABE);
+        out.writeShort(0);
+        out.writeShort(49);
+        pool.write(out);
+        out.writeShort(0x0031); // public final super
+        out.writeShort(thisClass);
+        out.writeShort(superClass);
+        out.writeShort(0); // interfaces
+        out.writeShort(0); // fields
+        out.writeShort(methods.size());
+        for (int i = 0; i < methodNames.length; i++) {
+            byte[] c = methods.get(i);
+            out.writeShort(0x0009); // public static
+            out.writeShort(methodNames[i]);
+            out.writeShort(descriptor);
+            out.writeShort(1);
+            out.writeShort(codeName);
+            out.writeInt(12 + c.length);
+            out.writeShort(MAX_STACK);
+            out.writeShort(2);
+            out.writeInt(c.length);
+            out.write(c);
+            out.writeShort(0); // exception table
+            out.writeShort(0); // attributes
+        }
+        out.writeShort(0); // attributes
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * The constant pool of the class file
+     */
+    private static final class ConstantPool {
+        private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(data);
+        private final HashMap<Object, Integer> entries = new HashMap<>();
+        private int count = 1;
+
+        private int getUtf8(String str) {
+            return getEntry("U" + str, 1, 1, () -> out.writeUTF(str));
+        }
+
+        private int getClass(String name) {
+            int n = getUtf8(name);
+            return getEntry("C" + name, 7, 1, () -> out.writeShort(n));
+        }
+
+        private int getInteger(int value) {
+            return getEntry(value, 3, 1, () -> out.writeInt(value));
+        }
+
+        private int getLong(long value) {
+            return getEntry(value, 5, 2, () -> out.writeLong(value));
+        }
+
+        private int getEntry(Object key, int tag, int size, EntryWriter writer) {
+            Integer index = entries.get(key);
+            if (index == null) {
+                index = count;
+                try {
+                    out.writeByte(tag);
+                    writer.write();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+                count += size;
+                entries.put(key, index);
+            }
+            return index;
+        }
+
+        private void write(DataOutputStream o) throws IOException {
+            o.writeShort(count);
+            out.flush();
+            data.writeTo(o);
+        }
+    }
+
+    private interface EntryWriter {
+        void write() throws IOException;
+    }
+
+    /**
+     * Every generated class gets its own class loader, so it can be unloaded if the model is not used anymore
+     */
+    private static final class Loader extends ClassLoader {
+        private Loader() {
+            super(CodeGenerator.class.getClassLoader());
+        }
+
+        private Class<?> define(String name, byte[] classFile) {
+            return defineClass(name, classFile, 0, classFile.length);
+        }
+    }
+}
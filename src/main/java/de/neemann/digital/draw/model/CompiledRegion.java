@@ -0,0 +1,75 @@
+package de.neemann.digital.draw.model;
+
+import de.neemann.digital.core.Node;
+import de.neemann.digital.core.NodeException;
+import de.neemann.digital.core.ObservableValue;
+import de.neemann.digital.core.ObservableValues;
+
+import java.lang.invoke.MethodHandle;
+
+/**
+ * A node which replaces a connected region of combinatorial gates.
+ * The region is evaluated by generated code created by the {@link CodeGenerator}.
+ * The values of all nets of the region are stored in a long array. Only the nets which are
+ * read outside of the region are written back to their {@link ObservableValue}s.
+ */
+final class CompiledRegion extends Node {
+    private final ObservableValue[] inputs;
+    private final int[] inputSlots;
+    private final ObservableValue[] outputs;
+    private final int[] outputSlots;
+    private final long[] values;
+    private final boolean[][] tables;
+    private final MethodHandle[] code;
+    private final ObservableValues outputList;
+
+    /**
+     * Creates a new instance and registers it as an observer of the inputs
+     *
+     * @param inputs      the inputs of the region
+     * @param inputSlots  the slots the inputs are stored to
+     * @param outputs     the outputs of the region
+     * @param outputSlots the slots the outputs are read from
+     * @param slots       the number of slots
+     * @param tables      the truth tables used by the code
+     * @param code        the generated code
+     */
+    CompiledRegion(ObservableValue[] inputs, int[] inputSlots, ObservableValue[] outputs, int[] outputSlots,
+                   int slots, boolean[][] tables, MethodHandle[] code) {
+        this.inputs = inputs;
+        this.inputSlots = inputSlots;
+        this.outputs = outputs;
+        this.outputSlots = outputSlots;
+        this.tables = tables;
+        this.code = code;
+        values = new long[slots];
+        outputList = new ObservableValues(outputs);
+        for (ObservableValue v : inputs)
+            v.addObserverToValue(this);
+    }
+
+    @Override
+    public void readInputs() throws NodeException {
+        for (int i = 0; i < inputs.length; i++)
+            values[inputSlots[i]] = inputs[i].getValue();
+        try {
+            for (MethodHandle mh : code)
+                mh.invokeExact(values, tables);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void writeOutputs() throws NodeException {
+        for (int i = 0; i < outputs.length; i++)
+            outputs[i].setValue(values[outputSlots[i]]);
+    }
+
+    @Override
+    public ObservableValues getOutputs() {
+        return outputList;
+    }
+}
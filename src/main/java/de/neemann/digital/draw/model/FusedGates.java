@@ -0,0 +1,74 @@
+package de.neemann.digital.draw.model;
+
+import de.neemann.digital.core.Node;
+import de.neemann.digital.core.NodeException;
+import de.neemann.digital.core.ObservableValue;
+import de.neemann.digital.core.ObservableValues;
+
+/**
+ * A node which replaces a cluster of simple one bit gates.
+ * The function of the cluster is stored in a precomputed truth table which is
+ * addressed by the inputs of the cluster, similar to the {@link de.neemann.digital.core.memory.LookUpTable}.
+ * The first input is the most significant bit of the table address.
+ * The output of the cluster is reused, so all observers of the output stay attached.
+ */
+final class FusedGates extends Node {
+    private final ObservableValue[] inputs;
+    private final ObservableValue output;
+    private final boolean[] table;
+    private int addr;
+
+    /**
+     * Creates a new instance and registers it as an observer of the inputs
+     *
+     * @param inputs the inputs of the cluster
+     * @param output the output of the cluster
+     * @param table  the truth table, contains 2^inputs.length entries
+     */
+    FusedGates(ObservableValue[] inputs, ObservableValue output, boolean[] table) {
+        this.inputs = inputs;
+        this.output = output;
+        this.table = table;
+        for (ObservableValue v : inputs)
+            v.addObserverToValue(this);
+    }
+
+    @Override
+    public void readInputs() throws NodeException {
+        int a = 0;
+        for (ObservableValue v : inputs)
+            a = (a << 1) | (int) (v.getValue() & 1);
+        addr = a;
+    }
+
+    @Override
+    public void writeOutputs() throws NodeException {
+        output.setBool(table[addr]);
+    }
+
+    @Override
+    public ObservableValues getOutputs() {
+        return output.asList();
+    }
+
+    /**
+     * @return the inputs of the cluster
+     */
+    ObservableValue[] getInputs() {
+        return inputs;
+    }
+
+    /**
+     * @return the output of the cluster
+     */
+    ObservableValue getOutput() {
+        return output;
+    }
+
+    /**
+     * @return the truth table
+     */
+    boolean[] getTable() {
+        return table;
+    }
+}
@@ -265,6 +265,24 @@ public class ModelCreator implements Iterable<ModelEntry> {
      * @throws NodeException NodeException
      */
     public Model createModel(boolean attachWires) throws PinException, NodeException {
+        return createModel(attachWires, false);
+    }
+
+    /**
+     * Creates the model.
+     * If the model is optimized, all combinatorial nodes whose inputs are constant are replaced
+     * by constant values and all combinatorial nodes whose outputs are not used are removed.
+     * Since the values of the removed nodes are not updated anymore, the wires which are driven by
+     * these nodes do not show the actual state of the circuit if they are attached.
+     * The optimization is enabled in the simulator by the circuit setting {@link de.neemann.digital.core.element.Keys#OPTIMIZE_MODEL}.
+     *
+     * @param attachWires if true the wires are attached to the values
+     * @param optimize    if true the model is optimized
+     * @return the model
+     * @throws PinException  PinException
+     * @throws NodeException NodeException
+     */
+    public Model createModel(boolean attachWires, boolean optimize) throws PinException, NodeException {
         Model m = new Model();
 
         for (Net n : netList)
@@ -281,6 +299,9 @@ public class ModelCreator implements Iterable<ModelEntry> {
             e.getVisualElement().getShape().registerModel(this, m, e);
         }
 
+        if (optimize)
+            new ModelOptimizer(m, entries).optimize();
+
         return m;
     }
 
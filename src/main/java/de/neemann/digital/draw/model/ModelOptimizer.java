@@ -0,0 +1,356 @@
+package de.neemann.digital.draw.model;
+
+import de.neemann.digital.analyse.expression.ContextFiller;
+import de.neemann.digital.analyse.expression.Expression;
+import de.neemann.digital.analyse.expression.ExpressionException;
+import de.neemann.digital.analyse.expression.Not;
+import de.neemann.digital.analyse.expression.Operation;
+import de.neemann.digital.analyse.expression.Variable;
+import de.neemann.digital.core.*;
+import de.neemann.digital.core.basic.And;
+import de.neemann.digital.core.basic.FanIn;
+import de.neemann.digital.core.basic.NAnd;
+import de.neemann.digital.core.basic.NOr;
+import de.neemann.digital.core.basic.Or;
+import de.neemann.digital.core.basic.XNOr;
+import de.neemann.digital.core.basic.XOr;
+import de.neemann.digital.core.element.Element;
+import de.neemann.digital.core.wiring.Splitter;
+import de.neemann.digital.draw.elements.IOState;
+import de.neemann.digital.draw.elements.PinException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Optimizes a model before it is initialized.
+ * <ul>
+ * <li>Combinatorial nodes and splitters whose inputs are all constant are evaluated once.
+ * Their outputs become constant values and the nodes are removed from the model.</li>
+ * <li>Combinatorial nodes which have no path to a signal, a stateful node or any other
+ * element like a led are removed from the model.</li>
+ * <li>Trees of simple one bit gates with at most {@link #MAX_FUSED_INPUTS} inputs are replaced by
+ * a single node which evaluates a precomputed truth table.</li>
+ * <li>The remaining connected regions of gates are replaced by generated code, see {@link RegionCompiler}.</li>
+ * </ul>
+ * Since the values of the removed nodes are not updated anymore, the optimization should only
+ * be used if the wires of the circuit are not displayed.
+ */
+final class ModelOptimizer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ModelOptimizer.class);
+    /**
+     * The maximum number of inputs of a fused gate tree
+     */
+    static final int MAX_FUSED_INPUTS = 12;
+
+    private final Model model;
+    private final ArrayList<ModelEntry> entries;
+    private int folded;
+    private int removed;
+    private int fused;
+    private int compiled;
+
+    /**
+     * Creates a new instance
+     *
+     * @param model   the model to optimize
+     * @param entries the entries the model was created from
+     */
+    ModelOptimizer(Model model, ArrayList<ModelEntry> entries) {
+        this.model = model;
+        this.entries = entries;
+    }
+
+    /**
+     * Performs the optimization
+     *
+     * @return this for chained calls
+     * @throws NodeException NodeException
+     * @throws PinException  PinException
+     */
+    ModelOptimizer optimize() throws NodeException, PinException {
+        foldConstants();
+        removeDeadNodes();
+        fuseGates();
+        compiled = new RegionCompiler(model, collectRoots()).compile();
+        LOGGER.debug("folded " + folded + ", removed " + removed + ", fused " + fused + " and compiled " + compiled + " nodes");
+        return this;
+    }
+
+    private static boolean isCandidate(Element element) {
+        return element instanceof Node && ((Node) element).isLevelizable();
+    }
+
+    private void foldConstants() throws NodeException, PinException {
+        ArrayList<ModelEntry> todo = new ArrayList<>(entries);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            Iterator<ModelEntry> it = todo.iterator();
+            while (it.hasNext())
+                if (fold(it.next())) {
+                    it.remove();
+                    changed = true;
+                }
+        }
+    }
+
+    private boolean fold(ModelEntry entry) throws NodeException, PinException {
+        Element element = entry.getElement();
+        IOState io = entry.getIoState();
+        if (io == null || io.inputCount() == 0 || io.outputCount() == 0)
+            return false;
+        if (!(isCandidate(element) || element instanceof Splitter))
+            return false;
+
+        for (ObservableValue in : io.getInputs())
+            if (!in.isConstant())
+                return false;
+        for (ObservableValue out : io.getOutputs())
+            if (out.supportsHighZ() || out.isConstant())
+                return false;
+
+        if (element instanceof Node) {
+            Node node = (Node) element;
+            node.readInputs();
+            node.writeOutputs();
+            removeNode(node, io);
+            folded++;
+        }
+        for (ObservableValue out : io.getOutputs())
+            out.setConstant();
+        return true;
+    }
+
+    private void removeNode(Node node, IOState io) {
+        model.removeNode(node);
+        for (ObservableValue in : io.getInputs())
+            in.removeObserver(node);
+    }
+
+    /**
+     * Collects the values which are used outside of the combinatorial part of the circuit.
+     * These are the signals and all inputs of the other elements: Flip flops read inputs they
+     * don't observe, and elements like leds are observed by the gui later on.
+     *
+     * @return the used values
+     */
+    private HashSet<ObservableValue> collectRoots() throws PinException {
+        HashSet<ObservableValue> roots = new HashSet<>();
+        for (Signal s : model.getSignals())
+            roots.add(s.getValue());
+        for (ModelEntry e : entries)
+            if (!(isCandidate(e.getElement()) || e.getElement() instanceof Splitter) && e.getIoState() != null)
+                roots.addAll(e.getIoState().getInputs());
+        return roots;
+    }
+
+    private void removeDeadNodes() throws PinException {
+        HashSet<Node> nodes = new HashSet<>(model.getNodes());
+        HashMap<Node, IOState> candidates = new HashMap<>();
+        for (ModelEntry e : entries)
+            if (isCandidate(e.getElement()) && e.getIoState() != null && nodes.contains(e.getElement()))
+                candidates.put((Node) e.getElement(), e.getIoState());
+
+        HashSet<ObservableValue> roots = collectRoots();
+
+        // a node is alive if one of its outputs is read by an alive observer
+        HashMap<Node, ArrayList<Node>> predecessors = new HashMap<>();
+        ArrayList<Node> alive = new ArrayList<>();
+        HashSet<Node> isAlive = new HashSet<>();
+        for (Node n : candidates.keySet()) {
+            HashSet<Node> successors = new HashSet<>();
+            // a node without outputs like a led matrix is used for its side effects
+            boolean used = n.getOutputs().isEmpty();
+            HashSet<ObservableValue> visited = new HashSet<>();
+            for (ObservableValue v : n.getOutputs())
+                used |= collectReaders(v, candidates, roots, successors, visited);
+            if (used) {
+                alive.add(n);
+                isAlive.add(n);
+            }
+            for (Node s : successors)
+                predecessors.computeIfAbsent(s, k -> new ArrayList<>()).add(n);
+        }
+
+        while (!alive.isEmpty()) {
+            Node n = alive.remove(alive.size() - 1);
+            ArrayList<Node> pre = predecessors.get(n);
+            if (pre != null)
+                for (Node p : pre)
+                    if (isAlive.add(p))
+                        alive.add(p);
+        }
+
+        for (Node n : candidates.keySet())
+            if (!isAlive.contains(n)) {
+                removeNode(n, candidates.get(n));
+                removed++;
+            }
+    }
+
+    /**
+     * Collects the candidate nodes which read the given value.
+     *
+     * @return true if the value is read by something which is not a candidate, like a signal or a stateful node
+     */
+    private static boolean collectReaders(ObservableValue value, HashMap<Node, IOState> candidates, HashSet<ObservableValue> roots,
+                                          HashSet<Node> successors, HashSet<ObservableValue> visited) throws PinException {
+        if (!visited.add(value))
+            return false;
+        if (roots.contains(value))
+            return true;
+
+        boolean used = false;
+        for (Observer o : value.getObservers()) {
+            if (o instanceof Node) {
+                if (candidates.containsKey(o))
+                    successors.add((Node) o);
+                else
+                    used = true;
+            } else if (o instanceof NodeInterface) {
+                for (ObservableValue v : ((NodeInterface) o).getOutputs())
+                    used |= collectReaders(v, candidates, roots, successors, visited);
+            } else
+                used = true;
+        }
+        return used;
+    }
+
+    private void fuseGates() throws PinException {
+        HashSet<ObservableValue> roots = collectRoots();
+        // gates which are part of a feedback loop like a flip flop build from gates are not fused,
+        // because such a circuit depends on the propagation delay of the gates
+        HashMap<ObservableValue, Node> gates = new HashMap<>();
+        for (Node n : model.getAcyclicNodes())
+            if (getGateInputs(n) != null)
+                gates.put(getGateOutput(n), n);
+
+        // a gate can be merged into the gate which reads its output if this is the only reader
+        HashSet<Node> merged = new HashSet<>();
+        for (Map.Entry<ObservableValue, Node> e : gates.entrySet()) {
+            ObservableValue out = e.getKey();
+            if (roots.contains(out))
+                continue;
+            HashSet<Observer> readers = new HashSet<>(out.getObservers());
+            if (readers.size() == 1) {
+                Observer reader = readers.iterator().next();
+                if (reader != e.getValue() && reader instanceof Node && getGateInputs((Node) reader) != null)
+                    merged.add(e.getValue());
+            }
+        }
+
+        ArrayList<Node> todo = new ArrayList<>();
+        for (Node n : gates.values())
+            if (!merged.contains(n))
+                todo.add(n);
+
+        while (!todo.isEmpty()) {
+            Node root = todo.remove(todo.size() - 1);
+            LinkedHashSet<Node> tree = new LinkedHashSet<>();
+            LinkedHashMap<ObservableValue, Variable> inputs = new LinkedHashMap<>();
+            Expression expression = createExpression(root, gates, merged, tree, inputs);
+            if (inputs.size() > MAX_FUSED_INPUTS) {
+                // tree is too large, try the sub trees
+                for (ObservableValue in : getGateInputs(root)) {
+                    Node n = gates.get(in);
+                    if (n != null && merged.remove(n))
+                        todo.add(n);
+                }
+            } else if (tree.size() > 1)
+                fuse(root, tree, inputs, expression);
+        }
+    }
+
+    private void fuse(Node root, LinkedHashSet<Node> tree, LinkedHashMap<ObservableValue, Variable> inputs, Expression expression) {
+        ArrayList<Variable> vars = new ArrayList<>(inputs.values());
+        ContextFiller cf = new ContextFiller(vars);
+        boolean[] table = new boolean[cf.getRowCount()];
+        try {
+            for (int row = 0; row < table.length; row++)
+                table[row] = expression.calculate(cf.setContextTo(row));
+        } catch (ExpressionException e) {
+            // all variables are defined, so this can not happen
+            throw new RuntimeException(e);
+        }
+
+        for (Node n : tree) {
+            model.removeNode(n);
+            for (ObservableValue in : getGateInputs(n))
+                in.removeObserver(n);
+        }
+        ObservableValue[] in = inputs.keySet().toArray(new ObservableValue[inputs.size()]);
+        model.add(new FusedGates(in, getGateOutput(root), table));
+        fused += tree.size();
+    }
+
+    private static Expression createExpression(Node gate, HashMap<ObservableValue, Node> gates, HashSet<Node> merged,
+                                               LinkedHashSet<Node> tree, LinkedHashMap<ObservableValue, Variable> inputs) {
+        tree.add(gate);
+        ArrayList<Expression> args = new ArrayList<>();
+        for (ObservableValue in : getGateInputs(gate)) {
+            Node n = gates.get(in);
+            if (n != null && merged.contains(n))
+                args.add(createExpression(n, gates, merged, tree, inputs));
+            else
+                args.add(inputs.computeIfAbsent(in, v -> new Variable("i" + inputs.size())));
+        }
+
+        if (gate instanceof de.neemann.digital.core.basic.Not)
+            return Not.not(args.get(0));
+        if (gate instanceof NAnd)
+            return Not.not(Operation.and(args));
+        if (gate instanceof And)
+            return Operation.and(args);
+        if (gate instanceof NOr)
+            return Not.not(Operation.or(args));
+        if (gate instanceof Or)
+            return Operation.or(args);
+
+        Expression x = args.get(0);
+        for (int i = 1; i < args.size(); i++)
+            x = Operation.xor(x, args.get(i));
+        if (gate instanceof XNOr)
+            return Not.not(x);
+        return x;
+    }
+
+    /**
+     * Returns the inputs of a simple one bit gate
+     *
+     * @param node the node
+     * @return the inputs or null if the node is not a simple one bit gate
+     */
+    private static List<ObservableValue> getGateInputs(Node node) {
+        List<ObservableValue> inputs;
+        if (node instanceof de.neemann.digital.core.basic.Not)
+            inputs = Collections.singletonList(((de.neemann.digital.core.basic.Not) node).getInput());
+        else if (node instanceof And || node instanceof Or || node instanceof XOr)
+            inputs = ((FanIn) node).getInputs();
+        else
+            return null;
+
+        if (getGateOutput(node).getBits() != 1)
+            return null;
+        for (ObservableValue in : inputs)
+            if (in.getBits() != 1)
+                return null;
+        return inputs;
+    }
+
+    private static ObservableValue getGateOutput(Node gate) {
+        if (gate instanceof de.neemann.digital.core.basic.Not)
+            return ((de.neemann.digital.core.basic.Not) gate).getOutput();
+        return ((FanIn) gate).getOutput();
+    }
+}
@@ -10,64 +10,56 @@ import de.neemann.digital.lang.Lang;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
 
 /**
- * The real time clock which is used to fire the models clocks with real time signals
- * If the maximum frequency is selected a dedicated thread is started which runs the model.
- * So you get the highest speed but no real time. The model runs as fast as possible.
+ * The real time clock which is used to fire the models clocks with real time signals.
+ * A dedicated thread is started which runs the model with the frequency of the fastest clock.
+ * If the model is not able to reach this frequency, it runs as fast as possible.
+ * All clocks are driven by a single {@link ClockScheduler}, so the ratio of the clock frequencies
+ * is maintained.
  *
  * @author hneemann
  */
 public class RealTimeClock implements ModelStateObserverTyped {
     private static final Logger LOGGER = LoggerFactory.getLogger(RealTimeClock.class);
-    private static final int THREAD_RUNNER_DELAY = 100;
 
     private final Model model;
-    private final ScheduledThreadPoolExecutor executor;
     private final ErrorStopper stopper;
     private final Sync modelSync;
     private final StatusInterface status;
-    private final int frequency;
-    private final ObservableValue output;
+    private final List<Clock> clocks;
+    private final ClockScheduler scheduler;
     private Runner runner;
 
     /**
      * Creates a new real time clock
      *
      * @param model     the model
-     * @param clock     the clock element which is modify
-     * @param executor  the executor used to schedule the update
+     * @param clocks    the clock elements which are modified
      * @param stopper   used to stop the model if an error is detected
      * @param modelSync used to access a running model
      * @param status    allows sending messages to the status line
      */
-    public RealTimeClock(Model model, Clock clock, ScheduledThreadPoolExecutor executor, ErrorStopper stopper, Sync modelSync, StatusInterface status) {
+    public RealTimeClock(Model model, List<Clock> clocks, ErrorStopper stopper, Sync modelSync, StatusInterface status) {
         this.model = model;
-        this.executor = executor;
         this.stopper = stopper;
         this.modelSync = modelSync;
         this.status = status;
-        int f = clock.getFrequency();
-        if (f < 1) f = 1;
-        this.frequency = f;
-        this.output = clock.getClockOutput();
+        this.clocks = clocks;
+        this.scheduler = new ClockScheduler(clocks);
     }
 
     @Override
     public void handleEvent(ModelEvent event) {
         switch (event) {
             case STARTED:
-                if (frequency > 50)  // if frequency is high it is not necessary to update the GUI at every clock change
-                    modelSync.access(() -> output.removeObserver(GuiModelObserver.class));
+                for (Clock c : clocks)
+                    if (c.getConfiguredFrequency() > 50)  // if frequency is high it is not necessary to update the GUI at every clock change
+                        modelSync.access(() -> c.getClockOutput().removeObserver(GuiModelObserver.class));
 
-                int delayMuS = 500000 / frequency;
-                if (delayMuS < THREAD_RUNNER_DELAY)
-                    runner = new ThreadRunner();
-                else
-                    runner = new RealTimeRunner(delayMuS);
+                runner = new Runner();
                 break;
             case STOPPED:
                 if (runner != null)
@@ -82,66 +74,59 @@ public class RealTimeClock implements ModelStateObserverTyped {
     }
 
     /**
-     * @return true if a thread runner is used
-     */
-    public boolean isThreadRunner() {
-        int delayMuS = 500000 / frequency;
-        return delayMuS < THREAD_RUNNER_DELAY;
-    }
-
-    interface Runner {
-        void stop();
-    }
-
-    /**
-     * runs with defined rate
+     * Runs the model with the rate given by the fastest clock.
+     * The model is advanced in batches. After a batch, the thread waits until the real time
+     * has reached the model time. The deadline is calculated from the start time, so timing errors
+     * do not accumulate. The thread is parked until shortly before the deadline and spins for the
+     * remaining time, because parking alone is not precise enough.
+     * To reduce the synchronization overhead, the size of a batch is increased up to the number of
+     * clock changes which fit in a time slice. It is reduced if other threads are waiting for the
+     * model or if a batch takes too long.
      */
-    private class RealTimeRunner implements Runner {
-
-        private final ScheduledFuture<?> timer;
-
-        RealTimeRunner(int delay) {
-            timer = executor.scheduleAtFixedRate(new Runnable() {
-                @Override
-                public void run() {
-                    try {
-                        modelSync.accessNEx(() -> {
-                            output.setValue(1 - output.getValue());
-                            model.doStep();
-                        });
-                    } catch (NodeException | RuntimeException e) {
-                        stopper.showErrorAndStopModel(Lang.get("msg_clockError"), e);
-                        timer.cancel(false);
-                    }
-                }
-            }, delay, delay, TimeUnit.MICROSECONDS);
-        }
-
-        @Override
-        public void stop() {
-            if (timer != null)
-                timer.cancel(false);
-        }
-    }
-
-    /**
-     * runs as fast as possible!
-     */
-    private class ThreadRunner implements Runner {
+    private class Runner {
+        private static final int MAX_BATCH = 1 << 16;
+        private static final long MAX_BATCH_NANOS = 10000000;
+        private static final long SLICE_NANOS = 1000000;
+        private static final long SPIN_NANOS = 50000;
+        private static final long MAX_LAG_NANOS = 100000000;
 
         private final Thread thread;
+        private int batch = 1;
+        private boolean othersWaiting;
 
-        ThreadRunner() {
+        Runner() {
+            final double halfPeriodNanos = 1e9 / (2.0 * scheduler.getMaxFrequency());
+            final int sliceBatch = (int) Math.max(1, Math.min(MAX_BATCH, SLICE_NANOS / halfPeriodNanos));
             thread = new Thread(() -> {
                 LOGGER.debug("thread start");
                 FrequencyCalculator frequency = new FrequencyCalculator(status);
                 try {
+                    long start = System.nanoTime();
+                    long changes = 0;
                     while (!Thread.interrupted()) {
+                        long time = System.nanoTime();
+                        int n = Math.min(batch, sliceBatch);
                         modelSync.accessNEx(() -> {
-                            output.setValue(1 - output.getValue());
-                            model.doStep();
+                            for (int i = 0; i < n; i++)
+                                scheduler.stepFastest(model);
+                            othersWaiting = modelSync.hasWaitingThreads();
                         });
-                        frequency.calc();
+                        long now = System.nanoTime();
+                        frequency.calc(n, now);
+
+                        if (othersWaiting || now - time > MAX_BATCH_NANOS) {
+                            if (batch > 1)
+                                batch /= 2;
+                        } else if (batch < MAX_BATCH)
+                            batch *= 2;
+
+                        changes += n;
+                        long deadline = start + (long) (changes * halfPeriodNanos);
+                        if (now - deadline > MAX_LAG_NANOS)
+                            // the model is too slow, so don't try to catch up
+                            start = now - (long) (changes * halfPeriodNanos);
+                        else
+                            waitUntil(deadline);
                     }
                 } catch (NodeException | RuntimeException e) {
                     stopper.showErrorAndStopModel(Lang.get("msg_clockError"), e);
@@ -151,39 +136,52 @@ public class RealTimeClock implements ModelStateObserverTyped {
             thread.start();
         }
 
-        @Override
-        public void stop() {
+        private void waitUntil(long deadline) {
+            long remaining = deadline - System.nanoTime();
+            while (remaining > SPIN_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_NANOS);
+                if (Thread.currentThread().isInterrupted())
+                    return;
+                remaining = deadline - System.nanoTime();
+            }
+            // spin for the remaining time
+            while (System.nanoTime() < deadline)
+                Thread.yield();
+        }
+
+        private void stop() {
             thread.interrupt();
         }
     }
 
     private static final class FrequencyCalculator {
-        private static final long MIN_COUNTER = 50000;
+        private static final long INTERVAL_NANOS = 2000000000L;
         private final StatusInterface status;
-        private long checkCounter;
-        private int counter;
+        private long counter;
         private long time;
 
         private FrequencyCalculator(StatusInterface status) {
             this.status = status;
-            time = System.currentTimeMillis();
+            time = System.nanoTime();
             counter = 0;
-            checkCounter = MIN_COUNTER;
         }
 
-        private void calc() {
-            counter++;
-            if (counter == checkCounter) {
-                long t = System.currentTimeMillis();
-                if (t - time > 2000) {
-                    final long l = counter / (t - time) / 2;
-                    status.setStatus(l + " kHz");
-                    time = t;
-                    counter = 0;
-                    checkCounter = MIN_COUNTER;
-                } else {
-                    checkCounter += MIN_COUNTER;
-                }
+        /**
+         * Is called after some clock changes are executed
+         *
+         * @param changes the number of clock changes
+         * @param now     the actual time in nanoseconds
+         */
+        private void calc(int changes, long now) {
+            counter += changes;
+            if (now - time > INTERVAL_NANOS) {
+                final long f = counter * 1000000000L / (now - time) / 2;
+                if (f < 10000)
+                    status.setStatus(f + " Hz");
+                else
+                    status.setStatus(f / 1000 + " kHz");
+                time = now;
+                counter = 0;
             }
         }
     }
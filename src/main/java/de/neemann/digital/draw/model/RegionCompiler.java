@@ -0,0 +1,186 @@
+package de.neemann.digital.draw.model;
+
+import de.neemann.digital.core.Model;
+import de.neemann.digital.core.Node;
+import de.neemann.digital.core.ObservableValue;
+import de.neemann.digital.core.Observer;
+import de.neemann.digital.core.basic.And;
+import de.neemann.digital.core.basic.FanIn;
+import de.neemann.digital.core.basic.NAnd;
+import de.neemann.digital.core.basic.NOr;
+import de.neemann.digital.core.basic.Not;
+import de.neemann.digital.core.basic.Or;
+import de.neemann.digital.core.basic.XNOr;
+import de.neemann.digital.core.basic.XOr;
+
+import java.lang.invoke.MethodHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Replaces the combinatorial regions of a model by generated code.
+ * A region is a set of connected gates which are not part of a feedback loop.
+ * Every region with at least two gates is replaced by a {@link CompiledRegion}.
+ */
+final class RegionCompiler {
+    private final Model model;
+    private final HashSet<ObservableValue> roots;
+    private int compiled;
+
+    /**
+     * Creates a new instance
+     *
+     * @param model the model
+     * @param roots values which are used outside of the combinatorial part of the model,
+     *              even if they are not observed
+     */
+    RegionCompiler(Model model, HashSet<ObservableValue> roots) {
+        this.model = model;
+        this.roots = roots;
+    }
+
+    /**
+     * Compiles the regions
+     *
+     * @return the number of nodes replaced by generated code
+     */
+    int compile() {
+        // the acyclic nodes are topologically sorted, so the regions are sorted as well
+        List<Node> nodes = new ArrayList<>();
+        HashMap<ObservableValue, Integer> producer = new HashMap<>();
+        for (Node n : model.getAcyclicNodes()) {
+            ObservableValue out = getOutput(n);
+            if (out != null) {
+                producer.put(out, nodes.size());
+                nodes.add(n);
+            }
+        }
+
+        int[] parent = new int[nodes.size()];
+        for (int i = 0; i < parent.length; i++)
+            parent[i] = i;
+        for (int i = 0; i < parent.length; i++)
+            for (ObservableValue in : getInputs(nodes.get(i))) {
+                Integer p = producer.get(in);
+                if (p != null)
+                    parent[find(parent, i)] = find(parent, p);
+            }
+
+        LinkedHashMap<Integer, ArrayList<Node>> regions = new LinkedHashMap<>();
+        for (int i = 0; i < parent.length; i++)
+            regions.computeIfAbsent(find(parent, i), k -> new ArrayList<>()).add(nodes.get(i));
+
+        for (ArrayList<Node> region : regions.values())
+            if (region.size() > 1)
+                compileRegion(region);
+        return compiled;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private void compileRegion(ArrayList<Node> region) {
+        HashSet<Node> members = new HashSet<>(region);
+        HashMap<ObservableValue, Integer> slots = new HashMap<>();
+        ArrayList<ObservableValue> inputs = new ArrayList<>();
+        ArrayList<ObservableValue> outputs = new ArrayList<>();
+        ArrayList<boolean[]> tables = new ArrayList<>();
+        CodeGenerator gen = new CodeGenerator();
+
+        for (Node n : region) {
+            List<ObservableValue> in = getInputs(n);
+            int[] inSlots = new int[in.size()];
+            for (int i = 0; i < inSlots.length; i++) {
+                ObservableValue v = in.get(i);
+                Integer s = slots.get(v);
+                if (s == null) {
+                    s = slots.size();
+                    slots.put(v, s);
+                    inputs.add(v);
+                }
+                inSlots[i] = s;
+            }
+
+            ObservableValue out = getOutput(n);
+            int outSlot = slots.size();
+            slots.put(out, outSlot);
+            if (isReadOutside(out, members))
+                outputs.add(out);
+
+            if (n instanceof Not)
+                gen.not(outSlot, inSlots[0]);
+            else if (n instanceof FusedGates) {
+                gen.lookUp(outSlot, inSlots, tables.size());
+                tables.add(((FusedGates) n).getTable());
+            } else if (n instanceof And)
+                gen.operation(CodeGenerator.Operation.AND, outSlot, inSlots, n instanceof NAnd);
+            else if (n instanceof Or)
+                gen.operation(CodeGenerator.Operation.OR, outSlot, inSlots, n instanceof NOr);
+            else
+                gen.operation(CodeGenerator.Operation.XOR, outSlot, inSlots, n instanceof XNOr);
+        }
+        MethodHandle[] code = gen.create();
+
+        for (Node n : region) {
+            model.removeNode(n);
+            for (ObservableValue in : getInputs(n))
+                in.removeObserver(n);
+        }
+
+        model.add(new CompiledRegion(
+                inputs.toArray(new ObservableValue[inputs.size()]), getSlots(inputs, slots),
+                outputs.toArray(new ObservableValue[outputs.size()]), getSlots(outputs, slots),
+                slots.size(), tables.toArray(new boolean[tables.size()][]), code));
+        compiled += region.size();
+    }
+
+    private boolean isReadOutside(ObservableValue value, HashSet<Node> members) {
+        if (roots.contains(value))
+            return true;
+        for (Observer o : value.getObservers())
+            if (!members.contains(o))
+                return true;
+        return false;
+    }
+
+    private static int[] getSlots(ArrayList<ObservableValue> values, HashMap<ObservableValue, Integer> slots) {
+        int[] s = new int[values.size()];
+        for (int i = 0; i < s.length; i++)
+            s[i] = slots.get(values.get(i));
+        return s;
+    }
+
+    /**
+     * Returns the output of a node which can be compiled
+     *
+     * @param node the node
+     * @return the output or null if the node can not be compiled
+     */
+    private static ObservableValue getOutput(Node node) {
+        if (node instanceof Not)
+            return ((Not) node).getOutput();
+        if (node instanceof FusedGates)
+            return ((FusedGates) node).getOutput();
+        if (node instanceof And || node instanceof Or || node instanceof XOr)
+            return ((FanIn) node).getOutput();
+        return null;
+    }
+
+    private static List<ObservableValue> getInputs(Node node) {
+        if (node instanceof Not)
+            return Collections.singletonList(((Not) node).getInput());
+        if (node instanceof FusedGates)
+            return Arrays.asList(((FusedGates) node).getInputs());
+        return ((FanIn) node).getInputs();
+    }
+}
@@ -4,7 +4,6 @@ import de.neemann.digital.core.Model;
 import de.neemann.digital.core.NodeException;
 import de.neemann.digital.core.Observer;
 import de.neemann.digital.core.element.*;
-import de.neemann.digital.core.memory.DataField;
 import de.neemann.digital.core.memory.RAMInterface;
 import de.neemann.digital.draw.elements.IOState;
 import de.neemann.digital.draw.elements.PinException;
@@ -70,8 +69,10 @@ public class RAMShape extends GenericShape {
             @Override
             public boolean clicked(CircuitComponent cc, Point pos, IOState ioState, Element element, Sync modelSync) {
                 if (element instanceof RAMInterface) {
-                    DataField dataField = ((RAMInterface) element).getMemory();
-                    DataEditor dataEditor = new DataEditor(cc, dataField, size, dataBits, addrBits, true, modelSync);
+                    RAMInterface ram = (RAMInterface) element;
+                    DataEditor dataEditor = new DataEditor(cc, ram.getMemory(), size, dataBits, addrBits, true, modelSync);
+                    if (ram.getTrace() != null)
+                        dataEditor.addTrace(ram.getTrace(), dialogTitle, modelSync);
                     dataEditor.showDialog(dialogTitle, model);
                 }
                 return false;
@@ -66,7 +66,6 @@ import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
 
 import static de.neemann.digital.draw.shapes.GenericShape.SIZE;
 import static javax.swing.JOptionPane.showInputDialog;
@@ -113,7 +112,6 @@ public final class Main extends JFrame implements ClosingWindowListener.ConfirmS
     private final ShapeFactory shapeFactory;
     private final JLabel statusLabel;
     private final StateManager stateManager = new StateManager();
-    private final ScheduledThreadPoolExecutor timerExecutor = new ScheduledThreadPoolExecutor(1);
     private final WindowPosManager windowPosManager;
     private final InsertHistory insertHistory;
     private final boolean keepPrefMainFile;
@@ -248,7 +246,6 @@ public final class Main extends JFrame implements ClosingWindowListener.ConfirmS
             @Override
             public void windowClosed(WindowEvent e) {
                 clearModelDescription(); // stop model timer if running
-                timerExecutor.shutdown();
                 library.removeListener(librarySelector);
                 library.removeListener(insertHistory);
                 library.removeListener(circuitComponent);
@@ -893,7 +890,7 @@ public final class Main extends JFrame implements ClosingWindowListener.ConfirmS
             @Override
             public void actionPerformed(ActionEvent e) {
                 try {
-                    int i = model.runToBreak();
+                    int i = model.runToBreak(true);
                     circuitComponent.repaintNeeded();
                     statusLabel.setText(Lang.get("stat_clocks", i));
                 } catch (NodeException | RuntimeException e1) {
@@ -1149,7 +1146,10 @@ public final class Main extends JFrame implements ClosingWindowListener.ConfirmS
                 model = null;
             }
 
-            model = modelCreator.createModel(true);
+            // the single gate step mode needs the original gates
+            boolean optimize = updateEvent != ModelEvent.MICROSTEP
+                    && circuitComponent.getCircuit().getAttributes().get(Keys.OPTIMIZE_MODEL);
+            model = modelCreator.createModel(true, optimize);
 
             time = System.currentTimeMillis() - time;
             LOGGER.debug("model creation: " + time + " ms");
@@ -1161,18 +1161,15 @@ public final class Main extends JFrame implements ClosingWindowListener.ConfirmS
             realTimeClockRunning = false;
             modelSync = null;
             if (globalRunClock) {
-                int threadRunnerCount = 0;
+                ArrayList<Clock> realTimeClocks = new ArrayList<>();
                 for (Clock c : model.getClocks())
-                    if (c.getFrequency() > 0) {
-                        if (modelSync == null)
-                            modelSync = new LockSync();
-                        final RealTimeClock realTimeClock = new RealTimeClock(model, c, timerExecutor, this, modelSync, this);
-                        model.addObserver(realTimeClock);
-                        if (realTimeClock.isThreadRunner()) threadRunnerCount++;
-                        realTimeClockRunning = true;
-                    }
-                if (threadRunnerCount > 1)
-                    throw new RuntimeException(Lang.get("err_moreThanOneFastClock"));
+                    if (c.getFrequency() > 0)
+                        realTimeClocks.add(c);
+                if (!realTimeClocks.isEmpty()) {
+                    modelSync = new LockSync();
+                    model.addObserver(new RealTimeClock(model, realTimeClocks, this, modelSync, this));
+                    realTimeClockRunning = true;
+                }
             }
             if (modelSync == null)
                 modelSync = NoSync.INST;
@@ -4,6 +4,7 @@ import de.neemann.digital.core.Bits;
 import de.neemann.digital.core.Model;
 import de.neemann.digital.core.ModelEvent;
 import de.neemann.digital.core.memory.DataField;
+import de.neemann.digital.core.memory.MemoryTrace;
 import de.neemann.digital.gui.sync.Sync;
 import de.neemann.digital.lang.Lang;
 import de.neemann.gui.ToolTipAction;
@@ -28,6 +29,7 @@ import java.util.ArrayList;
  */
 public class DataEditor extends JDialog {
     private static final Color MYGRAY = new Color(230, 230, 230);
+    private static final int UPDATE_INTERVAL_MS = 50;
     private final DataField localDataField;
     private final JTable table;
     private boolean ok = false;
@@ -85,10 +87,14 @@ public class DataEditor extends JDialog {
         scrollPane.setPreferredSize(new Dimension(tableWidth, dim.height));
 
         if (modelIsRunning) {
-            dataField.addListener(dm);
+            dataField.addCoalescedListener(dm);
+            // the changes are collected by the data field and the table is updated at most once per frame
+            Timer timer = new Timer(UPDATE_INTERVAL_MS, e -> modelSync.access(dataField::publishChanges));
+            timer.start();
             addWindowListener(new WindowAdapter() {
                 @Override
                 public void windowClosed(WindowEvent e) {
+                    timer.stop();
                     dataField.removeListener(dm);
                 }
             });
@@ -119,6 +125,27 @@ public class DataEditor extends JDialog {
         setLocationRelativeTo(parent);
     }
 
+    /**
+     * Adds a button which opens a dialog showing the given memory trace
+     *
+     * @param trace     the trace
+     * @param label     the label of the RAM component
+     * @param modelSync used to access the running model
+     * @return this for chained calls
+     */
+    public DataEditor addTrace(MemoryTrace trace, String label, Sync modelSync) {
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttons.add(new ToolTipAction(Lang.get("btn_memoryTrace")) {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                new MemoryTraceDialog(DataEditor.this, label, trace, modelSync).setVisible(true);
+            }
+        }.setToolTip(Lang.get("btn_memoryTrace_tt")).createJButton());
+        getContentPane().add(buttons, BorderLayout.SOUTH);
+        pack();
+        return this;
+    }
+
     /**
      * @return the data field
      */
@@ -238,13 +265,13 @@ public class DataEditor extends JDialog {
         }
 
         @Override
-        public void valueChanged(int addr) {
+        public void valueChanged(int addr, int len) {
             if (addr < 0) {
                 // all values have changed!
                 fireEvent(new TableModelEvent(this));
             } else {
-                // only one value has changed
-                fireEvent(new TableModelEvent(this, addr / cols));
+                // only a range of values has changed
+                fireEvent(new TableModelEvent(this, addr / cols, (addr + len - 1) / cols));
             }
         }
     }
@@ -9,6 +9,7 @@ import de.neemann.digital.core.element.*;
 import de.neemann.digital.core.io.InValue;
 import de.neemann.digital.core.IntFormat;
 import de.neemann.digital.core.memory.DataField;
+import de.neemann.digital.core.memory.DataFieldImporter;
 import de.neemann.digital.core.memory.ROM;
 import de.neemann.digital.draw.elements.VisualElement;
 import de.neemann.digital.draw.library.ElementNotFoundException;
@@ -443,11 +444,11 @@ public final class EditorFactory {
                 public void actionPerformed(ActionEvent e) {
                     JFileChooser fc = new MyFileChooser();
                     fc.setSelectedFile(attr.getFile(ROM.LAST_DATA_FILE_KEY));
-                    fc.setFileFilter(new FileNameExtensionFilter("hex", "hex"));
+                    fc.setFileFilter(new FileNameExtensionFilter("hex, bin", "hex", "bin"));
                     if (fc.showOpenDialog(panel) == JFileChooser.APPROVE_OPTION) {
                         attr.setFile(ROM.LAST_DATA_FILE_KEY, fc.getSelectedFile());
                         try {
-                            data = new DataField(fc.getSelectedFile());
+                            data = new DataFieldImporter(attr).read(fc.getSelectedFile());
                         } catch (IOException e1) {
                             new ErrorMessage(Lang.get("msg_errorReadingFile")).addCause(e1).show(panel);
                         }
@@ -458,7 +459,7 @@ public final class EditorFactory {
                         @Override
                         public void actionPerformed(ActionEvent e) {
                             try {
-                                data = new DataField(attr.getFile(ROM.LAST_DATA_FILE_KEY));
+                                data = new DataFieldImporter(attr).read(attr.getFile(ROM.LAST_DATA_FILE_KEY));
                             } catch (IOException e1) {
                                 new ErrorMessage(Lang.get("msg_errorReadingFile")).addCause(e1).show(panel);
                             }
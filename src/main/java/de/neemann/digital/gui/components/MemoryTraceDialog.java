@@ -0,0 +1,124 @@
+package de.neemann.digital.gui.components;
+
+import de.neemann.digital.core.memory.MemoryTrace;
+import de.neemann.digital.gui.SaveAsHelper;
+import de.neemann.digital.gui.sync.Sync;
+import de.neemann.digital.lang.Lang;
+import de.neemann.gui.MyFileChooser;
+import de.neemann.gui.ToolTipAction;
+
+import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shows the most frequently accessed addresses of a memory trace.
+ * The recorded accesses can be saved to a CSV file.
+ */
+public class MemoryTraceDialog extends JDialog {
+    private static final int MAX_ADDRESSES = 100;
+    private final MemoryTrace trace;
+    private final Sync modelSync;
+    private final HotAddressModel tableModel;
+
+    /**
+     * Creates a new instance
+     *
+     * @param parent    the parent
+     * @param title     the title of the dialog
+     * @param trace     the trace to show
+     * @param modelSync used to access the running model
+     */
+    public MemoryTraceDialog(Window parent, String title, MemoryTrace trace, Sync modelSync) {
+        super(parent, Lang.get("win_memoryTrace") + (title.length() > 0 ? ": " + title : ""), ModalityType.MODELESS);
+        this.trace = trace;
+        this.modelSync = modelSync;
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+
+        tableModel = new HotAddressModel();
+        getContentPane().add(new JScrollPane(new JTable(tableModel)));
+
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttons.add(new ToolTipAction(Lang.get("btn_update")) {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                update();
+            }
+        }.createJButton());
+        buttons.add(new ToolTipAction(Lang.get("menu_saveData")) {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                JFileChooser fileChooser = new MyFileChooser();
+                fileChooser.setFileFilter(new FileNameExtensionFilter("Comma Separated Values", "csv"));
+                MemoryTrace copy = getTraceCopy();
+                new SaveAsHelper(MemoryTraceDialog.this, fileChooser, "csv").checkOverwrite(file -> {
+                    try (Writer w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "utf-8"))) {
+                        copy.writeTo(w);
+                    }
+                });
+            }
+        }.setToolTip(Lang.get("menu_saveData_tt")).createJButton());
+        getContentPane().add(buttons, BorderLayout.SOUTH);
+
+        update();
+        pack();
+        setLocationRelativeTo(parent);
+    }
+
+    private MemoryTrace getTraceCopy() {
+        MemoryTrace[] copy = new MemoryTrace[1];
+        modelSync.access(() -> copy[0] = trace.getCopy());
+        return copy[0];
+    }
+
+    private void update() {
+        tableModel.setAddresses(getTraceCopy().getHotAddresses(MAX_ADDRESSES));
+    }
+
+    private static final class HotAddressModel extends AbstractTableModel {
+        private static final String[] COLUMNS = {
+                Lang.get("msg_traceAddress"), Lang.get("msg_traceReads"), Lang.get("msg_traceWrites")};
+        private List<MemoryTrace.HotAddress> addresses = new ArrayList<>();
+
+        private void setAddresses(List<MemoryTrace.HotAddress> addresses) {
+            this.addresses = addresses;
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return addresses.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Object getValueAt(int rowIndex, int columnIndex) {
+            MemoryTrace.HotAddress a = addresses.get(rowIndex);
+            switch (columnIndex) {
+                case 0:
+                    return "0x" + Integer.toHexString(a.getAddr());
+                case 1:
+                    return a.getReads();
+                default:
+                    return a.getWrites();
+            }
+        }
+    }
+}
@@ -128,6 +128,11 @@ public class ProbeDialog extends JDialog implements ModelStateObserverTyped {
         }
     }
 
+    @Override
+    public boolean isSuspendable() {
+        return true;
+    }
+
     @Override
     public ModelEvent[] getEvents() {
         return new ModelEvent[]{type, ModelEvent.MANUALCHANGE, ModelEvent.FASTRUN, ModelEvent.BREAK, ModelEvent.STOPPED};
@@ -2,8 +2,8 @@ package de.neemann.digital.gui.components.data;
 
 import de.neemann.digital.core.ModelEvent;
 import de.neemann.digital.core.ModelStateObserverTyped;
+import de.neemann.digital.core.ObservableValue;
 import de.neemann.digital.core.Signal;
-import de.neemann.digital.data.Value;
 import de.neemann.digital.data.ValueTable;
 
 import java.util.ArrayList;
@@ -19,7 +19,11 @@ public class ValueTableObserver implements ModelStateObserverTyped {
     private final ModelEvent type;
     private final ArrayList<Signal> signals;
 
-    private Value[] manualSample;
+    private final long[] sample;
+    private final boolean[] sampleHighZ;
+    private final long[] manualSample;
+    private final boolean[] manualSampleHighZ;
+    private boolean manualSamplePresent;
 
     /**
      * Creates a new instance
@@ -39,6 +43,11 @@ public class ValueTableObserver implements ModelStateObserverTyped {
         for (int i = 0; i < signals.size(); i++)
             names[i] = signals.get(i).getName();
         this.logData = new ValueTable(names).setMaxSize(maxSize);
+
+        sample = new long[names.length];
+        sampleHighZ = new boolean[names.length];
+        manualSample = new long[names.length];
+        manualSampleHighZ = new boolean[names.length];
     }
 
     @Override
@@ -47,24 +56,33 @@ public class ValueTableObserver implements ModelStateObserverTyped {
             logData.clear();
 
         if (event == ModelEvent.MANUALCHANGE && type == ModelEvent.MICROSTEP) {
-            if (manualSample == null)
-                manualSample = new Value[logData.getColumns()];
-            for (int i = 0; i < logData.getColumns(); i++)
-                manualSample[i] = new Value(signals.get(i).getValue());
+            read(manualSample, manualSampleHighZ);
+            manualSamplePresent = true;
         }
 
         if (event == type) {
-            if (manualSample != null) {
-                logData.add(manualSample);
-                manualSample = null;
+            if (manualSamplePresent) {
+                logData.add(manualSample, manualSampleHighZ);
+                manualSamplePresent = false;
             }
-            Value[] row = new Value[logData.getColumns()];
-            for (int i = 0; i < logData.getColumns(); i++)
-                row[i] = new Value(signals.get(i).getValue());
-            logData.add(row);
+            read(sample, sampleHighZ);
+            logData.add(sample, sampleHighZ);
+        }
+    }
+
+    private void read(long[] values, boolean[] highZ) {
+        for (int i = 0; i < values.length; i++) {
+            ObservableValue v = signals.get(i).getValue();
+            values[i] = v.getValue();
+            highZ[i] = v.isHighZ();
         }
     }
 
+    @Override
+    public boolean isSuspendable() {
+        return true;
+    }
+
     @Override
     public ModelEvent[] getEvents() {
         return new ModelEvent[]{type, ModelEvent.STARTED, ModelEvent.MANUALCHANGE};
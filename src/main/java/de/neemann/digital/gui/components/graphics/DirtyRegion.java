@@ -0,0 +1,74 @@
+package de.neemann.digital.gui.components.graphics;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Collects the cells of a display which have changed since the last repaint.
+ * The cells are written by the simulation thread and repainted by the event dispatch thread
+ * at a limited frame rate. Only the bounding rectangle of all changed cells is repainted.
+ */
+final class DirtyRegion {
+    /**
+     * the time between two repaints in milliseconds
+     */
+    static final int FRAME_INTERVAL_MS = 20;
+
+    private int x0 = Integer.MAX_VALUE;
+    private int y0 = Integer.MAX_VALUE;
+    private int x1 = -1;
+    private int y1 = -1;
+
+    /**
+     * Marks a rectangle of cells as changed
+     *
+     * @param x the first column
+     * @param y the first row
+     * @param w the number of columns
+     * @param h the number of rows
+     */
+    synchronized void add(int x, int y, int w, int h) {
+        x0 = Math.min(x0, x);
+        y0 = Math.min(y0, y);
+        x1 = Math.max(x1, x + w);
+        y1 = Math.max(y1, y + h);
+    }
+
+    /**
+     * Repaints the changed cells of the given component and clears the region.
+     * Has to be called by the event dispatch thread.
+     *
+     * @param c    the component which shows the cells
+     * @param cols the number of columns shown by the component
+     * @param rows the number of rows shown by the component
+     */
+    void repaint(JComponent c, int cols, int rows) {
+        Rectangle r;
+        synchronized (this) {
+            if (x1 < 0)
+                return;
+            r = new Rectangle(x0, y0, x1 - x0, y1 - y0);
+            x0 = Integer.MAX_VALUE;
+            y0 = Integer.MAX_VALUE;
+            x1 = -1;
+            y1 = -1;
+        }
+        int xs = r.x * c.getWidth() / cols;
+        int ys = r.y * c.getHeight() / rows;
+        int xe = (r.x + r.width) * c.getWidth() / cols + 1;
+        int ye = (r.y + r.height) * c.getHeight() / rows + 1;
+        c.repaint(xs, ys, xe - xs, ye - ys);
+    }
+
+    /**
+     * Creates a timer which repaints the changed cells of the given component at a limited frame rate
+     *
+     * @param c    the component which shows the cells
+     * @param cols the number of columns shown by the component
+     * @param rows the number of rows shown by the component
+     * @return the timer, not started
+     */
+    Timer createTimer(JComponent c, int cols, int rows) {
+        return new Timer(FRAME_INTERVAL_MS, e -> repaint(c, cols, rows));
+    }
+}
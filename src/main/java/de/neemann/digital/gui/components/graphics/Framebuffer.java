@@ -0,0 +1,149 @@
+package de.neemann.digital.gui.components.graphics;
+
+import de.neemann.digital.core.memory.DataField;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * The images shown by the graphics card.
+ * There is an image for each bank. A store to the graphics memory writes the pixel directly
+ * into the raster of the corresponding image. Switching the bank switches the image which is shown.
+ */
+public final class Framebuffer {
+    private static final int[] PALETTE = createPalette();
+
+    private final int width;
+    private final int height;
+    private final BufferedImage[] images;
+    private final int[][] pixels;
+    private final DirtyRegion dirty = new DirtyRegion();
+    private volatile int bank;
+
+    /**
+     * Creates a new instance
+     *
+     * @param width  the width in pixels
+     * @param height the height in pixels
+     */
+    public Framebuffer(int width, int height) {
+        this.width = width;
+        this.height = height;
+        images = new BufferedImage[2];
+        pixels = new int[2][];
+        for (int i = 0; i < images.length; i++) {
+            images[i] = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            pixels[i] = ((DataBufferInt) images[i].getRaster().getDataBuffer()).getData();
+            Arrays.fill(pixels[i], PALETTE[0]);
+        }
+    }
+
+    /**
+     * Sets a pixel
+     *
+     * @param addr  the address in the graphics memory
+     * @param value the color index
+     */
+    public void set(int addr, long value) {
+        int size = width * height;
+        int b = addr / size;
+        if (b >= pixels.length)
+            return;
+        int i = addr - b * size;
+        pixels[b][i] = value < 0 || value >= PALETTE.length ? PALETTE[1] : PALETTE[(int) value];
+        if (b == bank)
+            dirty.add(i % width, i / width, 1, 1);
+    }
+
+    /**
+     * Sets all pixels from the given memory
+     *
+     * @param memory the graphics memory
+     */
+    public void setAll(DataField memory) {
+        int size = width * height * pixels.length;
+        for (int i = 0; i < size; i++)
+            set(i, memory.getDataWord(i));
+    }
+
+    /**
+     * Selects the bank to show
+     *
+     * @param bank the bank
+     */
+    public void setBank(int bank) {
+        if (this.bank != bank) {
+            this.bank = bank;
+            dirty.add(0, 0, width, height);
+        }
+    }
+
+    /**
+     * @return the width in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the height in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return the image of the selected bank
+     */
+    BufferedImage getImage() {
+        return images[bank];
+    }
+
+    /**
+     * @return the pixels which have changed since the last repaint
+     */
+    DirtyRegion getDirtyRegion() {
+        return dirty;
+    }
+
+    private static int[] createPalette() {
+        Color[] col = new Color[64 + 16 + 32];
+        for (int i = 0; i < col.length; i++)
+            col[i] = Color.BLACK;
+
+        col[0] = Color.WHITE;
+        col[1] = Color.BLACK;
+        col[2] = Color.RED;
+        col[3] = Color.GREEN;
+        col[4] = Color.BLUE;
+        col[5] = Color.YELLOW;
+        col[6] = Color.CYAN;
+        col[7] = Color.MAGENTA;
+        col[8] = Color.ORANGE;
+        col[9] = Color.PINK;
+
+        for (int g = 0; g < 32; g++) {
+            int in = (255 * (31 - g)) / 31;
+            col[10 + g] = new Color(in, in, in);
+        }
+
+        int index = 42;
+        for (int r = 0; r < 4; r++)
+            for (int g = 0; g < 4; g++)
+                for (int b = 0; b < 4; b++) {
+                    col[index] = new Color(getComp(r), getComp(g), getComp(b));
+                    index++;
+                }
+
+        int[] rgb = new int[col.length];
+        for (int i = 0; i < rgb.length; i++)
+            rgb[i] = col[i].getRGB() & 0xffffff;
+        return rgb;
+    }
+
+    private static int getComp(int c) {
+        return (255 * c) / 3;
+    }
+}
@@ -1,5 +1,6 @@
 package de.neemann.digital.gui.components.graphics;
 
+import de.neemann.digital.core.ModelSnapshot;
 import de.neemann.digital.core.Node;
 import de.neemann.digital.core.NodeException;
 import de.neemann.digital.core.ObservableValue;
@@ -9,10 +10,12 @@ import de.neemann.digital.core.element.ElementAttributes;
 import de.neemann.digital.core.element.ElementTypeDescription;
 import de.neemann.digital.core.element.Keys;
 import de.neemann.digital.core.memory.DataField;
+import de.neemann.digital.core.memory.MemoryTrace;
 import de.neemann.digital.core.memory.RAMInterface;
 
 import javax.swing.*;
-
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static de.neemann.digital.core.element.PinInfo.input;
@@ -40,15 +43,19 @@ public class GraphicCard extends Node implements Element, RAMInterface {
             .addAttribute(Keys.BITS)
             .addAttribute(Keys.LABEL)
             .addAttribute(Keys.GRAPHIC_WIDTH)
-            .addAttribute(Keys.GRAPHIC_HEIGHT);
+            .addAttribute(Keys.GRAPHIC_HEIGHT)
+            .addAttribute(Keys.TRACE_SIZE);
 
     private final DataField memory;
     private final int width;
     private final int height;
     private final int bankSize;
 
+    private final Framebuffer framebuffer;
     private GraphicDialog graphicDialog;
+    private volatile boolean dialogShown;
     private final int size;
+    private final MemoryTrace trace;
     private final String label;
     private final int bits;
     private final int addrBits;
@@ -61,6 +68,8 @@ public class GraphicCard extends Node implements Element, RAMInterface {
     private ObservableValue bankIn;
     private boolean lastClk;
     private boolean ld;
+    // the address of the last read recorded in the trace, -1 if no read is enabled
+    private int tracedAddr = -1;
     private int addr;
     private boolean lastBank;
 
@@ -82,6 +91,11 @@ public class GraphicCard extends Node implements Element, RAMInterface {
 
         addrBits = aBits;
         memory = new DataField(size);
+        trace = MemoryTrace.create(attr);
+        framebuffer = new Framebuffer(width, height);
+        // stores are written to the framebuffer directly, the listener handles the modifications
+        // made by the data editor and clearing or restoring the memory
+        memory.addCoalescedListener(this::memoryChanged);
 
         dataOut = new ObservableValue("D", bits, true)
                 .setPinDescription(DESCRIPTION)
@@ -103,6 +117,16 @@ public class GraphicCard extends Node implements Element, RAMInterface {
         return dataOut.asList();
     }
 
+    @Override
+    public boolean isLevelizable() {
+        return false;
+    }
+
+    @Override
+    public boolean hasSideEffectsInReadInputs() {
+        return true;
+    }
+
     @Override
     public void readInputs() throws NodeException {
         long data = 0;
@@ -123,27 +147,67 @@ public class GraphicCard extends Node implements Element, RAMInterface {
 
         if (str) {
             memory.setData(addr, data);
+            if (trace != null)
+                trace.write(getModel().getStepCounter(), addr, data);
+            framebuffer.set(addr, data);
             if (addr >= bankSize == bank)
-                updateGraphic(bank);
+                showGraphic();
         }
 
-        if (lastBank != bank)
-            updateGraphic(bank);
+        if (lastBank != bank) {
+            framebuffer.setBank(bank ? 1 : 0);
+            showGraphic();
+        }
 
         lastBank = bank;
 
         lastClk = clk;
     }
 
+    @Override
+    public void saveState(ModelSnapshot.Writer writer) {
+        writer.write(lastClk).write(lastBank);
+        memory.saveState(writer);
+    }
+
+    @Override
+    public void restoreState(ModelSnapshot.Reader reader) {
+        lastClk = reader.readBool();
+        lastBank = reader.readBool();
+        memory.restoreState(reader);
+        framebuffer.setBank(lastBank ? 1 : 0);
+    }
+
     @Override
     public void writeOutputs() throws NodeException {
         if (ld) {
-            dataOut.set(memory.getDataWord(addr), false);
+            long data = memory.getDataWord(addr);
+            dataOut.set(data, false);
+            if (trace != null && addr != tracedAddr) {
+                trace.read(getModel().getStepCounter(), addr, data);
+                tracedAddr = addr;
+            }
         } else {
             dataOut.set(0, true);
+            tracedAddr = -1;
         }
     }
 
+    private void memoryChanged(int a, int len) {
+        if (a < 0)
+            framebuffer.setAll(memory);
+        else
+            for (int i = a; i < a + len; i++)
+                framebuffer.set(i, memory.getDataWord(i));
+    }
+
+    /**
+     * @return the framebuffer which shows the memory
+     */
+    Framebuffer getFramebuffer() {
+        return framebuffer;
+    }
+
     @Override
     public DataField getMemory() {
         return memory;
@@ -151,15 +215,21 @@ public class GraphicCard extends Node implements Element, RAMInterface {
 
     private final AtomicBoolean paintPending = new AtomicBoolean();
 
-    private void updateGraphic(boolean bank) {
-        if (paintPending.compareAndSet(false, true)) {
+    private void showGraphic() {
+        if (!dialogShown && paintPending.compareAndSet(false, true)) {
             SwingUtilities.invokeLater(() -> {
                 if (graphicDialog == null || !graphicDialog.isVisible()) {
-                    graphicDialog = new GraphicDialog(getModel().getWindowPosManager().getMainFrame(), width, height);
+                    graphicDialog = new GraphicDialog(getModel().getWindowPosManager().getMainFrame(), framebuffer);
                     getModel().getWindowPosManager().register("GraphicCard_" + label, graphicDialog);
+                    graphicDialog.addWindowListener(new WindowAdapter() {
+                        @Override
+                        public void windowClosed(WindowEvent e) {
+                            dialogShown = false;
+                        }
+                    });
                 }
+                dialogShown = true;
                 paintPending.set(false);
-                graphicDialog.updateGraphic(memory, bank);
             });
         }
     }
@@ -183,4 +253,9 @@ public class GraphicCard extends Node implements Element, RAMInterface {
     public int getAddrBits() {
         return addrBits;
     }
+
+    @Override
+    public MemoryTrace getTrace() {
+        return trace;
+    }
 }
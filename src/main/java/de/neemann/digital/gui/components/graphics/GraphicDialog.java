@@ -1,6 +1,5 @@
 package de.neemann.digital.gui.components.graphics;
 
-import de.neemann.digital.core.memory.DataField;
 import de.neemann.digital.lang.Lang;
 
 import javax.swing.*;
@@ -12,34 +11,20 @@ import java.awt.*;
  * @author hneemann
  */
 public class GraphicDialog extends JDialog {
-    private final GraphicComponent graphicComponent;
-
     /**
-     * Creates a new instance of the given size
+     * Creates a new instance showing the given framebuffer
      *
-     * @param parent the parent window
-     * @param width  width in pixel
-     * @param height height in pixel
+     * @param parent      the parent window
+     * @param framebuffer the framebuffer to show
      */
-    public GraphicDialog(Window parent, int width, int height) {
+    public GraphicDialog(Window parent, Framebuffer framebuffer) {
         super(parent, Lang.get("elem_GraphicCard"), ModalityType.MODELESS);
         setDefaultCloseOperation(DISPOSE_ON_CLOSE);
 
-        graphicComponent = new GraphicComponent(width, height);
-        getContentPane().add(graphicComponent);
+        getContentPane().add(new GraphicComponent(framebuffer));
         pack();
 
         setLocationRelativeTo(null);
         setVisible(true);
     }
-
-    /**
-     * Updates the graphics data
-     *
-     * @param memory the raw data to use
-     * @param bank   the bank to show
-     */
-    public void updateGraphic(DataField memory, boolean bank) {
-        graphicComponent.updateGraphic(memory.getData(), bank);
-    }
 }
@@ -37,6 +37,7 @@ public class LedMatrix extends Node implements Element {
     private final int dx;
     private final int dy;
     private final long[] data;
+    private final DirtyRegion dirty = new DirtyRegion();
     private final Color color;
     private final boolean ledPersist;
     private final String label;
@@ -71,12 +72,18 @@ public class LedMatrix extends Node implements Element {
         return ObservableValues.EMPTY_LIST;
     }
 
+    @Override
+    public boolean hasSideEffectsInReadInputs() {
+        return true;
+    }
+
     @Override
     public void readInputs() throws NodeException {
         long rowData = rowDataVal.getValue();
         int colAddr = (int) colAddrVal.getValue();
         if (colAddr < dx && data[colAddr] != rowData) {
             data[colAddr] = rowData;
+            dirty.add(colAddr, 0, 1, dy);
             dataChanged(colAddr, rowData);
         }
     }
@@ -91,7 +98,7 @@ public class LedMatrix extends Node implements Element {
         if (paintPending.compareAndSet(false, true)) {
             SwingUtilities.invokeLater(() -> {
                 if (ledMatrixDialog == null || !ledMatrixDialog.isVisible()) {
-                    ledMatrixDialog = new LedMatrixDialog(getModel().getWindowPosManager().getMainFrame(), dy, data, color, ledPersist);
+                    ledMatrixDialog = new LedMatrixDialog(getModel().getWindowPosManager().getMainFrame(), dy, data, dirty, color, ledPersist);
                     getModel().getWindowPosManager().register("ledMatrix_" + label, ledMatrixDialog);
                 }
                 paintPending.set(false);
@@ -5,6 +5,7 @@ import java.awt.*;
 
 /**
  * Component to visualize a LED matrix
+ * Only the columns which have changed are repainted, at most once per frame.
  * Created by hneemann on 08.04.17.
  */
 public class LedMatrixComponent extends JComponent {
@@ -13,6 +14,8 @@ public class LedMatrixComponent extends JComponent {
     private final long[] data;
     private final Color color;
     private final boolean ledPersist;
+    private final DirtyRegion dirty;
+    private final Timer timer;
     private int lastCol;
 
     /**
@@ -20,15 +23,17 @@ public class LedMatrixComponent extends JComponent {
      *
      * @param dy         height of matrix
      * @param data       data
+     * @param dirty      the columns which have changed
      * @param color      the LEDs color
      * @param ledPersist if true the LEDs light up indefinite
      */
-    public LedMatrixComponent(int dy, long[] data, Color color, boolean ledPersist) {
+    LedMatrixComponent(int dy, long[] data, DirtyRegion dirty, Color color, boolean ledPersist) {
         this.width = data.length;
         this.height = dy;
         this.data = data;
         this.color = color;
         this.ledPersist = ledPersist;
+        this.dirty = dirty;
 
         int pw = 320 / width;
         if (pw < 2) pw = 2;
@@ -39,6 +44,20 @@ public class LedMatrixComponent extends JComponent {
         Dimension size = new Dimension(width * ledSize, height * ledSize);
         setPreferredSize(size);
         setOpaque(false);
+
+        timer = dirty.createTimer(this, width, height);
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        timer.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        timer.stop();
+        super.removeNotify();
     }
 
     /**
@@ -48,15 +67,21 @@ public class LedMatrixComponent extends JComponent {
      * @param rowData updated data
      */
     public void updateGraphic(int colAddr, long rowData) {
+        if (!ledPersist && colAddr != lastCol) {
+            dirty.add(lastCol, 0, 1, height);
+            dirty.add(colAddr, 0, 1, height);
+        }
         lastCol = colAddr;
-        repaint();
     }
 
     @Override
     protected void paintComponent(Graphics g) {
+        Rectangle clip = g.getClipBounds();
         for (int x = 0; x < width; x++) {
             int xPos = x * getWidth() / width;
             int dx = (x + 1) * getWidth() / width - xPos;
+            if (clip != null && (xPos + dx < clip.x || xPos > clip.x + clip.width))
+                continue;
             long word = data[x];
             long mask = 1;
             for (int y = 0; y < height; y++) {
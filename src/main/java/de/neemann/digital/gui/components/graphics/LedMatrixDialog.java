@@ -19,14 +19,15 @@ public class LedMatrixDialog extends JDialog {
      * @param parent     the parent frame
      * @param dy         height of matrix
      * @param data       data
+     * @param dirty      the columns which have changed
      * @param color      the LEDs color
      * @param ledPersist if true the LEDs light up indefinite
      */
-    public LedMatrixDialog(JFrame parent, int dy, long[] data, Color color, boolean ledPersist) {
+    LedMatrixDialog(JFrame parent, int dy, long[] data, DirtyRegion dirty, Color color, boolean ledPersist) {
         super(parent, Lang.get("elem_LedMatrix"), false);
         setDefaultCloseOperation(DISPOSE_ON_CLOSE);
 
-        ledMatrixComponent = new LedMatrixComponent(dy, data, color, ledPersist);
+        ledMatrixComponent = new LedMatrixComponent(dy, data, dirty, color, ledPersist);
         getContentPane().add(ledMatrixComponent);
         pack();
 
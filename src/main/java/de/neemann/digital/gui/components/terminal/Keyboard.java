@@ -1,5 +1,6 @@
 package de.neemann.digital.gui.components.terminal;
 
+import de.neemann.digital.core.ModelSnapshot;
 import de.neemann.digital.core.Node;
 import de.neemann.digital.core.NodeException;
 import de.neemann.digital.core.ObservableValue;
@@ -55,6 +56,16 @@ public class Keyboard extends Node implements Element {
         return data.asList();
     }
 
+    @Override
+    public boolean isLevelizable() {
+        return false;
+    }
+
+    @Override
+    public boolean hasSideEffectsInReadInputs() {
+        return true;
+    }
+
     @Override
     public void readInputs() throws NodeException {
         sel = select.getBool();
@@ -68,6 +79,17 @@ public class Keyboard extends Node implements Element {
         lastSel = sel;
     }
 
+    @Override
+    public void saveState(ModelSnapshot.Writer writer) {
+        writer.write(lastSel).write(keyData);
+    }
+
+    @Override
+    public void restoreState(ModelSnapshot.Reader reader) {
+        lastSel = reader.readBool();
+        keyData = reader.readInt();
+    }
+
     @Override
     public void writeOutputs() throws NodeException {
         data.set(keyData, !sel);
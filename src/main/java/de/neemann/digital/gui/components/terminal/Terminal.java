@@ -1,5 +1,6 @@
 package de.neemann.digital.gui.components.terminal;
 
+import de.neemann.digital.core.ModelSnapshot;
 import de.neemann.digital.core.Node;
 import de.neemann.digital.core.NodeException;
 import de.neemann.digital.core.ObservableValue;
@@ -58,6 +59,16 @@ public class Terminal extends Node implements Element {
         return ObservableValues.EMPTY_LIST;
     }
 
+    @Override
+    public boolean isLevelizable() {
+        return false;
+    }
+
+    @Override
+    public boolean hasSideEffectsInReadInputs() {
+        return true;
+    }
+
     @Override
     public void readInputs() throws NodeException {
         boolean clockVal = clock.getBool();
@@ -75,6 +86,16 @@ public class Terminal extends Node implements Element {
         lastClock = clockVal;
     }
 
+    @Override
+    public void saveState(ModelSnapshot.Writer writer) {
+        writer.write(lastClock);
+    }
+
+    @Override
+    public void restoreState(ModelSnapshot.Reader reader) {
+        lastClock = reader.readBool();
+    }
+
     @Override
     public void writeOutputs() throws NodeException {
     }
@@ -2,6 +2,7 @@ package de.neemann.digital.gui.components.testing;
 
 import de.neemann.digital.core.Model;
 import de.neemann.digital.core.NodeException;
+import de.neemann.digital.core.element.Keys;
 import de.neemann.digital.data.ValueTable;
 import de.neemann.digital.data.ValueTableModel;
 import de.neemann.digital.data.Value;
@@ -39,9 +40,11 @@ public class ValueTableDialog extends JDialog {
 
 
     private final ArrayList<ValueTable> resultTableData;
+    private final ArrayList<TestRunner> testRunners;
     private final JTabbedPane tp;
     private final Window owner;
     private final ToolTipAction asGraph;
+    private int errorTab = -1;
 
     /**
      * Creates a new result dialog.
@@ -55,6 +58,7 @@ public class ValueTableDialog extends JDialog {
         setDefaultCloseOperation(DISPOSE_ON_CLOSE);
 
         resultTableData = new ArrayList<>();
+        testRunners = new ArrayList<>();
         tp = new JTabbedPane();
 
         JMenuBar bar = new JMenuBar();
@@ -65,10 +69,13 @@ public class ValueTableDialog extends JDialog {
             public void actionPerformed(ActionEvent e) {
                 int tab = tp.getSelectedIndex();
                 if (tab < 0) tab = 0;
+                ValueTable data = resultTableData.get(tab);
+                if (data == null)
+                    return;
                 JFileChooser fileChooser = new MyFileChooser();
                 fileChooser.setFileFilter(new FileNameExtensionFilter("Comma Separated Values", "csv"));
                 new SaveAsHelper(ValueTableDialog.this, fileChooser, "csv")
-                        .checkOverwrite(resultTableData.get(tab)::saveCSV);
+                        .checkOverwrite(data::saveCSV);
             }
         }.setToolTip(Lang.get("menu_saveData_tt")).createJMenuItem());
 
@@ -78,7 +85,10 @@ public class ValueTableDialog extends JDialog {
             public void actionPerformed(ActionEvent actionEvent) {
                 int tab = tp.getSelectedIndex();
                 if (tab < 0) tab = 0;
-                new GraphDialog(ValueTableDialog.this, Lang.get("win_testdata_N", tp.getTitleAt(tab)), resultTableData.get(tab))
+                ValueTable data = resultTableData.get(tab);
+                if (data == null)
+                    return;
+                new GraphDialog(ValueTableDialog.this, Lang.get("win_testdata_N", tp.getTitleAt(tab)), data)
                         .disableTable()
                         .setVisible(true);
             }
@@ -95,7 +105,10 @@ public class ValueTableDialog extends JDialog {
     }
 
     /**
-     * Add test results
+     * Add test results.
+     * The models are created on the calling thread, the test cases are executed concurrently.
+     * The tabs are updated as soon as a test case is finished.
+     * If the dialog is disposed, the test cases still running are cancelled.
      *
      * @param tsl     list of test sets
      * @param circuit the circuit
@@ -108,43 +121,91 @@ public class ValueTableDialog extends JDialog {
      */
     public ValueTableDialog addTestResult(ArrayList<TestSet> tsl, Circuit circuit, ElementLibrary library) throws PinException, NodeException, ElementNotFoundException, TestingDataException {
         Collections.sort(tsl);
-        int i = 0;
-        int errorTabIndex = -1;
+        int firstTab = tp.getTabCount();
+        TestRunner testRunner = new TestRunner();
         for (TestSet ts : tsl) {
-            Model model = new ModelCreator(circuit, library).createModel(false);
-
-            TestExecutor testExecutor = new TestExecutor(ts.data).create(model);
-
-            if (testExecutor.getException() != null)
-                SwingUtilities.invokeLater(new ErrorMessage(Lang.get("msg_errorWhileExecutingTests_N0", ts.name)).addCause(testExecutor.getException()).setComponent(this));
-
-            String tabName;
-            Icon tabIcon;
-            if (testExecutor.allPassed()) {
-                tabName = Lang.get("msg_test_N_Passed", ts.name);
-                tabIcon = ICON_PASSED;
-            } else {
-                tabName = Lang.get("msg_test_N_Failed", ts.name);
-                tabIcon = ICON_FAILED;
-                errorTabIndex = i;
-            }
-            if (testExecutor.toManyResults())
-                tabName += " " + Lang.get("msg_test_missingLines");
-
-            tp.addTab(tabName, tabIcon, new JScrollPane(createTable(testExecutor.getResult())));
-            if (testExecutor.toManyResults())
-                tp.setToolTipTextAt(i, new LineBreaker().toHTML().breakLines(Lang.get("msg_test_missingLines_tt")));
-            resultTableData.add(testExecutor.getResult());
-            i++;
+            Model model = new ModelCreator(circuit, library).createModel(false, circuit.getAttributes().get(Keys.OPTIMIZE_MODEL));
+            testRunner.add(ts.data, model);
+            tp.addTab(Lang.get("msg_test_N_Running", ts.name), new JScrollPane(createTable(new ValueTable(ts.data.getNames()))));
+            resultTableData.add(null);
         }
-        if (errorTabIndex >= 0)
-            tp.setSelectedIndex(errorTabIndex);
+
+        testRunners.add(testRunner);
+        testRunner.start(new TestRunner.ResultListener() {
+            @Override
+            public void testFinished(int index, TestExecutor testExecutor) {
+                SwingUtilities.invokeLater(() -> {
+                    if (!testRunner.isCancelled())
+                        showResult(firstTab + index, tsl.get(index).name, testExecutor);
+                });
+            }
+
+            @Override
+            public void testFailed(int index, Exception e) {
+                SwingUtilities.invokeLater(() -> {
+                    if (!testRunner.isCancelled())
+                        showError(firstTab + index, tsl.get(index).name, e);
+                });
+            }
+        });
 
         pack();
         setLocationRelativeTo(owner);
         return this;
     }
 
+    @Override
+    public void dispose() {
+        for (TestRunner r : testRunners)
+            r.cancel();
+        testRunners.clear();
+        super.dispose();
+    }
+
+    private void showResult(int tab, String name, TestExecutor testExecutor) {
+        if (testExecutor.getException() != null)
+            new ErrorMessage(Lang.get("msg_errorWhileExecutingTests_N0", name)).addCause(testExecutor.getException()).setComponent(this).run();
+
+        String tabName;
+        Icon tabIcon;
+        if (testExecutor.allPassed()) {
+            tabName = Lang.get("msg_test_N_Passed", name);
+            tabIcon = ICON_PASSED;
+        } else {
+            tabName = Lang.get("msg_test_N_Failed", name);
+            tabIcon = ICON_FAILED;
+        }
+        if (testExecutor.toManyResults()) {
+            tabName += " " + Lang.get("msg_test_missingLines");
+            tp.setToolTipTextAt(tab, new LineBreaker().toHTML().breakLines(Lang.get("msg_test_missingLines_tt")));
+        }
+
+        tp.setTitleAt(tab, tabName);
+        tp.setIconAt(tab, tabIcon);
+        tp.setComponentAt(tab, new JScrollPane(createTable(testExecutor.getResult())));
+        resultTableData.set(tab, testExecutor.getResult());
+        if (!testExecutor.allPassed())
+            selectErrorTab(tab);
+    }
+
+    private void showError(int tab, String name, Exception e) {
+        tp.setTitleAt(tab, Lang.get("msg_test_N_Failed", name));
+        tp.setIconAt(tab, ICON_FAILED);
+        selectErrorTab(tab);
+        new ErrorMessage(Lang.get("msg_errorWhileExecutingTests_N0", name)).addCause(e).setComponent(this).run();
+    }
+
+    /**
+     * Selects the failing tab with the lowest index.
+     * Since the tests finish in arbitrary order, a failing tab with a lower index replaces the selection.
+     */
+    private void selectErrorTab(int tab) {
+        if (errorTab < 0 || tab < errorTab) {
+            tp.setSelectedIndex(tab);
+            errorTab = tab;
+        }
+    }
+
     /**
      * Add a table to this dialog
      *
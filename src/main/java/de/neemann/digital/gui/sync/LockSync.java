@@ -40,4 +40,9 @@ public class LockSync implements Sync {
             lock.unlock();
         }
     }
+
+    @Override
+    public boolean hasWaitingThreads() {
+        return lock.hasQueuedThreads();
+    }
 }
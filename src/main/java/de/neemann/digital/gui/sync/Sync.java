@@ -28,6 +28,17 @@ public interface Sync {
      */
     <A extends Sync.ModelRun> A accessNEx(A run) throws NodeException;
 
+    /**
+     * Returns true if there are other threads waiting to access the model.
+     * Can be used by a thread which accesses the model very frequently to give
+     * the other threads a chance.
+     *
+     * @return true if there are other threads waiting
+     */
+    default boolean hasWaitingThreads() {
+        return false;
+    }
+
     /**
      * Like runnable but throws an exception
      */
@@ -0,0 +1,427 @@
+package de.neemann.digital.testing;
+
+import de.neemann.digital.core.Model;
+import de.neemann.digital.core.element.Keys;
+import de.neemann.digital.draw.elements.Circuit;
+import de.neemann.digital.draw.elements.VisualElement;
+import de.neemann.digital.draw.graphics.GraphicSVG;
+import de.neemann.digital.draw.library.ElementLibrary;
+import de.neemann.digital.draw.model.ModelCreator;
+import de.neemann.digital.draw.shapes.ShapeFactory;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the test cases of all circuits found in a directory tree without a GUI.
+ * <p>
+ * The circuits are loaded and the models are created one after the other using a shared
+ * {@link ElementLibrary}. The test cases are executed concurrently on a thread pool.
+ * The results can be written as a JUnit XML report, which can be processed by most
+ * continuous integration servers, and as a timing summary.
+ * <p>
+ * Usage: {@code java -cp Digital.jar de.neemann.digital.testing.BatchTestRunner [-threads n] [-optimize] [-report file.xml] dir}
+ * <br>
+ * The models are optimized if this is enabled in the settings of the circuit or by the -optimize option.
+ * <br>
+ * The process exits with the code 0 if all tests are passed, 1 if there are failed tests and 2
+ * if the command line is invalid.
+ */
+public class BatchTestRunner {
+    private static final int SLOWEST_SHOWN = 10;
+
+    private final File root;
+    private final int threads;
+    private final ElementLibrary library;
+    private final ShapeFactory shapeFactory;
+    private final ArrayList<Result> results;
+    private boolean optimize;
+    private int circuits;
+    private long wallTime;
+
+    /**
+     * Creates a new instance
+     *
+     * @param root    the directory to scan
+     * @param threads the number of threads used to execute the tests
+     */
+    public BatchTestRunner(File root, int threads) {
+        this.root = root;
+        this.threads = Math.max(1, threads);
+        library = new ElementLibrary();
+        shapeFactory = new ShapeFactory(library);
+        results = new ArrayList<>();
+    }
+
+    /**
+     * Optimizes all models, even if the optimization is not enabled in the circuits settings.
+     *
+     * @param optimize true if all models are to optimize
+     * @return this for chained calls
+     */
+    public BatchTestRunner setOptimize(boolean optimize) {
+        this.optimize = optimize;
+        return this;
+    }
+
+    /**
+     * Runs all test cases.
+     *
+     * @return true if all test cases are passed
+     * @throws InterruptedException InterruptedException
+     */
+    public boolean run() throws InterruptedException {
+        long time = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "BatchTestRunner");
+            t.setDaemon(true);
+            return t;
+        });
+        // limits the number of models waiting for execution
+        Semaphore pending = new Semaphore(threads * 2);
+        try {
+            scan(root, executor, pending);
+        } finally {
+            executor.shutdown();
+        }
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        wallTime = System.nanoTime() - time;
+        return allPassed();
+    }
+
+    private void scan(File dir, ExecutorService executor, Semaphore pending) throws InterruptedException {
+        File[] files = dir.listFiles();
+        if (files == null)
+            return;
+        Arrays.sort(files);
+        for (File f : files)
+            if (f.isFile() && f.getName().endsWith(".dig"))
+                runCircuit(f, executor, pending);
+        for (File f : files)
+            if (f.isDirectory() && f.getName().charAt(0) != '.')
+                scan(f, executor, pending);
+    }
+
+    private void runCircuit(File file, ExecutorService executor, Semaphore pending) throws InterruptedException {
+        circuits++;
+        String fileName = root.toPath().relativize(file.toPath()).toString().replace('\\', '/');
+        Circuit circuit;
+        try {
+            library.setRootFilePath(file.getParentFile());
+            circuit = Circuit.loadCircuit(file, shapeFactory);
+        } catch (IOException | RuntimeException e) {
+            results.add(new Result(fileName, "load").setError(e));
+            return;
+        }
+
+        int testCaseNumber = 0;
+        for (VisualElement el : circuit.getElements())
+            if (el.equalsDescription(TestCaseElement.TESTCASEDESCRIPTION)) {
+                testCaseNumber++;
+                String label = el.getElementAttributes().getCleanLabel();
+                if (label.isEmpty())
+                    label = "test case " + testCaseNumber;
+                Result result = new Result(fileName, label);
+                results.add(result);
+                try {
+                    TestCaseDescription testCase = el.getElementAttributes().get(TestCaseElement.TESTDATA);
+                    Model model = new ModelCreator(circuit, library)
+                            .createModel(false, optimize || circuit.getAttributes().get(Keys.OPTIMIZE_MODEL));
+                    TestExecutor testExecutor = new TestExecutor(testCase);
+                    pending.acquire();
+                    executor.submit(() -> {
+                        try {
+                            result.execute(testExecutor, model);
+                        } finally {
+                            pending.release();
+                        }
+                    });
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Exception e) {
+                    result.setError(e);
+                }
+            }
+    }
+
+    /**
+     * @return true if all tests are passed
+     */
+    public boolean allPassed() {
+        for (Result r : results)
+            if (r.getStatus() != Status.PASSED)
+                return false;
+        return true;
+    }
+
+    /**
+     * @return the results in the order the test cases were found
+     */
+    public List<Result> getResults() {
+        return Collections.unmodifiableList(results);
+    }
+
+    private static int count(List<Result> list, Status status) {
+        int n = 0;
+        for (Result r : list)
+            if (r.getStatus() == status)
+                n++;
+        return n;
+    }
+
+    private static long sumTime(List<Result> list) {
+        long t = 0;
+        for (Result r : list)
+            t += r.getTime();
+        return t;
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.US, "%.3f", nanos / 1e9);
+    }
+
+    /**
+     * Writes the results as a JUnit XML report.
+     * Every circuit is written as a test suite.
+     *
+     * @param w the writer to write to
+     * @throws IOException IOException
+     */
+    public void writeJUnitXML(Writer w) throws IOException {
+        w.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        w.write("<testsuites tests=\"" + results.size()
+                + "\" failures=\"" + count(results, Status.FAILED)
+                + "\" errors=\"" + count(results, Status.ERROR)
+                + "\" time=\"" + seconds(wallTime) + "\">\n");
+        int i = 0;
+        while (i < results.size()) {
+            String file = results.get(i).getFile();
+            int j = i;
+            while (j < results.size() && results.get(j).getFile().equals(file))
+                j++;
+            List<Result> suite = results.subList(i, j);
+            w.write("  <testsuite name=\"" + GraphicSVG.escapeXML(file)
+                    + "\" tests=\"" + suite.size()
+                    + "\" failures=\"" + count(suite, Status.FAILED)
+                    + "\" errors=\"" + count(suite, Status.ERROR)
+                    + "\" time=\"" + seconds(sumTime(suite)) + "\">\n");
+            for (Result r : suite) {
+                w.write("    <testcase classname=\"" + GraphicSVG.escapeXML(file)
+                        + "\" name=\"" + GraphicSVG.escapeXML(r.getName())
+                        + "\" time=\"" + seconds(r.getTime()) + "\"");
+                switch (r.getStatus()) {
+                    case FAILED:
+                        w.write(">\n      <failure message=\"" + GraphicSVG.escapeXML(r.getMessage()) + "\"/>\n    </testcase>\n");
+                        break;
+                    case ERROR:
+                        w.write(">\n      <error message=\"" + GraphicSVG.escapeXML(r.getMessage())
+                                + "\" type=\"" + r.getCause().getClass().getName() + "\">"
+                                + GraphicSVG.escapeXML(getStackTrace(r.getCause())) + "</error>\n    </testcase>\n");
+                        break;
+                    default:
+                        w.write("/>\n");
+                }
+            }
+            w.write("  </testsuite>\n");
+            i = j;
+        }
+        w.write("</testsuites>\n");
+    }
+
+    private static String getStackTrace(Throwable e) {
+        StringWriter sw = new StringWriter();
+        e.printStackTrace(new PrintWriter(sw));
+        return sw.toString();
+    }
+
+    /**
+     * Writes a summary containing the failed tests and the slowest test cases.
+     *
+     * @param out the stream to write to
+     */
+    public void writeSummary(PrintStream out) {
+        for (Result r : results)
+            if (r.getStatus() != Status.PASSED)
+                out.println(r.getStatus() + ": " + r.getFile() + ": " + r.getName() + ": " + r.getMessage());
+
+        ArrayList<Result> sorted = new ArrayList<>(results);
+        sorted.sort((a, b) -> Long.compare(b.getTime(), a.getTime()));
+        out.println("slowest test cases:");
+        for (int i = 0; i < Math.min(SLOWEST_SHOWN, sorted.size()); i++) {
+            Result r = sorted.get(i);
+            out.println("  " + seconds(r.getTime()) + "s " + r.getFile() + ": " + r.getName());
+        }
+
+        out.println("circuits: " + circuits
+                + ", tests: " + results.size()
+                + ", passed: " + count(results, Status.PASSED)
+                + ", failed: " + count(results, Status.FAILED)
+                + ", errors: " + count(results, Status.ERROR));
+        out.println("time: " + seconds(wallTime) + "s, cpu: " + seconds(sumTime(results))
+                + "s, threads: " + threads);
+    }
+
+    /**
+     * The state of a test case
+     */
+    public enum Status {
+        /**
+         * the test case is passed
+         */
+        PASSED,
+        /**
+         * the circuit does not behave as expected
+         */
+        FAILED,
+        /**
+         * the test case could not be executed
+         */
+        ERROR
+    }
+
+    /**
+     * The result of a single test case
+     */
+    public static final class Result {
+        private final String file;
+        private final String name;
+        private Status status = Status.PASSED;
+        private String message = "";
+        private Exception cause;
+        private long time;
+
+        private Result(String file, String name) {
+            this.file = file;
+            this.name = name;
+        }
+
+        private Result setError(Exception e) {
+            status = Status.ERROR;
+            cause = e;
+            message = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+            return this;
+        }
+
+        private void execute(TestExecutor testExecutor, Model model) {
+            long start = System.nanoTime();
+            try {
+                testExecutor.create(model);
+                if (testExecutor.getException() != null)
+                    setError(testExecutor.getException());
+                else if (!testExecutor.allPassed()) {
+                    status = Status.FAILED;
+                    message = testExecutor.getFailedRowCount() + " of " + testExecutor.getRowCount() + " rows failed";
+                }
+            } catch (Exception e) {
+                setError(e);
+            }
+            time = System.nanoTime() - start;
+        }
+
+        /**
+         * @return the circuit file relative to the scanned directory
+         */
+        public String getFile() {
+            return file;
+        }
+
+        /**
+         * @return the label of the test case
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the status of the test case
+         */
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * @return the reason why the test case is not passed
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        /**
+         * @return the exception which occurred, null if there was none
+         */
+        public Exception getCause() {
+            return cause;
+        }
+
+        /**
+         * @return the execution time in nano seconds
+         */
+        public long getTime() {
+            return time;
+        }
+    }
+
+    /**
+     * Entry point of the batch test runner
+     *
+     * @param args the program arguments
+     */
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean optimize = false;
+        File report = null;
+        File dir = null;
+        try {
+            int i = 0;
+            while (i < args.length) {
+                String arg = args[i++];
+                switch (arg) {
+                    case "-threads":
+                        threads = Integer.parseInt(args[i++]);
+                        break;
+                    case "-optimize":
+                        optimize = true;
+                        break;
+                    case "-report":
+                        report = new File(args[i++]);
+                        break;
+                    default:
+                        if (dir != null)
+                            throw new IllegalArgumentException(arg);
+                        dir = new File(arg);
+                }
+            }
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            dir = null;
+        }
+        if (dir == null || !dir.isDirectory()) {
+            System.err.println("usage: java -cp Digital.jar " + BatchTestRunner.class.getName()
+                    + " [-threads n] [-optimize] [-report file.xml] dir");
+            System.exit(2);
+        }
+
+        try {
+            BatchTestRunner runner = new BatchTestRunner(dir, threads).setOptimize(optimize);
+            boolean passed = runner.run();
+            if (report != null)
+                try (Writer w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(report), "UTF-8"))) {
+                    runner.writeJUnitXML(w);
+                }
+            runner.writeSummary(System.out);
+            System.exit(passed ? 0 : 1);
+        } catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
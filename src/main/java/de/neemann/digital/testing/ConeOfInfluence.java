@@ -0,0 +1,122 @@
+package de.neemann.digital.testing;
+
+import de.neemann.digital.core.Model;
+import de.neemann.digital.core.NodeInterface;
+import de.neemann.digital.core.ObservableValue;
+import de.neemann.digital.core.Observer;
+import de.neemann.digital.data.Value;
+import de.neemann.digital.draw.elements.PinException;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * Determines which outputs are influenced by an input.
+ * Used to avoid the expansion of don't cares at inputs which can not change the result of a test row.
+ * <p>
+ * The observers of the input are followed forward as it is done by the
+ * {@link de.neemann.digital.analyse.DependencyAnalyser}. If the input reaches an observer whose outputs
+ * are unknown, it is always relevant.
+ * Nodes which have a state usually read some of their inputs without observing them, like the D input
+ * of a flip-flop, and a value stored in such a node or in a feedback loop may influence the following
+ * test rows. So if the model contains a node which is not in {@link Model#getAcyclicNodes()}, all inputs
+ * are relevant.
+ * The analysis of an input is done when it is needed for the first time.
+ */
+final class ConeOfInfluence {
+    private final ArrayList<TestExecutor.TestSignal> inputs;
+    private final HashMap<ObservableValue, Integer> outputs;
+    private final int[] outputCols;
+    private final Cone[] cones;
+    private final BitSet checked;
+    private final boolean hasState;
+
+    /**
+     * Creates a new instance
+     *
+     * @param model   the model
+     * @param inputs  the inputs
+     * @param outputs the outputs
+     */
+    ConeOfInfluence(Model model, ArrayList<TestExecutor.TestSignal> inputs, ArrayList<TestExecutor.TestSignal> outputs) {
+        this.inputs = inputs;
+        hasState = hasState(model);
+        this.outputs = new HashMap<>();
+        outputCols = new int[outputs.size()];
+        for (int i = 0; i < outputCols.length; i++) {
+            TestExecutor.TestSignal out = outputs.get(i);
+            this.outputs.put(out.getValue(), out.getIndex());
+            outputCols[i] = out.getIndex();
+        }
+        cones = new Cone[inputs.size()];
+        checked = new BitSet();
+    }
+
+    private static boolean hasState(Model model) {
+        return model.getAcyclicNodes().size() < model.getNodes().size();
+    }
+
+    /**
+     * Marks the columns whose outputs are checked in the given row.
+     * Must be called before {@link #isRelevant(int)} is called for this row.
+     *
+     * @param row the row
+     */
+    void setRow(Value[] row) {
+        checked.clear();
+        for (int col : outputCols)
+            if (row[col].getType() != Value.Type.DONTCARE)
+                checked.set(col);
+    }
+
+    /**
+     * Returns true if the given input is able to change the result of the row set by {@link #setRow(Value[])}
+     *
+     * @param input the number of the input
+     * @return true if the input is relevant
+     */
+    boolean isRelevant(int input) {
+        if (hasState)
+            return true;
+        Cone c = cones[input];
+        if (c == null) {
+            c = new Cone(inputs.get(input).getValue());
+            cones[input] = c;
+        }
+        if (c.unknown)
+            return true;
+        return c.reached.intersects(checked);
+    }
+
+    private final class Cone {
+        private final BitSet reached = new BitSet();
+        private boolean unknown;
+
+        private Cone(ObservableValue input) {
+            HashSet<ObservableValue> visited = new HashSet<>();
+            ArrayList<ObservableValue> todo = new ArrayList<>();
+            todo.add(input);
+            while (!todo.isEmpty() && !unknown) {
+                ObservableValue v = todo.remove(todo.size() - 1);
+                if (!visited.add(v))
+                    continue;
+                Integer col = outputs.get(v);
+                if (col != null)
+                    reached.set(col);
+                for (Observer o : v.getObservers()) {
+                    if (o instanceof NodeInterface) {
+                        try {
+                            for (ObservableValue out : ((NodeInterface) o).getOutputs())
+                                todo.add(out);
+                        } catch (PinException e) {
+                            unknown = true;
+                        }
+                    } else
+                        unknown = true;
+                }
+            }
+        }
+    }
+}
@@ -6,13 +6,20 @@ import de.neemann.digital.testing.parser.LineListener;
 import java.util.ArrayList;
 
 /**
- * Resolves don't cares in the inputs list
+ * Resolves don't cares in the inputs list.
+ * If a {@link ConeOfInfluence} is given, don't cares at inputs which can not influence the
+ * checked outputs are not resolved, and the row is only evaluated once. Such inputs keep the don't care
+ * value, which is applied to the model as zero.
  * Created by hneemann on 19.04.17.
  */
 public class LineListenerResolveDontCare implements LineListener {
+    private static final Value ZERO = new Value(0);
+    private static final Value ONE = new Value(1);
 
     private final LineListener parent;
     private final ArrayList<TestExecutor.TestSignal> inputs;
+    private final ConeOfInfluence cone;
+    private final int[] dcIndex;
 
     /**
      * Create a new instance
@@ -21,29 +28,47 @@ public class LineListenerResolveDontCare implements LineListener {
      * @param inputs the input test signals
      */
     public LineListenerResolveDontCare(LineListener parent, ArrayList<TestExecutor.TestSignal> inputs) {
+        this(parent, inputs, null);
+    }
+
+    /**
+     * Create a new instance
+     *
+     * @param parent the parent listener
+     * @param inputs the input test signals
+     * @param cone   used to skip irrelevant inputs, maybe null
+     */
+    LineListenerResolveDontCare(LineListener parent, ArrayList<TestExecutor.TestSignal> inputs, ConeOfInfluence cone) {
         this.parent = parent;
         this.inputs = inputs;
+        this.cone = cone;
+        dcIndex = new int[inputs.size()];
     }
 
     @Override
     public void add(Value[] row) {
-        ArrayList<Integer> dcIndex = null;
-        for (TestExecutor.TestSignal in : inputs) {
-            if (row[in.getIndex()].getType() == Value.Type.DONTCARE) {
-                if (dcIndex == null)
-                    dcIndex = new ArrayList<>();
-                dcIndex.add(in.getIndex());
+        int dcCount = 0;
+        boolean rowSet = false;
+        for (int i = 0; i < inputs.size(); i++) {
+            int index = inputs.get(i).getIndex();
+            if (row[index].getType() == Value.Type.DONTCARE) {
+                if (cone != null && !rowSet) {
+                    cone.setRow(row);
+                    rowSet = true;
+                }
+                if (cone == null || cone.isRelevant(i))
+                    dcIndex[dcCount++] = index;
             }
         }
-        if (dcIndex == null)
+
+        if (dcCount == 0)
             parent.add(row);
         else {
-            int count = 1 << dcIndex.size();
+            int count = 1 << dcCount;
             for (int n = 0; n < count; n++) {
                 int mask = 1;
-                for (int in : dcIndex) {
-                    boolean val = (n & mask) != 0;
-                    row[in] = new Value(val ? 1 : 0);
+                for (int i = 0; i < dcCount; i++) {
+                    row[dcIndex[i]] = (n & mask) != 0 ? ONE : ZERO;
                     mask *= 2;
                 }
                 parent.add(row);
@@ -26,6 +26,33 @@ public class MatchedValue extends Value {
         mask = (1L << found.getBits()) - 1;
     }
 
+    /**
+     * Creates a new instance
+     *
+     * @param expected the expected value
+     * @param found    the found value
+     * @param bits     the number of bits of the found value
+     */
+    MatchedValue(Value expected, long found, int bits) {
+        super(found);
+        this.expected = expected;
+        mask = (1L << bits) - 1;
+    }
+
+    /**
+     * Creates a new instance
+     *
+     * @param expected the expected value
+     * @param found    the found value
+     * @param highZ    true if the found value is high z
+     * @param bits     the number of bits of the found value
+     */
+    MatchedValue(Value expected, long found, boolean highZ, int bits) {
+        super(highZ ? 0 : found, highZ ? Type.HIGHZ : Type.NORMAL);
+        this.expected = expected;
+        mask = (1L << bits) - 1;
+    }
+
     /**
      * @return true if test is passed
      */
@@ -33,6 +60,32 @@ public class MatchedValue extends Value {
         return isEqualTo(expected, mask);
     }
 
+    /**
+     * Checks a found value without creating a {@link MatchedValue} instance.
+     * Gives the same result as {@link #isPassed()}.
+     *
+     * @param expected the expected value
+     * @param found    the found value
+     * @param highZ    true if the found value is high z
+     * @param bits     the number of bits of the found value
+     * @return true if the test is passed
+     */
+    static boolean isPassed(Value expected, long found, boolean highZ, int bits) {
+        if (expected == null)
+            return false;
+        if (expected.getType() == Type.DONTCARE)
+            return true;
+        if (expected.getType() != (highZ ? Type.HIGHZ : Type.NORMAL))
+            return false;
+        if (highZ)
+            return true;
+        long mask = (1L << bits) - 1;
+        if (mask == 0)
+            return found == expected.getValue();
+        else
+            return (found & mask) == (expected.getValue() & mask);
+    }
+
     @Override
     public String toString() {
         if (isPassed())
@@ -0,0 +1,300 @@
+package de.neemann.digital.testing;
+
+import de.neemann.digital.core.IntFormat;
+import de.neemann.digital.data.Value;
+import de.neemann.digital.data.ValueTable;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the rows of a test run.
+ * <p>
+ * The first rows are stored completely in the result table. If this table becomes too large,
+ * passing rows are only counted. The last few rows are kept in preallocated buffers, so
+ * a failing row can be stored together with the rows in front of and behind it.
+ * Thus, only failing rows and their context cause allocations.
+ * Optionally all rows are written to a {@link Writer}.
+ */
+final class ResultRecorder {
+    private static final int MAX_RESULTS = 1 << 10;
+    private static final int ERR_RESULTS = MAX_RESULTS * 2;
+    private static final int CONTEXT = 4;
+    // a clocked test row creates two additional rows
+    private static final int RING_SIZE = CONTEXT * 3;
+    private static final Value ZERO = new Value(0);
+    private static final Value ONE = new Value(1);
+
+    private final ValueTable results;
+    private final List<String> names;
+    private final int[] inputCols;
+    private final int[] outputCols;
+    private final int[] outputBits;
+    private final boolean[] isOutput;
+    private final int cols;
+
+    private final Value[] values;
+    private final long[] found;
+    private final boolean[] highZ;
+
+    private final Value[][] ringValues;
+    private final long[][] ringFound;
+    private final boolean[][] ringHighZ;
+    private final boolean[] ringClock;
+    private int ringStart;
+    private int ringSize;
+    private int ringTestRows;
+
+    private final ArrayList<TestExecutor.TestSignal> inputs;
+    private final ArrayList<TestExecutor.TestSignal> outputs;
+    private boolean streaming;
+    private int context;
+    private boolean toManyResults;
+    private long rows;
+    private long failedRows;
+    private Writer writer;
+
+    /**
+     * Creates a new instance
+     *
+     * @param results the table to store the rows in
+     * @param names   the names of the columns
+     * @param inputs  the inputs
+     * @param outputs the outputs
+     */
+    ResultRecorder(ValueTable results, List<String> names, ArrayList<TestExecutor.TestSignal> inputs, ArrayList<TestExecutor.TestSignal> outputs) {
+        this.results = results;
+        this.names = names;
+        this.inputs = inputs;
+        this.outputs = outputs;
+        cols = names.size();
+        inputCols = new int[inputs.size()];
+        for (int i = 0; i < inputCols.length; i++)
+            inputCols[i] = inputs.get(i).getIndex();
+        outputCols = new int[outputs.size()];
+        outputBits = new int[outputs.size()];
+        isOutput = new boolean[cols];
+        for (int i = 0; i < outputCols.length; i++) {
+            outputCols[i] = outputs.get(i).getIndex();
+            outputBits[i] = outputs.get(i).getValue().getBits();
+            isOutput[outputCols[i]] = true;
+        }
+
+        values = new Value[cols];
+        found = new long[cols];
+        highZ = new boolean[cols];
+
+        ringValues = new Value[RING_SIZE][cols];
+        ringFound = new long[RING_SIZE][cols];
+        ringHighZ = new boolean[RING_SIZE][cols];
+        ringClock = new boolean[RING_SIZE];
+    }
+
+    /**
+     * Sets the writer all test rows are written to as csv.
+     * The writer is not closed by this class.
+     *
+     * @param writer the writer, maybe null
+     * @throws IOException IOException
+     */
+    void setWriter(Writer writer) throws IOException {
+        this.writer = writer;
+        if (writer != null) {
+            writer.write("\"step\"");
+            for (String n : names)
+                writer.write(",\"" + n + '"');
+            writer.write(",\"passed\"\n");
+        }
+    }
+
+    /**
+     * Starts a new test row
+     *
+     * @param row the inputs and the expected outputs
+     */
+    void startRow(Value[] row) {
+        System.arraycopy(row, 0, values, 0, cols);
+    }
+
+    /**
+     * Replaces the value of an input in the current row
+     *
+     * @param i     the number of the input
+     * @param value the value
+     */
+    void setInput(int i, boolean value) {
+        values[inputCols[i]] = value ? ONE : ZERO;
+    }
+
+    /**
+     * Sets the found value of an output in the current row
+     *
+     * @param i     the number of the output
+     * @param value the found value
+     * @param z     true if the found value is high z
+     * @return true if the found value matches the expected value
+     */
+    boolean setOutput(int i, long value, boolean z) {
+        int col = outputCols[i];
+        found[col] = value;
+        highZ[col] = z;
+        return MatchedValue.isPassed(values[col], value, z, outputBits[i]);
+    }
+
+    /**
+     * Finishes the current test row
+     *
+     * @param ok true if all outputs have matched
+     */
+    void finishRow(boolean ok) {
+        rows++;
+        if (!ok)
+            failedRows++;
+        if (writer != null)
+            write(ok);
+        record(false, ok);
+    }
+
+    /**
+     * Adds a row which shows the state of the model while the clock is processed.
+     * The values are taken from the model.
+     */
+    void addClockRow() {
+        for (TestExecutor.TestSignal s : inputs) {
+            found[s.getIndex()] = s.getValue().getValue();
+            highZ[s.getIndex()] = s.getValue().isHighZ();
+        }
+        for (TestExecutor.TestSignal s : outputs) {
+            found[s.getIndex()] = s.getValue().getValue();
+            highZ[s.getIndex()] = s.getValue().isHighZ();
+        }
+        record(true, true);
+    }
+
+    private void record(boolean clock, boolean ok) {
+        if (!streaming) {
+            if (results.getRows() < MAX_RESULTS) {
+                store(values, found, highZ, clock);
+                return;
+            }
+            streaming = true;
+            toManyResults = true;
+        }
+
+        if (!ok) {
+            while (ringSize > 0)
+                storeRingHead();
+            store(values, found, highZ, false);
+            context = CONTEXT;
+        } else if (context > 0) {
+            store(values, found, highZ, clock);
+            if (!clock)
+                context--;
+        } else
+            push(clock);
+    }
+
+    private void push(boolean clock) {
+        if (ringSize == RING_SIZE)
+            removeTestRowFromRing();
+        int pos = (ringStart + ringSize) % RING_SIZE;
+        System.arraycopy(values, 0, ringValues[pos], 0, cols);
+        System.arraycopy(found, 0, ringFound[pos], 0, cols);
+        System.arraycopy(highZ, 0, ringHighZ[pos], 0, cols);
+        ringClock[pos] = clock;
+        ringSize++;
+        if (!clock) {
+            ringTestRows++;
+            if (ringTestRows > CONTEXT)
+                removeTestRowFromRing();
+        }
+    }
+
+    /**
+     * Removes the oldest test row together with its clock rows
+     */
+    private void removeTestRowFromRing() {
+        while (ringSize > 0) {
+            boolean clock = ringClock[ringStart];
+            pop();
+            if (!clock)
+                return;
+        }
+    }
+
+    private void storeRingHead() {
+        store(ringValues[ringStart], ringFound[ringStart], ringHighZ[ringStart], ringClock[ringStart]);
+        pop();
+    }
+
+    private void pop() {
+        if (!ringClock[ringStart])
+            ringTestRows--;
+        ringStart = (ringStart + 1) % RING_SIZE;
+        ringSize--;
+    }
+
+    private void store(Value[] v, long[] f, boolean[] z, boolean clock) {
+        if (results.getRows() >= ERR_RESULTS) {
+            toManyResults = true;
+            return;
+        }
+
+        Value[] r = new Value[cols];
+        if (clock) {
+            for (int col : inputCols)
+                r[col] = z[col] ? Value.getHighZ() : new Value(f[col]);
+            for (int col : outputCols)
+                r[col] = z[col] ? Value.getHighZ() : new Value(f[col]);
+            results.add(r).omitInTable();
+        } else {
+            for (int col : inputCols)
+                r[col] = v[col];
+            for (int i = 0; i < outputCols.length; i++) {
+                int col = outputCols[i];
+                r[col] = new MatchedValue(v[col], f[col], z[col], outputBits[i]);
+            }
+            results.add(r);
+        }
+    }
+
+    private void write(boolean ok) {
+        try {
+            writer.write("\"" + (rows - 1) + "\"");
+            for (int col = 0; col < cols; col++) {
+                writer.write(",\"");
+                if (isOutput[col])
+                    writer.write(highZ[col] ? "Z" : IntFormat.toShortHex(found[col]));
+                else
+                    writer.write(String.valueOf(values[col]));
+                writer.write('"');
+            }
+            writer.write(ok ? ",\"1\"\n" : ",\"0\"\n");
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return true if not all rows are stored in the result table
+     */
+    boolean toManyResults() {
+        return toManyResults;
+    }
+
+    /**
+     * @return the number of test rows
+     */
+    long getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the number of failed test rows
+     */
+    long getFailedRows() {
+        return failedRows;
+    }
+}
@@ -1,5 +1,6 @@
 package de.neemann.digital.testing;
 
+import de.neemann.digital.core.BitParallelModel;
 import de.neemann.digital.core.Model;
 import de.neemann.digital.core.NodeException;
 import de.neemann.digital.core.ObservableValue;
@@ -12,8 +13,11 @@ import de.neemann.digital.testing.parser.Context;
 import de.neemann.digital.testing.parser.LineEmitter;
 import de.neemann.digital.testing.parser.ParserException;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.concurrent.CancellationException;
 
 /**
  * Stores the test results created by a single {@link TestCaseDescription} instance.
@@ -22,17 +26,18 @@ import java.util.HashSet;
  * @author hneemann
  */
 public class TestExecutor {
-    private static final int MAX_RESULTS = 1 << 10;
-    private static final int ERR_RESULTS = MAX_RESULTS * 2;
-
     private final ArrayList<String> names;
     private final LineEmitter lines;
     private final ValueTable results;
     private boolean allPassed;
     private Exception exception;
-    private boolean toManyResults = false;
     private ArrayList<TestSignal> inputs;
     private ArrayList<TestSignal> outputs;
+    private ResultRecorder recorder;
+    private Writer rowWriter;
+    private BitParallelModel bitParallelModel;
+    private Value[][] laneRows;
+    private int laneCount;
 
     /**
      * Creates a new testing result
@@ -46,8 +51,24 @@ public class TestExecutor {
         lines = testCaseDescription.getLines();
     }
 
+    /**
+     * Sets a writer which receives all test rows as csv.
+     * Use this if all rows are needed, because the result table contains only
+     * the first rows and the failing rows with some rows around them.
+     * The writer is not closed.
+     *
+     * @param rowWriter the writer
+     * @return this for chained calls
+     */
+    public TestExecutor setRowWriter(Writer rowWriter) {
+        this.rowWriter = rowWriter;
+        return this;
+    }
+
     /**
      * Creates the result by comparing the testing vector with the given model-
+     * If the calling thread is interrupted, the test is aborted and fails with a
+     * {@link CancellationException}.
      *
      * @param model the model to check
      * @return this for chained calls
@@ -105,11 +126,18 @@ public class TestExecutor {
 
         model.init();
 
+        recorder = new ResultRecorder(results, names, inputs, outputs);
+        bitParallelModel = createBitParallelModel();
+        if (bitParallelModel != null)
+            laneRows = new Value[BitParallelModel.LANES][names.size()];
+
         try {
-            lines.emitLines(new LineListenerResolveDontCare(values -> checkRow(model, values), inputs), new Context());
+            recorder.setWriter(rowWriter);
+            lines.emitLines(new LineListenerResolveDontCare(values -> checkRow(model, values), inputs, new ConeOfInfluence(model, inputs, outputs)), new Context());
+            flushLanes();
         } catch (ParserException e) {
             throw new TestingDataException(Lang.get("err_errorParsingTestdata"), e);
-        } catch (RuntimeException e) {
+        } catch (IOException | RuntimeException e) {
             if (allPassed) {
                 allPassed = false;
                 exception = e;
@@ -125,8 +153,69 @@ public class TestExecutor {
         signals.add(name);
     }
 
+    private BitParallelModel createBitParallelModel() {
+        ArrayList<ObservableValue> in = new ArrayList<>(inputs.size());
+        for (TestSignal s : inputs)
+            in.add(s.value);
+        ArrayList<ObservableValue> out = new ArrayList<>(outputs.size());
+        for (TestSignal s : outputs)
+            out.add(s.value);
+        return BitParallelModel.create(in, out);
+    }
+
+    /**
+     * Returns true if the given row can be evaluated by the bit parallel model.
+     * This is possible if there are no clock or high z inputs.
+     */
+    private boolean isLaneRow(Value[] row) {
+        if (bitParallelModel == null)
+            return false;
+        for (TestSignal in : inputs) {
+            Value.Type t = row[in.index].getType();
+            if (t == Value.Type.CLOCK || t == Value.Type.HIGHZ)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Evaluates all collected rows in the bit parallel model.
+     */
+    private void flushLanes() {
+        if (laneCount == 0)
+            return;
+
+        for (int lane = 0; lane < laneCount; lane++) {
+            Value[] row = laneRows[lane];
+            for (int i = 0; i < inputs.size(); i++)
+                bitParallelModel.setInput(i, lane, row[inputs.get(i).index].getValue());
+        }
+        bitParallelModel.evaluate();
+
+        for (int lane = 0; lane < laneCount; lane++) {
+            recorder.startRow(laneRows[lane]);
+            boolean ok = true;
+            for (int i = 0; i < outputs.size(); i++)
+                if (!recorder.setOutput(i, bitParallelModel.getOutput(i, lane), false))
+                    ok = false;
+            finishRow(ok);
+        }
+        laneCount = 0;
+    }
+
     private void checkRow(Model model, Value[] row) {
-        Value[] res = new Value[row.length];
+        if (Thread.currentThread().isInterrupted())
+            throw new CancellationException();
+
+        if (isLaneRow(row)) {
+            // the row array is reused by the caller
+            System.arraycopy(row, 0, laneRows[laneCount], 0, row.length);
+            laneCount++;
+            if (laneCount == BitParallelModel.LANES)
+                flushLanes();
+            return;
+        }
+        flushLanes();
 
         boolean clockIsUsed = false;
         // set all values except the clocks
@@ -136,31 +225,26 @@ public class TestExecutor {
             } else {
                 clockIsUsed = true;
             }
-            res[in.index] = row[in.index];
         }
 
         try {
             if (clockIsUsed) {  // a clock signal is used
                 model.doStep();  // propagate all except clock
-                addClockRow(row.length);
+                recorder.addClockRow();
 
                 // set clock
                 for (TestSignal in : inputs)
-                    if (row[in.index].getType() == Value.Type.CLOCK) {
+                    if (row[in.index].getType() == Value.Type.CLOCK)
                         row[in.index].copyTo(in.value);
-                        res[in.index] = row[in.index];
-                    }
 
                 // propagate clock change
                 model.doStep();
-                addClockRow(row.length);
+                recorder.addClockRow();
 
                 // restore clock
                 for (TestSignal in : inputs)   // invert the clock values
-                    if (row[in.index].getType() == Value.Type.CLOCK) {
+                    if (row[in.index].getType() == Value.Type.CLOCK)
                         in.value.setBool(!in.value.getBool());
-                        res[in.index] = new Value(in.value);
-                    }
             }
 
             model.doStep();
@@ -170,32 +254,27 @@ public class TestExecutor {
             throw new RuntimeException(e);
         }
 
+        recorder.startRow(row);
+        if (clockIsUsed)
+            for (int i = 0; i < inputs.size(); i++) {
+                TestSignal in = inputs.get(i);
+                if (row[in.index].getType() == Value.Type.CLOCK)
+                    recorder.setInput(i, in.value.getBool());
+            }
+
         boolean ok = true;
-        for (TestSignal out : outputs) {
-            MatchedValue matchedValue = new MatchedValue(row[out.index], out.value);
-            res[out.index] = matchedValue;
-            if (!matchedValue.isPassed()) {
-                allPassed = false;
+        for (int i = 0; i < outputs.size(); i++) {
+            ObservableValue v = outputs.get(i).value;
+            if (!recorder.setOutput(i, v.getValue(), v.isHighZ()))
                 ok = false;
-            }
         }
-
-        if (results.getRows() < (ok ? MAX_RESULTS : ERR_RESULTS))
-            results.add(res);
-        else
-            toManyResults = true;
+        finishRow(ok);
     }
 
-    private void addClockRow(int cols) {
-        if (results.getRows() < ERR_RESULTS) {
-            Value[] r = new Value[cols];
-            for (TestSignal out : outputs)
-                r[out.index] = new Value(out.value);
-            for (TestSignal in : inputs)
-                r[in.index] = new Value(in.value);
-            results.add(r).omitInTable();
-        } else
-            toManyResults = true;
+    private void finishRow(boolean ok) {
+        if (!ok)
+            allPassed = false;
+        recorder.finishRow(ok);
     }
 
     /**
@@ -213,7 +292,21 @@ public class TestExecutor {
      * @return true if there are missing items in the results list.
      */
     public boolean toManyResults() {
-        return toManyResults;
+        return recorder != null && recorder.toManyResults();
+    }
+
+    /**
+     * @return the number of test rows executed
+     */
+    public long getRowCount() {
+        return recorder == null ? 0 : recorder.getRows();
+    }
+
+    /**
+     * @return the number of failed test rows
+     */
+    public long getFailedRowCount() {
+        return recorder == null ? 0 : recorder.getFailedRows();
     }
 
     private int getIndexOf(String name) {
@@ -253,6 +346,13 @@ public class TestExecutor {
         public int getIndex() {
             return index;
         }
+
+        /**
+         * @return the value of this signal
+         */
+        ObservableValue getValue() {
+            return value;
+        }
     }
 
     /**
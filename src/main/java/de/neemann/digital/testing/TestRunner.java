@@ -0,0 +1,159 @@
+package de.neemann.digital.testing;
+
+import de.neemann.digital.core.Model;
+import de.neemann.digital.core.NodeException;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a number of test cases concurrently.
+ * Every test case needs its own model, so the test cases are independent and are executed
+ * on a thread pool which is limited to the number of available processors.
+ * The results are reported to a {@link ResultListener} as soon as a test case is finished.
+ * The listener is called by the worker threads.
+ * The test cases can be cancelled by {@link #cancel()}.
+ */
+public class TestRunner {
+    private final ArrayList<Task> tasks;
+    private final ArrayList<Future<?>> futures;
+    private final int threads;
+    private volatile boolean cancelled;
+
+    /**
+     * Creates a new instance which uses a thread for each available processor
+     */
+    public TestRunner() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a new instance
+     *
+     * @param threads the maximum number of threads to use
+     */
+    public TestRunner(int threads) {
+        this.threads = Math.max(1, threads);
+        tasks = new ArrayList<>();
+        futures = new ArrayList<>();
+    }
+
+    /**
+     * Adds a test case.
+     * The model is used by this test case only.
+     *
+     * @param testCaseDescription the test case
+     * @param model               the model to test
+     * @return this for chained calls
+     * @throws TestingDataException TestingDataException
+     */
+    public TestRunner add(TestCaseDescription testCaseDescription, Model model) throws TestingDataException {
+        tasks.add(new Task(tasks.size(), new TestExecutor(testCaseDescription), model));
+        return this;
+    }
+
+    /**
+     * @return the number of test cases added
+     */
+    public int size() {
+        return tasks.size();
+    }
+
+    /**
+     * Starts the test cases and returns immediately.
+     *
+     * @param listener the listener which is notified if a test case is finished
+     * @return the executor service which runs the test cases, already shut down
+     */
+    public ExecutorService start(ResultListener listener) {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, tasks.size())), r -> {
+            Thread t = new Thread(r, "TestRunner");
+            t.setDaemon(true);
+            return t;
+        });
+        synchronized (futures) {
+            for (Task t : tasks)
+                futures.add(executor.submit(() -> t.run(listener)));
+        }
+        executor.shutdown();
+        return executor;
+    }
+
+    /**
+     * Cancels all test cases.
+     * Test cases not yet started are not executed, running test cases are interrupted.
+     * Test cases which finish after the cancellation are not reported to the listener.
+     */
+    public void cancel() {
+        cancelled = true;
+        synchronized (futures) {
+            for (Future<?> f : futures)
+                f.cancel(true);
+        }
+    }
+
+    /**
+     * @return true if {@link #cancel()} was called
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Runs all test cases and waits until they are finished.
+     *
+     * @param listener the listener which is notified if a test case is finished
+     * @throws InterruptedException InterruptedException
+     */
+    public void run(ResultListener listener) throws InterruptedException {
+        start(listener).awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    private final class Task {
+        private final int index;
+        private final TestExecutor testExecutor;
+        private final Model model;
+
+        private Task(int index, TestExecutor testExecutor, Model model) {
+            this.index = index;
+            this.testExecutor = testExecutor;
+            this.model = model;
+        }
+
+        private void run(ResultListener listener) {
+            try {
+                testExecutor.create(model);
+            } catch (TestingDataException | NodeException | RuntimeException e) {
+                if (!cancelled)
+                    listener.testFailed(index, e);
+                return;
+            }
+            if (!cancelled)
+                listener.testFinished(index, testExecutor);
+        }
+    }
+
+    /**
+     * Listener which is notified about finished test cases
+     */
+    public interface ResultListener {
+        /**
+         * Called if a test case is executed
+         *
+         * @param index        the index of the test case in the order they were added
+         * @param testExecutor the executed test
+         */
+        void testFinished(int index, TestExecutor testExecutor);
+
+        /**
+         * Called if a test case could not be executed
+         *
+         * @param index the index of the test case in the order they were added
+         * @param e     the cause
+         */
+        void testFailed(int index, Exception e);
+    }
+}
@@ -0,0 +1,252 @@
+package de.neemann.digital.testing.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * An expression compiled to a flat sequence of stack operations.
+ * The operations are executed in a single loop, so the evaluation needs no recursion and
+ * does not allocate memory. The stack is provided by the {@link Context}.
+ * Variables of enclosing loops are resolved to slots while parsing, so they are accessed by
+ * an index instead of a name.
+ */
+final class CompiledExpression implements Expression {
+    private static final int CONST = 0;
+    private static final int SLOT = 1;
+    private static final int VAR = 2;
+    private static final int CALL = 3;
+    private static final int NEG = 4;
+    private static final int NOT = 5;
+    static final int ADD = 6;
+    static final int SUB = 7;
+    static final int MUL = 8;
+    static final int DIV = 9;
+    static final int MOD = 10;
+    static final int SHL = 11;
+    static final int SHR = 12;
+    static final int AND = 13;
+    static final int OR = 14;
+    static final int XOR = 15;
+    static final int EQUAL = 16;
+    static final int GREATER = 17;
+    static final int SMALLER = 18;
+
+    private final int[] ops;
+    private final long[] args;
+    private final String[] names;
+    private final Expression[] calls;
+    private final int stackSize;
+
+    private CompiledExpression(Builder b) {
+        ops = Arrays.copyOf(b.ops, b.size);
+        args = Arrays.copyOf(b.args, b.size);
+        names = b.names.toArray(new String[b.names.size()]);
+        calls = b.calls.toArray(new Expression[b.calls.size()]);
+        stackSize = b.maxDepth;
+    }
+
+    @Override
+    public long value(Context c) throws ParserException {
+        int base = c.enter(stackSize);
+        try {
+            long[] s = c.getStack();
+            int sp = base;
+            for (int pc = 0; pc < ops.length; pc++) {
+                switch (ops[pc]) {
+                    case CONST:
+                        s[sp++] = args[pc];
+                        break;
+                    case SLOT:
+                        s[sp++] = c.getSlot((int) args[pc]);
+                        break;
+                    case VAR:
+                        s[sp++] = c.getVar(names[(int) args[pc]]);
+                        break;
+                    case CALL:
+                        long v = calls[(int) args[pc]].value(c);
+                        // the stack may have been enlarged by the called expression
+                        s = c.getStack();
+                        s[sp++] = v;
+                        break;
+                    case NEG:
+                        s[sp - 1] = -s[sp - 1];
+                        break;
+                    case NOT:
+                        s[sp - 1] = ~s[sp - 1];
+                        break;
+                    default:
+                        sp--;
+                        s[sp - 1] = calc(ops[pc], s[sp - 1], s[sp]);
+                }
+            }
+            return s[base];
+        } finally {
+            c.leave(base);
+        }
+    }
+
+    private static long calc(int op, long a, long b) {
+        switch (op) {
+            case ADD:
+                return a + b;
+            case SUB:
+                return a - b;
+            case MUL:
+                return a * b;
+            case DIV:
+                return a / b;
+            case MOD:
+                return a % b;
+            case SHL:
+                return a << b;
+            case SHR:
+                return a >> b;
+            case AND:
+                return a & b;
+            case OR:
+                return a | b;
+            case XOR:
+                return a ^ b;
+            case EQUAL:
+                return a == b ? 1 : 0;
+            case GREATER:
+                return a > b ? 1 : 0;
+            case SMALLER:
+                return a < b ? 1 : 0;
+            default:
+                throw new IllegalStateException("unknown operation " + op);
+        }
+    }
+
+    /**
+     * Builds a compiled expression.
+     * The operands have to be added before the operation which uses them.
+     * Operations on constants are evaluated at once.
+     */
+    static final class Builder {
+        private int[] ops = new int[8];
+        private long[] args = new long[8];
+        private int size;
+        private int depth;
+        private int maxDepth;
+        private final ArrayList<String> names = new ArrayList<>();
+        private final ArrayList<Expression> calls = new ArrayList<>();
+
+        private Builder add(int op, long arg, int stackChange) {
+            if (size == ops.length) {
+                ops = Arrays.copyOf(ops, size * 2);
+                args = Arrays.copyOf(args, size * 2);
+            }
+            ops[size] = op;
+            args[size] = arg;
+            size++;
+            depth += stackChange;
+            maxDepth = Math.max(maxDepth, depth);
+            return this;
+        }
+
+        private boolean isConst(int fromTop) {
+            return size > fromTop && ops[size - 1 - fromTop] == CONST;
+        }
+
+        /**
+         * Pushes a constant
+         *
+         * @param value the value
+         * @return this for chained calls
+         */
+        Builder constant(long value) {
+            return add(CONST, value, 1);
+        }
+
+        /**
+         * Pushes the value of a loop variable
+         *
+         * @param slot the slot of the variable
+         * @return this for chained calls
+         */
+        Builder slot(int slot) {
+            return add(SLOT, slot, 1);
+        }
+
+        /**
+         * Pushes the value of a variable which is looked up by its name during evaluation
+         *
+         * @param name the name of the variable
+         * @return this for chained calls
+         */
+        Builder var(String name) {
+            names.add(name);
+            return add(VAR, names.size() - 1, 1);
+        }
+
+        /**
+         * Pushes the value of the given expression
+         *
+         * @param exp the expression
+         * @return this for chained calls
+         */
+        Builder call(Expression exp) {
+            calls.add(exp);
+            return add(CALL, calls.size() - 1, 1);
+        }
+
+        /**
+         * Negates the value on top of the stack
+         *
+         * @return this for chained calls
+         */
+        Builder neg() {
+            if (isConst(0))
+                args[size - 1] = -args[size - 1];
+            else
+                add(NEG, 0, 0);
+            return this;
+        }
+
+        /**
+         * Inverts the bits of the value on top of the stack
+         *
+         * @return this for chained calls
+         */
+        Builder not() {
+            if (isConst(0))
+                args[size - 1] = ~args[size - 1];
+            else
+                add(NOT, 0, 0);
+            return this;
+        }
+
+        /**
+         * Combines the two values on top of the stack
+         *
+         * @param op the operation
+         * @return this for chained calls
+         */
+        Builder binary(int op) {
+            if (isConst(0) && isConst(1) && !((op == DIV || op == MOD) && args[size - 1] == 0)) {
+                long b = args[size - 1];
+                size--;
+                depth--;
+                args[size - 1] = calc(op, args[size - 1], b);
+                return this;
+            }
+            return add(op, 0, -1);
+        }
+
+        /**
+         * @return the compiled expression
+         */
+        Expression build() {
+            if (size == 1 && ops[0] == CONST) {
+                long value = args[0];
+                return c -> value;
+            }
+            if (size == 1 && ops[0] == SLOT) {
+                int slot = (int) args[0];
+                return c -> c.getSlot(slot);
+            }
+            return new CompiledExpression(this);
+        }
+    }
+}
@@ -2,12 +2,21 @@ package de.neemann.digital.testing.parser;
 
 import de.neemann.digital.lang.Lang;
 
+import java.util.Arrays;
+
 /**
  * The context of the calculations.
  * <p>
+ * The loop variables are stored in slots, which are assigned by the parser.
+ * The context also provides the stack used to evaluate the compiled expressions,
+ * so a context must not be used by more than one thread at a time.
+ * <p>
  * Created by hneemann on 02.12.16.
  */
 public class Context {
+    private long[] slots = new long[0];
+    private long[] stack = new long[0];
+    private int stackPointer;
 
     /**
      * Returnes the value of a variable
@@ -20,4 +29,55 @@ public class Context {
         throw new ParserException(Lang.get("err_variable_N0_notFound", name));
     }
 
+    /**
+     * Sets the value of a loop variable
+     *
+     * @param slot  the slot of the variable
+     * @param value the value
+     */
+    public void setSlot(int slot, long value) {
+        if (slot >= slots.length)
+            slots = Arrays.copyOf(slots, slot + 1);
+        slots[slot] = value;
+    }
+
+    /**
+     * Returns the value of a loop variable
+     *
+     * @param slot the slot of the variable
+     * @return the value
+     */
+    public long getSlot(int slot) {
+        return slots[slot];
+    }
+
+    /**
+     * Reserves stack space for the evaluation of an expression
+     *
+     * @param size the number of stack entries needed
+     * @return the index of the first reserved entry
+     */
+    int enter(int size) {
+        int base = stackPointer;
+        stackPointer += size;
+        if (stackPointer > stack.length)
+            stack = Arrays.copyOf(stack, Math.max(stackPointer, stack.length * 2));
+        return base;
+    }
+
+    /**
+     * Frees the stack space reserved by {@link #enter(int)}
+     *
+     * @param base the value returned by enter
+     */
+    void leave(int base) {
+        stackPointer = base;
+    }
+
+    /**
+     * @return the stack
+     */
+    long[] getStack() {
+        return stack;
+    }
 }
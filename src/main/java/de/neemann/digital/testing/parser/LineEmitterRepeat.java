@@ -9,20 +9,20 @@ import de.neemann.digital.lang.Lang;
 public class LineEmitterRepeat implements LineEmitter {
     private static final long MAX_LOOPS = 1L << 24;
 
-    private final String name;
+    private final int slot;
     private final int size;
     private final LineEmitter inner;
 
     /**
      * Creates a new loop
      *
-     * @param name  name of the loop variable
+     * @param slot  the slot of the loop variable
      * @param size  number of iterations
      * @param inner the lines to repeat
      * @throws ParserException if there are to many iterations
      */
-    public LineEmitterRepeat(String name, long size, LineEmitter inner) throws ParserException {
-        this.name = name;
+    public LineEmitterRepeat(int slot, long size, LineEmitter inner) throws ParserException {
+        this.slot = slot;
         this.size = (int) size;
         this.inner = inner;
 
@@ -32,10 +32,9 @@ public class LineEmitterRepeat implements LineEmitter {
 
     @Override
     public void emitLines(LineListener listener, Context conext) throws ParserException {
-        ContextWithVar c = new ContextWithVar(conext, name);
         for (int i = 0; i < size; i++) {
-            c.setValue(i);
-            inner.emitLines(listener, c);
+            conext.setSlot(slot, i);
+            inner.emitLines(listener, conext);
         }
     }
 }
@@ -23,11 +23,19 @@ import java.util.HashMap;
  * Created by Helmut.Neemann on 02.12.2016.
  */
 public class Parser {
+    private static final Value[] SMALL_VALUES = new Value[256];
+
+    static {
+        for (int i = 0; i < SMALL_VALUES.length; i++)
+            SMALL_VALUES[i] = new Value(i);
+    }
 
     private final ArrayList<String> names;
     private final Tokenizer tok;
     private LineEmitter emitter;
     private HashMap<String, Function> functions = new HashMap<>();
+    private ArrayList<String> loopVars = new ArrayList<>();
+    private CompiledExpression.Builder code;
 
     /**
      * Creates a new instance
@@ -104,7 +112,9 @@ public class Parser {
                     expect(Tokenizer.Token.OPEN);
                     long count = parseInt();
                     expect(Tokenizer.Token.CLOSE);
-                    list.add(new LineEmitterRepeat("n", count, parseSingleRow()));
+                    loopVars.add("n");
+                    list.add(new LineEmitterRepeat(loopVars.size() - 1, count, parseSingleRow()));
+                    loopVars.remove(loopVars.size() - 1);
                     break;
                 case LOOP:
                     tok.consume();
@@ -114,7 +124,9 @@ public class Parser {
                     expect(Tokenizer.Token.COMMA);
                     count = parseInt();
                     expect(Tokenizer.Token.CLOSE);
-                    list.add(new LineEmitterRepeat(var, count, parseRows(Tokenizer.Token.LOOP)));
+                    loopVars.add(var);
+                    list.add(new LineEmitterRepeat(loopVars.size() - 1, count, parseRows(Tokenizer.Token.LOOP)));
+                    loopVars.remove(loopVars.size() - 1);
                     break;
                 default:
                     throw newUnexpectedToken(t);
@@ -130,7 +142,7 @@ public class Parser {
                 line = new LineEmitterSimple(names.size(), tok.getLine());
             switch (token) {
                 case NUMBER:
-                    Value num = new Value(convToLong(tok.getIdent()));
+                    Value num = toValue(convToLong(tok.getIdent()));
                     line.add((vals, context) -> vals.add(num));
                     break;
                 case BITS:
@@ -151,7 +163,7 @@ public class Parser {
                     break;
                 case OPEN:
                     exp = parseExpression();
-                    line.add((vals, context) -> vals.add(new Value((int) exp.value(context))));
+                    line.add((vals, context) -> vals.add(toValue((int) exp.value(context))));
                     expect(Tokenizer.Token.CLOSE);
                     break;
                 case EOF:
@@ -163,6 +175,16 @@ public class Parser {
         }
     }
 
+    /**
+     * Returns a value instance.
+     * Small values are shared, so the evaluation of a loop needs not to create a new instance for every row.
+     */
+    private static Value toValue(long value) {
+        if (value >= 0 && value < SMALL_VALUES.length)
+            return SMALL_VALUES[(int) value];
+        return new Value(value);
+    }
+
     private long convToLong(String num) throws ParserException {
         try {
             return Bits.decode(num);
@@ -172,7 +194,14 @@ public class Parser {
     }
 
     private long parseInt() throws ParserException, IOException {
-        return parseExpression().value(new Context());
+        // constant expressions can not access the loop variables
+        ArrayList<String> vars = loopVars;
+        loopVars = new ArrayList<>();
+        try {
+            return parseExpression().value(new Context());
+        } finally {
+            loopVars = vars;
+        }
     }
 
     private void expect(Tokenizer.Token token) throws IOException, ParserException {
@@ -237,136 +266,121 @@ public class Parser {
      * @throws ParserException IOException
      */
     private Expression parseExpression() throws IOException, ParserException {
-        Expression ac = parseGreater();
+        CompiledExpression.Builder parent = code;
+        code = new CompiledExpression.Builder();
+        try {
+            parseSmaller();
+            return code.build();
+        } finally {
+            code = parent;
+        }
+    }
+
+    private void parseSmaller() throws IOException, ParserException {
+        parseGreater();
         while (isToken(Tokenizer.Token.SMALER)) {
-            Expression a = ac;
-            Expression b = parseGreater();
-            ac = (c) -> a.value(c) < b.value(c) ? 1 : 0;
+            parseGreater();
+            code.binary(CompiledExpression.SMALLER);
         }
-        return ac;
     }
 
-    private Expression parseGreater() throws IOException, ParserException {
-        Expression ac = parseEquals();
+    private void parseGreater() throws IOException, ParserException {
+        parseEquals();
         while (isToken(Tokenizer.Token.GREATER)) {
-            Expression a = ac;
-            Expression b = parseEquals();
-            ac = (c) -> a.value(c) > b.value(c) ? 1 : 0;
+            parseEquals();
+            code.binary(CompiledExpression.GREATER);
         }
-        return ac;
     }
 
-    private Expression parseEquals() throws IOException, ParserException {
-        Expression ac = parseOR();
+    private void parseEquals() throws IOException, ParserException {
+        parseOR();
         while (isToken(Tokenizer.Token.EQUAL)) {
-            Expression a = ac;
-            Expression b = parseOR();
-            ac = (c) -> a.value(c) == b.value(c) ? 1 : 0;
+            parseOR();
+            code.binary(CompiledExpression.EQUAL);
         }
-        return ac;
     }
 
-    private Expression parseOR() throws IOException, ParserException {
-        Expression ac = parseXOR();
+    private void parseOR() throws IOException, ParserException {
+        parseXOR();
         while (isToken(Tokenizer.Token.OR)) {
-            Expression a = ac;
-            Expression b = parseXOR();
-            ac = (c) -> a.value(c) | b.value(c);
+            parseXOR();
+            code.binary(CompiledExpression.OR);
         }
-        return ac;
     }
 
-    private Expression parseXOR() throws IOException, ParserException {
-        Expression ac = parseAND();
+    private void parseXOR() throws IOException, ParserException {
+        parseAND();
         while (isToken(Tokenizer.Token.XOR)) {
-            Expression a = ac;
-            Expression b = parseAND();
-            ac = (c) -> a.value(c) ^ b.value(c);
+            parseAND();
+            code.binary(CompiledExpression.XOR);
         }
-        return ac;
     }
 
-    private Expression parseAND() throws IOException, ParserException {
-        Expression ac = parseShiftRight();
+    private void parseAND() throws IOException, ParserException {
+        parseShiftRight();
         while (isToken(Tokenizer.Token.AND)) {
-            Expression a = ac;
-            Expression b = parseShiftRight();
-            ac = (c) -> a.value(c) & b.value(c);
+            parseShiftRight();
+            code.binary(CompiledExpression.AND);
         }
-        return ac;
     }
 
-    private Expression parseShiftRight() throws IOException, ParserException {
-        Expression ac = parseShiftLeft();
+    private void parseShiftRight() throws IOException, ParserException {
+        parseShiftLeft();
         while (isToken(Tokenizer.Token.SHIFTRIGHT)) {
-            Expression a = ac;
-            Expression b = parseShiftLeft();
-            ac = (c) -> a.value(c) >> b.value(c);
+            parseShiftLeft();
+            code.binary(CompiledExpression.SHR);
         }
-        return ac;
     }
 
-    private Expression parseShiftLeft() throws IOException, ParserException {
-        Expression ac = parseAdd();
+    private void parseShiftLeft() throws IOException, ParserException {
+        parseAdd();
         while (isToken(Tokenizer.Token.SHIFTLEFT)) {
-            Expression a = ac;
-            Expression b = parseAdd();
-            ac = (c) -> a.value(c) << b.value(c);
+            parseAdd();
+            code.binary(CompiledExpression.SHL);
         }
-        return ac;
     }
 
-    private Expression parseAdd() throws IOException, ParserException {
-        Expression ac = parseSub();
+    private void parseAdd() throws IOException, ParserException {
+        parseSub();
         while (isToken(Tokenizer.Token.ADD)) {
-            Expression a = ac;
-            Expression b = parseSub();
-            ac = (c) -> a.value(c) + b.value(c);
+            parseSub();
+            code.binary(CompiledExpression.ADD);
         }
-        return ac;
     }
 
-    private Expression parseSub() throws IOException, ParserException {
-        Expression ac = parseMul();
+    private void parseSub() throws IOException, ParserException {
+        parseMul();
         while (isToken(Tokenizer.Token.SUB)) {
-            Expression a = ac;
-            Expression b = parseMul();
-            ac = (c) -> a.value(c) - b.value(c);
+            parseMul();
+            code.binary(CompiledExpression.SUB);
         }
-        return ac;
     }
 
-    private Expression parseMul() throws IOException, ParserException {
-        Expression ac = parseDiv();
+    private void parseMul() throws IOException, ParserException {
+        parseDiv();
         while (isToken(Tokenizer.Token.MUL)) {
-            Expression a = ac;
-            Expression b = parseDiv();
-            ac = (c) -> a.value(c) * b.value(c);
+            parseDiv();
+            code.binary(CompiledExpression.MUL);
         }
-        return ac;
     }
 
-    private Expression parseDiv() throws IOException, ParserException {
-        Expression ac = parseMod();
+    private void parseDiv() throws IOException, ParserException {
+        parseMod();
         while (isToken(Tokenizer.Token.DIV)) {
-            Expression a = ac;
-            Expression b = parseMod();
-            ac = (c) -> a.value(c) / b.value(c);
+            parseMod();
+            code.binary(CompiledExpression.DIV);
         }
-        return ac;
     }
 
-    private Expression parseMod() throws IOException, ParserException {
-        Expression ac = parseIdent();
+    private void parseMod() throws IOException, ParserException {
+        parseIdent();
         while (isToken(Tokenizer.Token.MOD)) {
-            Expression a = ac;
-            Expression b = parseIdent();
-            ac = (c) -> a.value(c) % b.value(c);
+            parseIdent();
+            code.binary(CompiledExpression.MOD);
         }
-        return ac;
     }
 
-    private Expression parseIdent() throws IOException, ParserException {
+    private void parseIdent() throws IOException, ParserException {
         Tokenizer.Token t = tok.next();
         switch (t) {
             case IDENT:
@@ -378,22 +392,30 @@ public class Parser {
                         args.add(parseExpression());
                     } while (tok.peek() == Tokenizer.Token.COMMA);
                     expect(Tokenizer.Token.CLOSE);
-                    return findFunction(name, args);
-                } else
-                    return (c) -> c.getVar(name);
+                    code.call(findFunction(name, args));
+                } else {
+                    int slot = loopVars.lastIndexOf(name);
+                    if (slot >= 0)
+                        code.slot(slot);
+                    else
+                        code.var(name);
+                }
+                break;
             case NUMBER:
-                long num = convToLong(tok.getIdent());
-                return (c) -> num;
+                code.constant(convToLong(tok.getIdent()));
+                break;
             case SUB:
-                Expression negExp = parseIdent();
-                return (c) -> -negExp.value(c);
+                parseIdent();
+                code.neg();
+                break;
             case NOT:
-                Expression notExp = parseIdent();
-                return (c) -> ~notExp.value(c);
+                parseIdent();
+                code.not();
+                break;
             case OPEN:
-                Expression exp = parseExpression();
+                parseSmaller();
                 expect(Tokenizer.Token.CLOSE);
-                return exp;
+                break;
             default:
                 throw newUnexpectedToken(t);
         }
@@ -0,0 +1,129 @@
+package de.neemann.digital.core;
+
+import de.neemann.digital.core.basic.*;
+import de.neemann.digital.core.element.ElementAttributes;
+import de.neemann.digital.core.flipflops.FlipflopD;
+import de.neemann.digital.core.wiring.Splitter;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static de.neemann.digital.core.ObservableValues.ovs;
+
+/**
+ * Compares the bit parallel model with the event driven model.
+ */
+public class BitParallelModelTest extends TestCase {
+
+    public void testFullAdder() throws Exception {
+        ObservableValue a = new ObservableValue("a", 1);
+        ObservableValue b = new ObservableValue("b", 1);
+        ObservableValue c = new ObservableValue("c", 1);
+
+        ElementAttributes attr = new ElementAttributes().setBits(1);
+        Model model = new Model();
+        FanIn x1 = model.add(new XOr(attr));
+        x1.setInputs(ovs(a, b));
+        FanIn s = model.add(new XOr(attr));
+        s.setInputs(ovs(x1.getOutput(), c));
+        FanIn a1 = model.add(new NAnd(attr));
+        a1.setInputs(ovs(a, b));
+        FanIn a2 = model.add(new NAnd(attr));
+        a2.setInputs(ovs(x1.getOutput(), c));
+        FanIn co = model.add(new NAnd(attr));
+        co.setInputs(ovs(a1.getOutput(), a2.getOutput()));
+
+        Splitter sp = Splitter.createNToOne(2);
+        sp.setInputs(ovs(s.getOutput(), co.getOutput()));
+        ObservableValue sum = sp.getOutputs().get(0);
+
+        model.init();
+
+        ArrayList<ObservableValue> inputs = new ArrayList<>(Arrays.asList(a, b, c));
+        BitParallelModel bpm = BitParallelModel.create(inputs, sum.asList());
+        assertNotNull(bpm);
+        assertEquals(7, bpm.getOperationCount());
+
+        for (int lane = 0; lane < 8; lane++)
+            for (int i = 0; i < 3; i++)
+                bpm.setInput(i, lane, (lane >> i) & 1);
+        bpm.evaluate();
+
+        for (int lane = 0; lane < 8; lane++) {
+            for (int i = 0; i < 3; i++)
+                inputs.get(i).setValue((lane >> i) & 1);
+            model.doStep();
+
+            long expected = ((lane >> 2) & 1) + ((lane >> 1) & 1) + (lane & 1);
+            assertEquals(expected, sum.getValue());
+            assertEquals(expected, bpm.getOutput(0, lane));
+        }
+    }
+
+    public void testMultiBit() throws Exception {
+        ObservableValue a = new ObservableValue("a", 8);
+        ObservableValue b = new ObservableValue("b", 8);
+
+        Model model = new Model();
+        FanIn and = model.add(new And(new ElementAttributes().setBits(8)));
+        and.setInputs(ovs(a, b));
+        Not not = model.add(new Not(new ElementAttributes().setBits(8)));
+        not.setInputs(and.getOutput().asList());
+        model.init();
+
+        BitParallelModel bpm = BitParallelModel.create(Arrays.asList(a, b), not.getOutput().asList());
+        assertNotNull(bpm);
+        for (int lane = 0; lane < BitParallelModel.LANES; lane++) {
+            bpm.setInput(0, lane, lane * 3);
+            bpm.setInput(1, lane, 0xF0 | lane);
+        }
+        bpm.evaluate();
+        for (int lane = 0; lane < BitParallelModel.LANES; lane++)
+            assertEquals(~((lane * 3) & (0xF0 | lane)) & 0xff, bpm.getOutput(0, lane));
+    }
+
+    public void testConstantInput() throws Exception {
+        ObservableValue a = new ObservableValue("a", 1);
+        ObservableValue b = new ObservableValue("b", 1).setValue(1);
+
+        Model model = new Model();
+        FanIn and = model.add(new And(new ElementAttributes().setBits(1)));
+        and.setInputs(ovs(a, b));
+        model.init();
+
+        // b is not an input, so its value is treated as a constant
+        BitParallelModel bpm = BitParallelModel.create(a.asList(), and.getOutput().asList());
+        assertNotNull(bpm);
+        bpm.setInput(0, 5, 1);
+        bpm.evaluate();
+        assertEquals(0, bpm.getOutput(0, 4));
+        assertEquals(1, bpm.getOutput(0, 5));
+    }
+
+    public void testUnsupported() throws Exception {
+        ObservableValue d = new ObservableValue("d", 1);
+        ObservableValue c = new ObservableValue("c", 1);
+
+        Model model = new Model();
+        FlipflopD ff = model.add(new FlipflopD("ff", new ObservableValue("q", 1), new ObservableValue("qn", 1)));
+        ff.setInputs(ovs(d, c));
+        model.init();
+
+        assertNull(BitParallelModel.create(Arrays.asList(d, c), ff.getOutputs()));
+    }
+
+    public void testCycle() throws Exception {
+        ObservableValue r = new ObservableValue("r", 1);
+        ObservableValue s = new ObservableValue("s", 1);
+
+        Model model = new Model();
+        FanIn a1 = model.add(new NAnd(new ElementAttributes().setBits(1)));
+        FanIn a2 = model.add(new NAnd(new ElementAttributes().setBits(1)));
+        a1.setInputs(ovs(r, a2.getOutput()));
+        a2.setInputs(ovs(s, a1.getOutput()));
+        model.init();
+
+        assertNull(BitParallelModel.create(Arrays.asList(r, s), a1.getOutput().asList()));
+    }
+}
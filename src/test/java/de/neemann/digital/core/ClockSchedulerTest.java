@@ -0,0 +1,75 @@
+package de.neemann.digital.core;
+
+import de.neemann.digital.core.element.ElementAttributes;
+import de.neemann.digital.core.element.Keys;
+import de.neemann.digital.core.wiring.Clock;
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+
+/**
+ * Tests the scheduling of several clocks.
+ */
+public class ClockSchedulerTest extends TestCase {
+
+    private static Clock createClock(int frequency) {
+        return new Clock(new ElementAttributes().set(Keys.FREQUENCY, frequency));
+    }
+
+    public void testRatio() {
+        Clock c3 = createClock(3);
+        Clock c2 = createClock(2);
+        ObservableValue o3 = c3.getClockOutput();
+        ObservableValue o2 = c2.getClockOutput();
+        ClockScheduler cs = new ClockScheduler(Arrays.asList(c3, c2));
+        assertEquals(3, cs.getMaxFrequency());
+
+        // edges of c3 at n/6, edges of c2 at n/4
+        for (int period = 0; period < 3; period++) {
+            assertEquals(1, cs.nextEdge());
+            assertEquals(1, o3.getValue());
+            assertEquals(0, o2.getValue());
+            assertEquals(period + 1 / 6.0, cs.getTime(), 1e-9);
+
+            assertEquals(1, cs.nextEdge());
+            assertEquals(1, o2.getValue());
+
+            assertEquals(1, cs.nextEdge());
+            assertEquals(0, o3.getValue());
+
+            assertEquals(2, cs.nextEdge());
+            assertEquals(1, o3.getValue());
+            assertEquals(0, o2.getValue());
+            assertEquals(period + 1 / 2.0, cs.getTime(), 1e-9);
+
+            assertEquals(1, cs.nextEdge());
+            assertEquals(0, o3.getValue());
+
+            assertEquals(1, cs.nextEdge());
+            assertEquals(1, o2.getValue());
+
+            assertEquals(1, cs.nextEdge());
+            assertEquals(1, o3.getValue());
+
+            assertEquals(2, cs.nextEdge());
+            assertEquals(0, o3.getValue());
+            assertEquals(0, o2.getValue());
+            assertEquals(period + 1, cs.getTime(), 1e-9);
+        }
+    }
+
+    public void testStepFastest() throws NodeException {
+        Clock fast = createClock(5);
+        Clock slow = createClock(2);
+        Model model = new Model();
+        model.init();
+        ClockScheduler cs = new ClockScheduler(Arrays.asList(slow, fast));
+
+        int steps = 0;
+        for (int i = 0; i < 10; i++)
+            steps += cs.stepFastest(model);
+        // in one second the fast clock has 10 edges and the slow clock 4 edges
+        assertEquals(14 - 2, steps);
+        assertEquals(1, cs.getTime(), 1e-9);
+    }
+}
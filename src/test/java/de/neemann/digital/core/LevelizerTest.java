@@ -0,0 +1,109 @@
+package de.neemann.digital.core;
+
+import de.neemann.digital.TestExecuter;
+import de.neemann.digital.core.basic.And;
+import de.neemann.digital.core.basic.FanIn;
+import de.neemann.digital.core.basic.NAnd;
+import de.neemann.digital.core.basic.Not;
+import de.neemann.digital.core.element.ElementAttributes;
+import de.neemann.digital.core.flipflops.FlipflopD;
+import junit.framework.TestCase;
+
+import static de.neemann.digital.core.ObservableValues.ovs;
+
+/**
+ * Tests the levelized mode of the model.
+ */
+public class LevelizerTest extends TestCase {
+
+    private Not[] createChain(Model model, ObservableValue in, int len) throws NodeException {
+        Not[] chain = new Not[len];
+        ObservableValue v = in;
+        for (int i = 0; i < len; i++) {
+            chain[i] = model.add(new Not(new ElementAttributes()));
+            chain[i].setInputs(v.asList());
+            v = chain[i].getOutput();
+        }
+        return chain;
+    }
+
+    public void testChain() throws Exception {
+        ObservableValue a = new ObservableValue("a", 1);
+        ObservableValue b = new ObservableValue("b", 1);
+
+        Model model = new Model().setLevelized(true);
+        Not[] chain = createChain(model, a, 5);
+        FanIn and = model.add(new And(new ElementAttributes().setBits(1)));
+        and.setInputs(ovs(chain[4].getOutput(), b));
+
+        TestExecuter sc = new TestExecuter(model).setInputs(a, b).setOutputs(and.getOutput());
+        assertEquals(6, model.getLevelizedNodeCount());
+
+        int steps = model.getStepCounter();
+        sc.check(0, 0, 0);
+        sc.check(0, 1, 1);
+        sc.check(1, 1, 0);
+        sc.check(1, 0, 0);
+        sc.check(0, 1, 1);
+
+        // the first check changes nothing, every other check needs
+        // a single micro step, no matter how long the chain is
+        assertEquals(steps + 4, model.getStepCounter());
+    }
+
+    public void testNotLevelized() throws Exception {
+        ObservableValue a = new ObservableValue("a", 1);
+
+        Model model = new Model();
+        Not[] chain = createChain(model, a, 5);
+
+        TestExecuter sc = new TestExecuter(model).setInputs(a).setOutputs(chain[4].getOutput());
+        assertEquals(0, model.getLevelizedNodeCount());
+
+        int steps = model.getStepCounter();
+        sc.check(1, 0);
+        assertEquals(steps + 5, model.getStepCounter());
+    }
+
+    public void testFeedbackLoop() throws Exception {
+        ObservableValue r = new ObservableValue("r", 1);
+        ObservableValue s = new ObservableValue("s", 1);
+
+        Model model = new Model().setLevelized(true);
+        FanIn a1 = model.add(new NAnd(new ElementAttributes().setBits(1)));
+        FanIn a2 = model.add(new NAnd(new ElementAttributes().setBits(1)));
+        a1.setInputs(ovs(r, a2.getOutput()));
+        a2.setInputs(ovs(s, a1.getOutput()));
+        Not[] chain = createChain(model, a1.getOutput(), 2);
+
+        TestExecuter sc = new TestExecuter(model).setInputs(r, s).setOutputs(a1.getOutput(), a2.getOutput(), chain[1].getOutput());
+
+        // the flip flop is handled by the micro step loop, only the chain is levelized
+        assertEquals(2, model.getLevelizedNodeCount());
+
+        sc.check(1, 0, 0, 1, 0);
+        sc.check(1, 1, 0, 1, 0);
+        sc.check(0, 1, 1, 0, 1);
+        sc.check(1, 1, 1, 0, 1);
+        sc.check(1, 0, 0, 1, 0);
+    }
+
+    public void testStatefulNodes() throws Exception {
+        ObservableValue c = new ObservableValue("c", 1);
+
+        Model model = new Model().setLevelized(true);
+        FlipflopD ff = model.add(new FlipflopD("ff", new ObservableValue("q", 1), new ObservableValue("qn", 1)));
+        Not[] chain = createChain(model, ff.getOutputs().get(0), 3);
+        ff.setInputs(ovs(chain[2].getOutput(), c));
+
+        TestExecuter sc = new TestExecuter(model).setInputs(c).setOutputs(ff.getOutputs().get(0));
+        assertEquals(3, model.getLevelizedNodeCount());
+
+        // the ff toggles on every rising edge
+        sc.check(1, 1);
+        sc.check(0, 1);
+        sc.check(1, 0);
+        sc.check(0, 0);
+        sc.check(1, 1);
+    }
+}
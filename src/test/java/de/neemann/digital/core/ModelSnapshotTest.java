@@ -0,0 +1,88 @@
+package de.neemann.digital.core;
+
+import de.neemann.digital.TestExecuter;
+import de.neemann.digital.core.basic.Not;
+import de.neemann.digital.core.element.ElementAttributes;
+import de.neemann.digital.core.element.Keys;
+import de.neemann.digital.core.memory.Counter;
+import de.neemann.digital.core.memory.RegisterFile;
+import de.neemann.digital.core.wiring.Splitter;
+import junit.framework.TestCase;
+
+import static de.neemann.digital.core.ObservableValues.ovs;
+
+/**
+ * Tests the snapshot and restore of a model.
+ */
+public class ModelSnapshotTest extends TestCase {
+
+    public void testSnapshot() throws Exception {
+        ObservableValue clk = new ObservableValue("clk", 1);
+        ObservableValue one = new ObservableValue("one", 1).setValue(1);
+        ObservableValue zero = new ObservableValue("zero", 1);
+        ObservableValue r1 = new ObservableValue("r1", 2);
+        ObservableValue r2 = new ObservableValue("r2", 2);
+
+        Model model = new Model();
+        Counter counter = model.add(new Counter(new ElementAttributes().setBits(4)));
+        counter.setInputs(ovs(one, clk, zero));
+        ObservableValue count = counter.getOutputs().get(0);
+
+        // writes the inverted counter value to the register addressed by the two lower counter bits
+        Not not = model.add(new Not(new ElementAttributes().setBits(4)));
+        not.setInputs(count.asList());
+        Splitter sp = Splitter.createOneToN(4, false);
+        sp.setInputs(count.asList());
+        Splitter addr = Splitter.createNToOne(2);
+        addr.setInputs(ovs(sp.getOutputs().get(0), sp.getOutputs().get(1)));
+        RegisterFile rf = model.add(new RegisterFile(new ElementAttributes().setBits(4).set(Keys.ADDR_BITS, 2)));
+        rf.setInputs(ovs(not.getOutput(), one, addr.getOutputs().get(0), clk, r1, r2));
+
+        model.addInput(new Signal("clk", clk));
+        model.addInput(new Signal("r1", r1));
+        model.addInput(new Signal("r2", r2));
+
+        TestExecuter te = new TestExecuter(model).setInputs(clk, r1, r2).setOutputs(count, rf.getOutputs().get(0), rf.getOutputs().get(1));
+        for (int i = 1; i <= 5; i++) {
+            te.check(1, 1, 2, i, i >= 2 ? 0xe : 0, i >= 3 ? 0xd : 0);
+            te.check(0, 1, 2, i, i >= 2 ? 0xe : 0, i >= 3 ? 0xd : 0);
+        }
+        te.check(0, 0, 3, 5, 0xb, 0xc);
+
+        ModelSnapshot snapshot = model.snapshot();
+
+        for (int i = 6; i <= 9; i++) {
+            te.check(1, 0, 3, i, i >= 9 ? 7 : 0xb, i >= 8 ? 8 : 0xc);
+            te.check(0, 0, 3, i, i >= 9 ? 7 : 0xb, i >= 8 ? 8 : 0xc);
+        }
+        te.check(0, 1, 2, 9, 0xa, 9);
+
+        model.restore(snapshot);
+        assertEquals(5, count.getValue());
+        assertEquals(0xb, rf.getOutputs().get(0).getValue());
+        assertEquals(0xc, rf.getOutputs().get(1).getValue());
+
+        // runs the same way again
+        te.check(0, 0, 3, 5, 0xb, 0xc);
+        te.check(1, 0, 3, 6, 0xb, 0xc);
+        te.check(0, 1, 2, 6, 0xa, 0xd);
+
+        // a snapshot can be restored more than once
+        model.restore(snapshot);
+        te.check(0, 0, 3, 5, 0xb, 0xc);
+        te.check(0, 1, 2, 5, 0xe, 0xd);
+    }
+
+    public void testWrongModel() throws Exception {
+        Model m1 = new Model();
+        m1.init();
+        Model m2 = new Model();
+        m2.init();
+        try {
+            m2.restore(m1.snapshot());
+            fail();
+        } catch (RuntimeException e) {
+            // expected
+        }
+    }
+}
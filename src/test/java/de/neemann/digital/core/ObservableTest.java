@@ -0,0 +1,67 @@
+package de.neemann.digital.core;
+
+import de.neemann.digital.core.basic.Not;
+import de.neemann.digital.core.element.ElementAttributes;
+import junit.framework.TestCase;
+
+/**
+ * Tests the observer handling of the observable, before and after the observers are frozen.
+ */
+public class ObservableTest extends TestCase {
+
+    private static final class Counter implements Observer {
+        private int count;
+
+        @Override
+        public void hasChanged() {
+            count++;
+        }
+    }
+
+    public void testAddRemove() {
+        Observable observable = new Observable();
+        Counter[] c = new Counter[100];
+        for (int i = 0; i < c.length; i++) {
+            c[i] = new Counter();
+            observable.addObserver(c[i]);
+            observable.addObserver(c[i]);
+        }
+        assertEquals(100, observable.observerCount());
+        observable.removeObserver(c[50]);
+        assertEquals(99, observable.observerCount());
+        assertFalse(observable.hasObserver(c[50]));
+        observable.addObserver(c[50]);
+
+        observable.freezeObservers();
+        assertTrue(observable.isFrozen());
+        assertEquals(100, observable.observerCount());
+
+        observable.addObserver(c[3]);
+        assertEquals(100, observable.observerCount());
+        observable.removeObserver(c[3]);
+        assertEquals(99, observable.observerCount());
+        assertFalse(observable.hasObserver(c[3]));
+        assertTrue(observable.hasObserver(c[4]));
+
+        observable.fireHasChanged();
+        for (int i = 0; i < c.length; i++)
+            assertEquals(i == 3 ? 0 : 1, c[i].count);
+
+        observable.removeObserver(Counter.class);
+        assertEquals(0, observable.observerCount());
+        observable.fireHasChanged();
+        assertEquals(1, c[0].count);
+    }
+
+    public void testModelFreezesObservers() throws Exception {
+        ObservableValue a = new ObservableValue("a", 1);
+        Model model = new Model();
+        Not not = model.add(new Not(new ElementAttributes()));
+        not.setInputs(a.asList());
+        model.addInput(new Signal("a", a));
+        assertFalse(a.isFrozen());
+        model.init();
+        assertTrue(a.isFrozen());
+        assertTrue(not.getOutput().isFrozen());
+    }
+}
@@ -0,0 +1,153 @@
+package de.neemann.digital.core;
+
+import de.neemann.digital.core.basic.FanIn;
+import de.neemann.digital.core.basic.Not;
+import de.neemann.digital.core.basic.XOr;
+import de.neemann.digital.core.element.ElementAttributes;
+import de.neemann.digital.core.element.Keys;
+import de.neemann.digital.core.memory.RAMDualPort;
+import junit.framework.TestCase;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static de.neemann.digital.core.ObservableValues.ovs;
+
+/**
+ * Tests the parallel mode of the model.
+ */
+public class ParallelExecutorTest extends TestCase {
+    private static final int WIDTH = 2000;
+
+    private static final class Circuit {
+        private final ObservableValue a = new ObservableValue("a", 1);
+        private final ObservableValue b = new ObservableValue("b", 1);
+        private final FanIn[] xor = new FanIn[WIDTH];
+        private final Not[] not = new Not[WIDTH];
+        private final Model model;
+
+        private Circuit(Model model) throws NodeException {
+            this.model = model;
+            for (int i = 0; i < WIDTH; i++) {
+                not[i] = model.add(new Not(new ElementAttributes()));
+                not[i].setInputs((i % 2 == 0 ? a : b).asList());
+                xor[i] = model.add(new XOr(new ElementAttributes().setBits(1)));
+                xor[i].setInputs(ovs(not[i].getOutput(), (i % 3 == 0 ? a : b)));
+            }
+            model.init();
+        }
+
+        private void set(long av, long bv) throws NodeException {
+            a.setValue(av);
+            b.setValue(bv);
+            model.doStep();
+        }
+    }
+
+    public void testParallel() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Circuit serial = new Circuit(new Model());
+            Circuit parallel = new Circuit(new Model().setParallel(pool, 0));
+
+            for (int v = 0; v < 8; v++) {
+                serial.set(v & 1, (v >> 1) & 1);
+                parallel.set(v & 1, (v >> 1) & 1);
+                assertEquals(serial.model.getStepCounter(), parallel.model.getStepCounter());
+                for (int i = 0; i < WIDTH; i++) {
+                    assertEquals(serial.not[i].getOutput().getValue(), parallel.not[i].getOutput().getValue());
+                    assertEquals(serial.xor[i].getOutput().getValue(), parallel.xor[i].getOutput().getValue());
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public void testMemories() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ObservableValue a = new ObservableValue("a", 4);
+            ObservableValue d = new ObservableValue("d", 4);
+            ObservableValue str = new ObservableValue("str", 1);
+            ObservableValue clk = new ObservableValue("clk", 1);
+            ObservableValue ld = new ObservableValue("ld", 1);
+
+            final Thread modelThread = Thread.currentThread();
+            Model model = new Model().setParallel(pool, 0);
+            RAMDualPort[] rams = new RAMDualPort[2];
+            for (int r = 0; r < rams.length; r++) {
+                rams[r] = model.add(new RAMDualPort(new ElementAttributes()
+                        .set(Keys.ADDR_BITS, 4)
+                        .setBits(4)) {
+                    @Override
+                    public void readInputs() throws NodeException {
+                        // the memory is written in readInputs, so it must not run on the pool
+                        assertSame(modelThread, Thread.currentThread());
+                        super.readInputs();
+                    }
+                });
+                rams[r].setInputs(ovs(a, d, str, clk, ld));
+            }
+            // enough nodes which are updated together with the memories to use the pool
+            for (int i = 0; i < WIDTH; i++)
+                model.add(new Not(new ElementAttributes())).setInputs(clk.asList());
+            model.init();
+
+            str.setBool(true);
+            for (int v = 0; v < 16; v++) {
+                a.setValue(v);
+                d.setValue(15 - v);
+                clk.setBool(true);
+                model.doStep();
+                clk.setBool(false);
+                model.doStep();
+            }
+
+            for (RAMDualPort ram : rams)
+                for (int v = 0; v < 16; v++)
+                    assertEquals(15 - v, ram.getMemory().getDataWord(v));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public void testException() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ObservableValue a = new ObservableValue("a", 1);
+            Model model = new Model().setParallel(pool, 0);
+            for (int i = 0; i < WIDTH; i++) {
+                final boolean fail = i == WIDTH / 2;
+                model.add(new Node() {
+                    @Override
+                    public void readInputs() throws NodeException {
+                        if (fail && a.getBool())
+                            throw new NodeException("fail");
+                    }
+
+                    @Override
+                    public void writeOutputs() throws NodeException {
+                    }
+
+                    @Override
+                    public ObservableValues getOutputs() {
+                        return ObservableValues.EMPTY_LIST;
+                    }
+                });
+            }
+            model.init();
+            for (Node n : model)
+                a.addObserver(n);
+
+            a.setBool(true);
+            try {
+                model.doStep();
+                fail();
+            } catch (NodeException e) {
+                assertEquals("fail", e.getMessage());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package de.neemann.digital.core;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Tests the update queue of the model.
+ */
+public class UpdateQueueTest extends TestCase {
+
+    public void testDeduplication() {
+        UpdateQueue q = new UpdateQueue(200);
+        q.add(3);
+        q.add(130);
+        q.add(3);
+        q.add(64);
+        q.add(130);
+        assertEquals(3, q.getNextSize());
+
+        q.swap();
+        assertEquals(0, q.getNextSize());
+        assertEquals(3, q.getActSize());
+        assertEquals(3, q.getAct()[0]);
+        assertEquals(130, q.getAct()[1]);
+        assertEquals(64, q.getAct()[2]);
+
+        // nodes of the actual step can be added to the next step again
+        q.add(130);
+        q.add(130);
+        q.add(199);
+        assertEquals(2, q.getNextSize());
+        assertEquals(130, q.getNext()[0]);
+        assertEquals(199, q.getNext()[1]);
+    }
+
+    public void testShuffle() {
+        int[] a = shuffled(42);
+        int[] b = shuffled(42);
+        assertTrue(Arrays.equals(a, b));
+
+        Arrays.sort(a);
+        for (int i = 0; i < a.length; i++)
+            assertEquals(i, a[i]);
+    }
+
+    private int[] shuffled(long seed) {
+        UpdateQueue q = new UpdateQueue(100);
+        for (int i = 0; i < 100; i++)
+            q.add(i);
+        q.swap();
+        q.shuffle(new Random(seed));
+        return Arrays.copyOf(q.getAct(), q.getActSize());
+    }
+}
@@ -0,0 +1,139 @@
+package de.neemann.digital.core.memory;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+public class DataFieldImporterTest extends TestCase {
+
+    private static File createBinary(byte[] data) throws IOException {
+        return createFile(data, ".bin");
+    }
+
+    private static File createFile(byte[] data, String suffix) throws IOException {
+        File file = File.createTempFile("digital", suffix);
+        file.deleteOnExit();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(data);
+        }
+        return file;
+    }
+
+    public void testBinaryLittleEndian() throws Exception {
+        File file = createBinary(new byte[]{1, 2, 3, 4, 5});
+        DataField df = new DataFieldImporter(16, false).read(file);
+        assertEquals(3, df.size());
+        assertEquals(0x0201, df.getDataWord(0));
+        assertEquals(0x0403, df.getDataWord(1));
+        assertEquals(0x05, df.getDataWord(2));
+        assertEquals(0, df.getDataWord(3));
+    }
+
+    public void testBinaryBigEndian() throws Exception {
+        File file = createBinary(new byte[]{1, 2, 3, 4, (byte) 0xff});
+        DataField df = new DataFieldImporter(16, true).read(file);
+        assertEquals(3, df.size());
+        assertEquals(0x0102, df.getDataWord(0));
+        assertEquals(0x0304, df.getDataWord(1));
+        assertEquals(0xff00, df.getDataWord(2));
+    }
+
+    public void testBinaryMapped() throws Exception {
+        File file = createBinary(new byte[]{1, 2, 3, 4, 5});
+        DataField df = new DataFieldImporter(16, false).setMapped(true).read(file);
+        assertEquals(3, df.size());
+        assertEquals(0x0201, df.getDataWord(0));
+        assertEquals(0x0403, df.getDataWord(1));
+        assertEquals(0x05, df.getDataWord(2));
+    }
+
+    public void testRewriteFile() throws Exception {
+        File file = createBinary(new byte[]{1, 2, 3, 4});
+        DataFieldImporter importer = new DataFieldImporter(8, false);
+        assertFalse(importer.isMapped());
+        DataField df = importer.read(file);
+
+        // truncates and rewrites the file like an assembler does
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[]{9});
+        }
+        assertEquals(4, df.size());
+        assertEquals(4, df.getDataWord(3));
+
+        DataField reloaded = importer.read(file);
+        assertEquals(1, reloaded.size());
+        assertEquals(9, reloaded.getDataWord(0));
+    }
+
+    public void testUnknownTextFormat() throws Exception {
+        File file = createFile("0102 0304\n".getBytes(StandardCharsets.UTF_8), ".hex");
+        try {
+            new DataFieldImporter(8, false).read(file);
+            fail();
+        } catch (IOException e) {
+            assertTrue(true);
+        }
+    }
+
+    public void testIntelHexWithBomAndWhiteSpace() throws Exception {
+        File file = createFile("\uFEFF\n  :0400000001020304F2\n:00000001FF\n".getBytes(StandardCharsets.UTF_8), ".hex");
+        DataField df = new DataFieldImporter(8, false).read(file);
+        assertEquals(4, df.size());
+        assertEquals(1, df.getDataWord(0));
+        assertEquals(4, df.getDataWord(3));
+    }
+
+    public void testRawWithWhiteSpace() throws Exception {
+        File file = createFile("\n v2.0 raw\n5\n7\n".getBytes(StandardCharsets.UTF_8), ".hex");
+        DataField df = new DataFieldImporter(8, false).read(file);
+        assertEquals(2, df.size());
+        assertEquals(5, df.getDataWord(0));
+        assertEquals(7, df.getDataWord(1));
+    }
+
+    public void testBinaryWrite() throws Exception {
+        File file = createBinary(new byte[]{1, 2, 3, 4});
+        DataField df = new DataFieldImporter(8, false).read(file);
+        DataField copy = new DataField(df, 8);
+        copy.setData(1, 7);
+        assertEquals(1, copy.getDataWord(0));
+        assertEquals(7, copy.getDataWord(1));
+        assertEquals(3, copy.getDataWord(2));
+        assertEquals(2, df.getDataWord(1));
+
+        long[] data = copy.getData();
+        assertEquals(4, data.length);
+        assertEquals(7, data[1]);
+        assertEquals(4, data[3]);
+    }
+
+    public void testIntelHex() throws Exception {
+        String hex = ":0400000001020304F2\n"
+                + ":020000040001F9\n"
+                + ":02000200AABB97\n"
+                + ":00000001FF\n";
+        DataField df = new DataFieldImporter(16, false).readIntelHex(new StringReader(hex));
+        assertEquals(0x8002, df.size());
+        assertEquals(0x0201, df.getDataWord(0));
+        assertEquals(0x0403, df.getDataWord(1));
+        assertEquals(0xBBAA, df.getDataWord(0x8001));
+
+        df = new DataFieldImporter(8, true).readIntelHex(new StringReader(hex));
+        assertEquals(0x10004, df.size());
+        assertEquals(4, df.getDataWord(3));
+        assertEquals(0xBB, df.getDataWord(0x10003));
+    }
+
+    public void testIntelHexChecksum() throws Exception {
+        try {
+            new DataFieldImporter(8, false).readIntelHex(new StringReader(":0400000001020304F3\n"));
+            fail();
+        } catch (IOException e) {
+            assertTrue(true);
+        }
+    }
+}
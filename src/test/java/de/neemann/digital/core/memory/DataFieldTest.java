@@ -3,6 +3,8 @@ package de.neemann.digital.core.memory;
 import junit.framework.TestCase;
 
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * @author hneemann
@@ -56,4 +58,109 @@ public class DataFieldTest extends TestCase {
         assertEquals(0xAA, df.getDataWord(2));
         assertEquals(0xFF, df.getDataWord(3));
     }
-}
\ No newline at end of file
+
+    public void testLargeAddressSpace() throws Exception {
+        DataField data = new DataField(1 << 30);
+        assertEquals(0, data.getDataWord(123456789));
+        data.setData(123456789, 7);
+        data.setData(5, 3);
+        assertEquals(7, data.getDataWord(123456789));
+        assertEquals(3, data.getDataWord(5));
+        assertEquals(0, data.getDataWord(123456788));
+
+        data.setData(123456789, 0);
+        data = data.getMinimized();
+        assertEquals(1 << 30, data.size());
+        assertEquals(6, data.getData().length);
+        assertEquals(3, data.getDataWord(5));
+    }
+
+    public void testCopy() throws Exception {
+        DataField data = new DataField(10000);
+        data.setData(5000, 1);
+        data.setData(5001, 2);
+        DataField copy = new DataField(data, 5001);
+        assertEquals(1, copy.getDataWord(5000));
+        assertEquals(0, copy.getDataWord(5001));
+        copy.setData(5000, 3);
+        assertEquals(1, data.getDataWord(5000));
+    }
+
+    public void testCopyOnWrite() throws Exception {
+        DataField data = new DataField(10000);
+        data.setData(1, 1);
+        data.setData(5000, 2);
+        DataField copy = new DataField(data, 10000);
+
+        copy.setData(1, 3);
+        data.setData(5000, 4);
+        assertEquals(1, data.getDataWord(1));
+        assertEquals(3, copy.getDataWord(1));
+        assertEquals(4, data.getDataWord(5000));
+        assertEquals(2, copy.getDataWord(5000));
+    }
+
+    public void testCopyWhileWriting() throws Exception {
+        final int size = 1 << 16;
+        DataField data = new DataField(size);
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < size; i++)
+                data.setData(i, i);
+        });
+        writer.start();
+        ArrayList<DataField> copies = new ArrayList<>();
+        while (writer.isAlive())
+            copies.add(new DataField(data, size));
+        writer.join();
+
+        // the copies must not be modified by the writes done after they were created
+        for (int i = 0; i < size; i++)
+            data.setData(i, size + i);
+        for (DataField copy : copies)
+            for (int i = 0; i < size; i++) {
+                long v = copy.getDataWord(i);
+                assertTrue(v == 0 || v == i);
+            }
+        assertEquals(size + 5, data.getDataWord(5));
+    }
+
+    public void testPublishChanges() throws Exception {
+        DataField data = new DataField(1000);
+        ArrayList<String> changes = new ArrayList<>();
+        data.addCoalescedListener((addr, len) -> changes.add(addr + ":" + len));
+
+        for (int i = 0; i < 100; i++)
+            data.setData(i, i + 1);
+        data.setData(500, 1);
+        assertTrue(changes.isEmpty());
+
+        data.publishChanges();
+        assertEquals(Arrays.asList("0:128", "448:64"), changes);
+
+        changes.clear();
+        data.publishChanges();
+        assertTrue(changes.isEmpty());
+
+        data.setData(999, 1);
+        data.publishChanges();
+        assertEquals(Arrays.asList("960:40"), changes);
+    }
+
+    public void testListeners() throws Exception {
+        DataField data = new DataField(1000);
+        ArrayList<String> changes = new ArrayList<>();
+        ArrayList<String> coalesced = new ArrayList<>();
+        data.addListener((addr, len) -> changes.add(addr + ":" + len));
+        data.addCoalescedListener((addr, len) -> coalesced.add(addr + ":" + len));
+
+        data.setData(5, 1);
+        data.setData(6, 1);
+        assertEquals(Arrays.asList("5:1", "6:1"), changes);
+        assertTrue(coalesced.isEmpty());
+
+        changes.clear();
+        data.clearAll();
+        assertEquals(Arrays.asList("-1:0"), changes);
+        assertEquals(Arrays.asList("-1:0"), coalesced);
+    }
+}
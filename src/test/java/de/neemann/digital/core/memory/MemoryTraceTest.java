@@ -0,0 +1,45 @@
+package de.neemann.digital.core.memory;
+
+import junit.framework.TestCase;
+
+import java.io.StringWriter;
+import java.util.List;
+
+public class MemoryTraceTest extends TestCase {
+
+    public void testRingBuffer() throws Exception {
+        MemoryTrace trace = new MemoryTrace(3);
+        trace.write(1, 0x10, 1);
+        trace.read(2, 0x10, 1);
+        assertEquals(2, trace.size());
+        trace.read(3, 0x11, 0);
+        trace.write(4, 0x12, 0xff);
+        assertEquals(3, trace.size());
+        assertEquals(4, trace.getTotal());
+
+        StringWriter w = new StringWriter();
+        trace.writeTo(w);
+        assertEquals("step,addr,data,access\n"
+                + "2,10,1,R\n"
+                + "3,11,0,R\n"
+                + "4,12,ff,W\n", w.toString());
+    }
+
+    public void testHotAddresses() throws Exception {
+        MemoryTrace trace = new MemoryTrace(100);
+        for (int i = 0; i < 10; i++)
+            trace.read(i, 5, 0);
+        trace.write(10, 5, 1);
+        trace.write(11, 7, 1);
+        trace.read(12, 7, 1);
+        trace.read(13, 9, 1);
+
+        List<MemoryTrace.HotAddress> hot = trace.getHotAddresses(2);
+        assertEquals(2, hot.size());
+        assertEquals(5, hot.get(0).getAddr());
+        assertEquals(10, hot.get(0).getReads());
+        assertEquals(1, hot.get(0).getWrites());
+        assertEquals(7, hot.get(1).getAddr());
+        assertEquals(2, hot.get(1).getAccesses());
+    }
+}
@@ -7,6 +7,8 @@ import de.neemann.digital.core.element.ElementAttributes;
 import de.neemann.digital.core.element.Keys;
 import junit.framework.TestCase;
 
+import java.io.StringWriter;
+
 import static de.neemann.digital.TestExecuter.HIGHZ;
 import static de.neemann.digital.core.ObservableValues.ovs;
 
@@ -39,5 +41,42 @@ public class RAMDualPortTest extends TestCase {
         sc.check(1, 0, 0, 0, 1, 9);      // rd  5
     }
 
+    public void testTrace() throws Exception {
+        ObservableValue a = new ObservableValue("a", 4);
+        ObservableValue d = new ObservableValue("d", 4);
+        ObservableValue str = new ObservableValue("str", 1);
+        ObservableValue clk = new ObservableValue("clk", 1);
+        ObservableValue ld = new ObservableValue("ld", 1);
+
+        Model model = new Model();
+        RAMDualPort out = model.add(new RAMDualPort(
+                new ElementAttributes()
+                        .set(Keys.ADDR_BITS, 4)
+                        .set(Keys.TRACE_SIZE, 100)
+                        .setBits(4)));
+        out.setInputs(ovs(a, d, str, clk, ld));
+
+        TestExecuter sc = new TestExecuter(model).setInputs(a, d, str, clk, ld).setOutputs(out.getOutputs());
+        //       A  D  ST C  LD
+        sc.checkZ(0, 0, 0, 0, 0, HIGHZ);
+        sc.checkZ(0, 5, 1, 1, 0, HIGHZ);  // st  0->5
+        sc.checkZ(0, 0, 0, 0, 0, HIGHZ);
+        sc.check(0, 0, 0, 0, 1, 5);      // rd  0
+        sc.check(0, 0, 0, 1, 1, 5);      // no new read
+        sc.check(0, 0, 0, 0, 1, 5);      // no new read
+        sc.check(1, 0, 0, 0, 1, 0);      // rd  1
+        sc.checkZ(1, 0, 0, 0, 0, HIGHZ);
+        sc.check(1, 0, 0, 0, 1, 0);      // rd  1
+
+        MemoryTrace trace = out.getTrace();
+        assertEquals(4, trace.getTotal());
+        StringWriter w = new StringWriter();
+        trace.writeTo(w);
+        StringBuilder accesses = new StringBuilder();
+        for (String line : w.toString().split("\n"))
+            accesses.append(line.substring(line.indexOf(',') + 1)).append(';');
+        assertEquals("addr,data,access;0,5,W;0,5,R;1,0,R;1,0,R;", accesses.toString());
+    }
+
 
 }
\ No newline at end of file
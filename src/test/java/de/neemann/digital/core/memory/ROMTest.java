@@ -2,6 +2,7 @@ package de.neemann.digital.core.memory;
 
 import de.neemann.digital.TestExecuter;
 import de.neemann.digital.core.Model;
+import de.neemann.digital.core.NodeException;
 import de.neemann.digital.core.ObservableValue;
 import de.neemann.digital.core.element.ElementAttributes;
 import de.neemann.digital.core.element.Keys;
@@ -46,4 +47,18 @@ public class ROMTest extends TestCase {
 //        }
 
     }
-}
\ No newline at end of file
+
+    public void testMappedAutoReload() throws Exception {
+        ROM rom = new ROM(new ElementAttributes()
+                .setBits(8)
+                .set(Keys.ADDR_BITS, 3)
+                .set(Keys.AUTO_RELOAD_ROM, true)
+                .set(Keys.MAP_DATA_FILE, true));
+        try {
+            rom.init(new Model());
+            fail();
+        } catch (NodeException e) {
+            assertTrue(true);
+        }
+    }
+}
@@ -39,5 +39,31 @@ public class RegisterFileTest extends TestCase {
         sc.check(0, 0, 0, 0, 1, 2, 7, 5);
     }
 
+    public void testTrace() throws Exception {
+        ObservableValue ra = new ObservableValue("ra", 2);
+        ObservableValue rb = new ObservableValue("rb", 2);
+        ObservableValue rw = new ObservableValue("rw", 2);
+        ObservableValue in = new ObservableValue("in", 4);
+        ObservableValue we = new ObservableValue("we", 1);
+        ObservableValue clk = new ObservableValue("clk", 1);
+
+        Model model = new Model();
+        RegisterFile out = model.add(new RegisterFile(
+                new ElementAttributes()
+                        .set(Keys.ADDR_BITS, 2)
+                        .set(Keys.TRACE_SIZE, 100)
+                        .setBits(4)));
+        out.setInputs(ovs(in, we, rw, clk, ra, rb));
+
+        TestExecuter sc = new TestExecuter(model).setInputs(clk, in, we, rw, ra, rb).setOutputs(out.getOutputs());
+        //              c  in we rw ra rb da db
+        sc.check(0, 0, 0, 0, 0, 0, 0, 0);  // rd 0, 0
+        sc.check(1, 7, 1, 1, 0, 0, 0, 0);  // wr 1
+        sc.check(0, 0, 0, 0, 1, 0, 7, 0);  // rd 1
+        sc.check(1, 0, 0, 0, 1, 0, 7, 0);  // no new read
+
+        assertEquals(4, out.getTrace().getTotal());
+    }
+
 
 }
\ No newline at end of file
@@ -57,4 +57,49 @@ public class ValueTableTest extends TestCase {
         assertTrue(new Value(3).isEqualTo(t.getTableValue(1,0)));
         assertTrue(new Value(5).isEqualTo(t.getTableValue(2,0)));
     }
-}
\ No newline at end of file
+
+    public void testRingBuffer() {
+        ValueTable t = new ValueTable("A", "B").setMaxSize(20);
+        long[] values = new long[2];
+        boolean[] highZ = new boolean[2];
+        for (int i = 0; i < 50; i++) {
+            values[0] = i;
+            values[1] = i * 2;
+            highZ[1] = (i & 1) == 0;
+            t.add(values, highZ);
+        }
+        assertEquals(20, t.getRows());
+        for (int r = 0; r < 20; r++) {
+            int i = r + 30;
+            assertEquals(i, t.getLong(r, 0));
+            assertEquals(i * 2, t.getLong(r, 1));
+            assertFalse(t.getValue(r, 0).isHighZ());
+            assertEquals((i & 1) == 0, t.getValue(r, 1).isHighZ());
+        }
+        assertEquals(49, t.getMax(0));
+
+        ValueTable c = new ValueTable(t);
+        assertEquals(20, c.getRows());
+        int r = 0;
+        for (Value[] row : c) {
+            assertEquals(r + 30, row[0].getValue());
+            assertEquals(((r + 30) & 1) == 0, row[1].isHighZ());
+            r++;
+        }
+        assertEquals(20, r);
+    }
+
+    public void testObjectRows() throws Exception {
+        ValueTable t = new ValueTable("A").setMaxSize(3);
+        t.add(new Value[]{new Value(1)});
+        t.add(new Value[]{new Value("X")});
+        t.add(new Value[]{new Value(3)});
+        t.add(new Value[]{new Value("C")});
+        assertEquals(3, t.getRows());
+        assertEquals(Value.Type.DONTCARE, t.getValue(0, 0).getType());
+        assertEquals(Value.Type.NORMAL, t.getValue(1, 0).getType());
+        assertEquals(3, t.getLong(1, 0));
+        assertEquals(Value.Type.CLOCK, t.getValue(2, 0).getType());
+        assertEquals(Value.State.NORMAL, t.getState(2, 0));
+    }
+}
@@ -0,0 +1,114 @@
+package de.neemann.digital.draw.model;
+
+import de.neemann.digital.TestExecuter;
+import de.neemann.digital.analyse.expression.Constant;
+import de.neemann.digital.analyse.expression.Expression;
+import de.neemann.digital.analyse.expression.Not;
+import de.neemann.digital.analyse.expression.Variable;
+import de.neemann.digital.builder.circuit.CircuitBuilder;
+import de.neemann.digital.core.Model;
+import de.neemann.digital.draw.elements.Circuit;
+import de.neemann.digital.draw.library.ElementLibrary;
+import de.neemann.digital.draw.shapes.ShapeFactory;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+
+import static de.neemann.digital.analyse.expression.Operation.and;
+import static de.neemann.digital.analyse.expression.Operation.or;
+
+/**
+ * Tests the model optimization
+ */
+public class ModelOptimizerTest extends TestCase {
+
+    public void testConstantFolding() throws Exception {
+        Variable a = new Variable("a");
+
+        // the not and the and gate are fed by constants only
+        Expression y = or(a, and(new Not(Constant.ONE), Constant.ONE));
+
+        ElementLibrary library = new ElementLibrary();
+        Circuit circuit = new CircuitBuilder(new ShapeFactory(library))
+                .addCombinatorial("y", y)
+                .createCircuit();
+
+        Model plain = new ModelCreator(circuit, library).createModel(false);
+        ModelCreator m = new ModelCreator(circuit, library);
+        Model optimized = m.createModel(false, true);
+        assertEquals(3, plain.size());
+        assertEquals(1, optimized.size());
+
+        TestExecuter te = new TestExecuter(optimized).setUp(m);
+        te.check(0, 0);
+        te.check(1, 1);
+        te.check(0, 0);
+    }
+
+    public void testFuseGates() throws Exception {
+        Variable a = new Variable("a");
+        Variable b = new Variable("b");
+
+        // xor
+        Expression y = and(or(a, b), Not.not(and(a, b)));
+
+        ElementLibrary library = new ElementLibrary();
+        Circuit circuit = new CircuitBuilder(new ShapeFactory(library))
+                .addCombinatorial("y", y)
+                .createCircuit();
+
+        assertEquals(3, new ModelCreator(circuit, library).createModel(false).size());
+        ModelCreator m = new ModelCreator(circuit, library);
+        Model optimized = m.createModel(false, true);
+        assertEquals(1, optimized.size());
+        assertEquals(1, optimized.findNode(FusedGates.class).size());
+
+        TestExecuter te = new TestExecuter(optimized).setUp(m);
+        te.check(0, 0, 0);
+        te.check(0, 1, 1);
+        te.check(1, 0, 1);
+        te.check(1, 1, 0);
+    }
+
+    public void testTooManyInputs() throws Exception {
+        ArrayList<Expression> terms = new ArrayList<>();
+        for (int i = 0; i < ModelOptimizer.MAX_FUSED_INPUTS; i += 2)
+            terms.add(or(new Variable("a" + i), new Variable("a" + (i + 1))));
+        terms.add(or(new Variable("b0"), new Variable("b1")));
+
+        ElementLibrary library = new ElementLibrary();
+        Circuit circuit = new CircuitBuilder(new ShapeFactory(library))
+                .addCombinatorial("y", and(terms))
+                .createCircuit();
+
+        ModelCreator m = new ModelCreator(circuit, library);
+        Model optimized = m.createModel(false, true);
+        assertEquals(0, optimized.findNode(FusedGates.class).size());
+    }
+
+    public void testCompiledRegion() throws Exception {
+        Variable a = new Variable("a");
+        Variable b = new Variable("b");
+        Variable c = new Variable("c");
+
+        // full adder, the two outputs share the inputs
+        ElementLibrary library = new ElementLibrary();
+        Circuit circuit = new CircuitBuilder(new ShapeFactory(library))
+                .addCombinatorial("s", or(and(a, Not.not(b), Not.not(c)), and(Not.not(a), b, Not.not(c)), and(Not.not(a), Not.not(b), c), and(a, b, c)))
+                .addCombinatorial("co", or(and(a, b), and(a, c), and(b, c)))
+                .createCircuit();
+
+        ModelCreator m = new ModelCreator(circuit, library);
+        Model optimized = m.createModel(false, true);
+        assertEquals(1, optimized.findNode(CompiledRegion.class).size());
+
+        TestExecuter te = new TestExecuter(optimized).setUp(m);
+        for (int i = 0; i < 8; i++) {
+            int ia = i & 1;
+            int ib = (i >> 1) & 1;
+            int ic = (i >> 2) & 1;
+            int sum = ia + ib + ic;
+            te.check(ia, ib, ic, sum & 1, sum >> 1);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package de.neemann.digital.gui.components.graphics;
+
+import junit.framework.TestCase;
+
+import java.awt.*;
+
+public class FramebufferTest extends TestCase {
+
+    public void testBanks() {
+        Framebuffer fb = new Framebuffer(4, 2);
+        assertEquals(Color.WHITE.getRGB(), fb.getImage().getRGB(0, 0));
+
+        fb.set(5, 2);
+        fb.set(8 + 5, 4);
+        fb.set(6, 1000);
+        assertEquals(Color.RED.getRGB(), fb.getImage().getRGB(1, 1));
+        assertEquals(Color.BLACK.getRGB(), fb.getImage().getRGB(2, 1));
+
+        fb.setBank(1);
+        assertEquals(Color.BLUE.getRGB(), fb.getImage().getRGB(1, 1));
+        assertEquals(Color.WHITE.getRGB(), fb.getImage().getRGB(2, 1));
+    }
+}
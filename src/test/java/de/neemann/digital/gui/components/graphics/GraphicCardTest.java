@@ -0,0 +1,28 @@
+package de.neemann.digital.gui.components.graphics;
+
+import de.neemann.digital.core.element.ElementAttributes;
+import de.neemann.digital.core.element.Keys;
+import de.neemann.digital.core.memory.DataField;
+import junit.framework.TestCase;
+
+import java.awt.*;
+
+public class GraphicCardTest extends TestCase {
+
+    public void testMemoryEdit() {
+        GraphicCard card = new GraphicCard(new ElementAttributes()
+                .set(Keys.GRAPHIC_WIDTH, 4)
+                .set(Keys.GRAPHIC_HEIGHT, 2)
+                .set(Keys.BITS, 8));
+        Framebuffer fb = card.getFramebuffer();
+        DataField memory = card.getMemory();
+
+        // modification made by the data editor
+        memory.setData(5, 2);
+        memory.publishChanges();
+        assertEquals(Color.RED.getRGB(), fb.getImage().getRGB(1, 1));
+
+        memory.clearAll();
+        assertEquals(Color.WHITE.getRGB(), fb.getImage().getRGB(1, 1));
+    }
+}
@@ -21,6 +21,8 @@ import java.io.File;
 public class TestExamples extends TestCase {
 
     private int testCasesInFiles = 0;
+    private boolean optimize = false;
+    private int optimizedModels = 0;
 
     /**
      * Tests the examples which are distributed
@@ -44,6 +46,28 @@ public class TestExamples extends TestCase {
         assertEquals(111, testCasesInFiles);
     }
 
+    /**
+     * Tests the distributed examples with an optimized model
+     *
+     * @throws Exception
+     */
+    public void testDistExamplesOptimized() throws Exception {
+        optimize = true;
+        testDistExamples();
+        assertTrue(optimizedModels > 0);
+    }
+
+    /**
+     * Tests the test examples with an optimized model
+     *
+     * @throws Exception
+     */
+    public void testTestExamplesOptimized() throws Exception {
+        optimize = true;
+        testTestExamples();
+        assertTrue(optimizedModels > 0);
+    }
+
 
     /**
      * Loads the model and initializes and test it if test cases are present
@@ -73,7 +97,12 @@ public class TestExamples extends TestCase {
                     String label = el.getElementAttributes().getCleanLabel();
                     TestCaseDescription td = el.getElementAttributes().get(TestCaseElement.TESTDATA);
 
-                    Model model = new ModelCreator(br.getCircuit(), br.getLibrary()).createModel(false);
+                    int plainSize = 0;
+                    if (optimize)
+                        plainSize = new ModelCreator(br.getCircuit(), br.getLibrary()).createModel(false).size();
+                    Model model = new ModelCreator(br.getCircuit(), br.getLibrary()).createModel(false, optimize);
+                    if (model.size() < plainSize)
+                        optimizedModels++;
                     TestExecutor tr = new TestExecutor(td).create(model);
 
                     if (label.contains("Failing"))
@@ -105,15 +105,6 @@ public class TestInGUI extends TestCase {
                 .execute();
     }
 
-    public void testErrorAtStart5() {
-        new GuiTester("dig/manualError/08_twoFastClocks.dig")
-                .press("SPACE")
-                .add(new CheckErrorDialog(Lang.get("err_moreThanOneFastClock")))
-                .add(new GuiTester.CloseTopMost())
-                .add(new GuiTester.WindowCheck<>(Main.class))
-                .execute();
-    }
-
     public void testErrorAtTestExecution() {
         new GuiTester("dig/manualError/04_testExecution.dig")
                 .press("F8")
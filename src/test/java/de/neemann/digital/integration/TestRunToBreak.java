@@ -1,5 +1,8 @@
 package de.neemann.digital.integration;
 
+import de.neemann.digital.core.Model;
+import de.neemann.digital.core.ModelEvent;
+import de.neemann.digital.core.ModelStateObserver;
 import de.neemann.digital.core.NodeException;
 import de.neemann.digital.core.memory.Register;
 import de.neemann.digital.draw.elements.PinException;
@@ -33,4 +36,44 @@ public class TestRunToBreak extends TestCase {
 
         assertEquals(0x3fe, r.getOutputs().get(0).getValue());
     }
+
+    public void testTurbo() throws IOException, NodeException, PinException, ElementNotFoundException {
+        Model model = new ToBreakRunner("dig/runToBreak.dig").getModel();
+        StepCounter essential = new StepCounter(false);
+        StepCounter suspendable = new StepCounter(true);
+        model.addObserver(essential, ModelEvent.STEP);
+        model.addObserver(suspendable, ModelEvent.STEP);
+
+        assertEquals(509, model.runToBreak(true));
+        assertTrue(essential.steps >= 509);
+        assertTrue(suspendable.steps >= 1);
+        assertTrue(suspendable.steps < 10);
+
+        // after the run all observers are called again
+        int e = essential.steps;
+        int s = suspendable.steps;
+        model.doStep();
+        assertEquals(e + 1, essential.steps);
+        assertEquals(s + 1, suspendable.steps);
+    }
+
+    private static final class StepCounter implements ModelStateObserver {
+        private final boolean suspendable;
+        private int steps;
+
+        private StepCounter(boolean suspendable) {
+            this.suspendable = suspendable;
+        }
+
+        @Override
+        public void handleEvent(ModelEvent event) {
+            if (event == ModelEvent.STEP)
+                steps++;
+        }
+
+        @Override
+        public boolean isSuspendable() {
+            return suspendable;
+        }
+    }
 }
@@ -0,0 +1,55 @@
+package de.neemann.digital.testing;
+
+import de.neemann.digital.integration.Resources;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.StringWriter;
+import java.nio.file.Files;
+
+public class BatchTestRunnerTest extends TestCase {
+
+    public void testPassed() throws Exception {
+        BatchTestRunner runner = new BatchTestRunner(new File(Resources.getRoot(), "dig/test/arith"), 2);
+        assertTrue(runner.run());
+        assertEquals(5, runner.getResults().size());
+        for (BatchTestRunner.Result r : runner.getResults())
+            assertEquals(BatchTestRunner.Status.PASSED, r.getStatus());
+
+        StringWriter sw = new StringWriter();
+        runner.writeJUnitXML(sw);
+        String xml = sw.toString();
+        assertTrue(xml.contains("<testsuites tests=\"5\" failures=\"0\" errors=\"0\""));
+        assertTrue(xml.contains("<testsuite name=\"HalfAdder.dig\" tests=\"1\""));
+    }
+
+    public void testOptimized() throws Exception {
+        BatchTestRunner runner = new BatchTestRunner(new File(Resources.getRoot(), "dig/test/arith"), 2).setOptimize(true);
+        assertTrue(runner.run());
+        assertEquals(5, runner.getResults().size());
+    }
+
+    public void testError() throws Exception {
+        File dir = Files.createTempDirectory("digital").toFile();
+        File broken = new File(dir, "broken.dig");
+        try {
+            try (FileOutputStream out = new FileOutputStream(broken)) {
+                out.write("<circuit>".getBytes("UTF-8"));
+            }
+            BatchTestRunner runner = new BatchTestRunner(dir, 2);
+            assertFalse(runner.run());
+            assertEquals(1, runner.getResults().size());
+            BatchTestRunner.Result r = runner.getResults().get(0);
+            assertEquals("broken.dig", r.getFile());
+            assertEquals(BatchTestRunner.Status.ERROR, r.getStatus());
+
+            StringWriter sw = new StringWriter();
+            runner.writeJUnitXML(sw);
+            assertTrue(sw.toString().contains("errors=\"1\""));
+        } finally {
+            broken.delete();
+            dir.delete();
+        }
+    }
+}
@@ -7,6 +7,11 @@ import de.neemann.digital.builder.BuilderException;
 import de.neemann.digital.builder.circuit.CircuitBuilder;
 import de.neemann.digital.core.Model;
 import de.neemann.digital.core.NodeException;
+import de.neemann.digital.core.ObservableValue;
+import de.neemann.digital.core.Signal;
+import de.neemann.digital.core.basic.NOr;
+import de.neemann.digital.core.element.ElementAttributes;
+import de.neemann.digital.data.Value;
 import de.neemann.digital.data.ValueTable;
 import de.neemann.digital.draw.elements.Circuit;
 import de.neemann.digital.draw.elements.PinException;
@@ -17,8 +22,11 @@ import de.neemann.digital.draw.shapes.ShapeFactory;
 import junit.framework.TestCase;
 
 import java.io.IOException;
+import java.io.StringWriter;
 import java.util.ArrayList;
 
+import static de.neemann.digital.core.ObservableValues.ovs;
+
 /**
  * @author hneemann
  */
@@ -118,4 +126,115 @@ public class TestResultTest extends TestCase {
         assertTrue(te.allPassed());
     }
 
+    public void testResultDontCareInputNotRelevant() throws Exception {
+        ElementLibrary library = new ElementLibrary();
+        CircuitBuilder cb = new CircuitBuilder(new ShapeFactory(library));
+        cb.addCombinatorial("Y", new Parser("A*B").parse().get(0));
+        cb.addCombinatorial("Z", new Parser("C*D").parse().get(0));
+        Model model = new ModelCreator(cb.createCircuit(), library).createModel(false);
+        model.init();
+
+        TestCaseDescription data = new TestCaseDescription(
+                "A B C D Y Z\n"
+                        + "x x 1 1 x 1\n"  // A and B are not expanded
+                        + "0 x x x 0 x\n"  // C and D are not expanded
+                        + "0 x 0 x 0 0\n");
+        TestExecutor te = new TestExecutor(data).create(model);
+        ValueTable tr = te.getResult();
+        assertEquals(1 + 2 + 4, tr.getRows());
+        assertTrue(te.allPassed());
+        assertEquals(Value.Type.DONTCARE, tr.getValue(0, 0).getType());
+        assertEquals(Value.Type.DONTCARE, tr.getValue(1, 2).getType());
+    }
+
+    public void testResultDontCareInputStateful() throws Exception {
+        ElementLibrary library = new ElementLibrary();
+        CircuitBuilder cb = new CircuitBuilder(new ShapeFactory(library));
+        cb.addSequential("Q", new Parser("D").parse().get(0));
+        Model model = new ModelCreator(cb.createCircuit(), library).createModel(false);
+        model.init();
+
+        // D is only read by the flip-flop, so it is expanded although Q is not checked
+        TestCaseDescription data = new TestCaseDescription(
+                "C D Q\n"
+                        + "0 x x\n"
+                        + "C x 0\n");
+        TestExecutor te = new TestExecutor(data).create(model);
+        assertEquals(2 + 2, te.getRowCount());
+        assertEquals(1, te.getFailedRowCount());
+        assertFalse(te.allPassed());
+    }
+
+    public void testResultDontCareInputLatch() throws Exception {
+        ObservableValue s = new ObservableValue("S", 1);
+        ObservableValue r = new ObservableValue("R", 1);
+        Model model = new Model();
+        NOr nq = model.add(new NOr(new ElementAttributes()));
+        NOr nqn = model.add(new NOr(new ElementAttributes()));
+        ObservableValue q = nq.getOutputs().get(0);
+        ObservableValue qn = nqn.getOutputs().get(0);
+        nq.setInputs(ovs(r, qn));
+        nqn.setInputs(ovs(s, q));
+        model.addInput(new Signal("S", s));
+        model.addInput(new Signal("R", r));
+        model.addOutput(new Signal("Q", q));
+
+        // S is expanded although Q is not checked, because the latch stores the value
+        TestCaseDescription data = new TestCaseDescription(
+                "S R Q\n"
+                        + "0 1 0\n"
+                        + "x 0 x\n"
+                        + "0 0 1\n");
+        TestExecutor te = new TestExecutor(data).create(model);
+        assertEquals(1 + 2 + 1, te.getRowCount());
+        assertTrue(te.allPassed());
+    }
+
+    public void testManyRows() throws Exception {
+        Model model = getModel("A+B");
+        TestCaseDescription data = new TestCaseDescription(
+                "A B Y\n"
+                        + "loop(n,3000)\n"
+                        + "((n>>1)&1) (n&1) ((((n>>1)|n)&1)^(n=2000))\n"
+                        + "end loop\n");
+        TestExecutor te = new TestExecutor(data).create(model);
+        assertFalse(te.allPassed());
+        assertTrue(te.toManyResults());
+        assertEquals(3000, te.getRowCount());
+        assertEquals(1, te.getFailedRowCount());
+
+        // the first rows, the failing row and four rows in front of and behind it
+        ValueTable tr = te.getResult();
+        assertEquals(1024 + 4 + 1 + 4, tr.getRows());
+        assertTrue(((MatchedValue) tr.getValue(1023, 2)).isPassed());
+        assertEquals(0, tr.getValue(1024, 0).getValue()); // n=1996
+        assertEquals(0, tr.getValue(1024, 1).getValue());
+        assertEquals(1, tr.getValue(1025, 1).getValue()); // n=1997
+        assertTrue(((MatchedValue) tr.getValue(1027, 2)).isPassed());
+        assertFalse(((MatchedValue) tr.getValue(1028, 2)).isPassed());
+        assertTrue(((MatchedValue) tr.getValue(1032, 2)).isPassed());
+        assertEquals(0, tr.getValue(1032, 0).getValue()); // n=2004
+        assertEquals(0, tr.getValue(1032, 1).getValue());
+    }
+
+    public void testRowWriter() throws Exception {
+        Model model = getModel("A+B");
+        TestCaseDescription data = new TestCaseDescription(
+                "A B Y\n"
+                        + "0 0 0\n"
+                        + "0 1 1\n"
+                        + "1 0 1\n"
+                        + "1 1 0\n");
+        StringWriter w = new StringWriter();
+        TestExecutor te = new TestExecutor(data).setRowWriter(w).create(model);
+        assertFalse(te.allPassed());
+        assertEquals(4, te.getRowCount());
+        assertEquals(1, te.getFailedRowCount());
+        assertEquals("\"step\",\"A\",\"B\",\"Y\",\"passed\"\n"
+                + "\"0\",\"0\",\"0\",\"0\",\"1\"\n"
+                + "\"1\",\"0\",\"1\",\"1\",\"1\"\n"
+                + "\"2\",\"1\",\"0\",\"1\",\"1\"\n"
+                + "\"3\",\"1\",\"1\",\"1\",\"0\"\n", w.toString());
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,102 @@
+package de.neemann.digital.testing;
+
+import de.neemann.digital.analyse.expression.Expression;
+import de.neemann.digital.analyse.parser.Parser;
+import de.neemann.digital.builder.circuit.CircuitBuilder;
+import de.neemann.digital.core.Model;
+import de.neemann.digital.draw.elements.Circuit;
+import de.neemann.digital.draw.library.ElementLibrary;
+import de.neemann.digital.draw.model.ModelCreator;
+import de.neemann.digital.draw.shapes.ShapeFactory;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestRunnerTest extends TestCase {
+
+    public void testParallel() throws Exception {
+        ArrayList<Expression> exp = new Parser("A^B").parse();
+        ElementLibrary library = new ElementLibrary();
+        CircuitBuilder cb = new CircuitBuilder(new ShapeFactory(library));
+        cb.addCombinatorial("Y", exp.get(0));
+        Circuit circ = cb.createCircuit();
+
+        TestRunner runner = new TestRunner(3);
+        for (int i = 0; i < 10; i++) {
+            Model model = new ModelCreator(circ, library).createModel(false);
+            String lastRow = (i & 1) == 0 ? "1 1 0\n" : "1 1 1\n";
+            runner.add(new TestCaseDescription("A B Y\n0 0 0\n0 1 1\n1 0 1\n" + lastRow), model);
+        }
+        Model model = new ModelCreator(circ, library).createModel(false);
+        runner.add(new TestCaseDescription("A B C\n0 0 0\n"), model);
+        assertEquals(11, runner.size());
+
+        boolean[] passed = new boolean[runner.size()];
+        int[] finished = new int[runner.size()];
+        Exception[] errors = new Exception[runner.size()];
+        runner.run(new TestRunner.ResultListener() {
+            @Override
+            public void testFinished(int index, TestExecutor testExecutor) {
+                synchronized (passed) {
+                    assertEquals(4, testExecutor.getResult().getRows());
+                    passed[index] = testExecutor.allPassed();
+                    finished[index]++;
+                }
+            }
+
+            @Override
+            public void testFailed(int index, Exception e) {
+                synchronized (passed) {
+                    errors[index] = e;
+                    finished[index]++;
+                }
+            }
+        });
+
+        synchronized (passed) {
+            for (int i = 0; i < 10; i++) {
+                assertEquals(1, finished[i]);
+                assertEquals((i & 1) == 0, passed[i]);
+                assertNull(errors[i]);
+            }
+            assertEquals(1, finished[10]);
+            assertTrue(errors[10] instanceof TestingDataException);
+        }
+    }
+
+    public void testCancel() throws Exception {
+        ArrayList<Expression> exp = new Parser("A^B").parse();
+        ElementLibrary library = new ElementLibrary();
+        CircuitBuilder cb = new CircuitBuilder(new ShapeFactory(library));
+        cb.addCombinatorial("Y", exp.get(0));
+        Circuit circ = cb.createCircuit();
+
+        TestRunner runner = new TestRunner(2);
+        for (int i = 0; i < 4; i++) {
+            Model model = new ModelCreator(circ, library).createModel(false);
+            runner.add(new TestCaseDescription("A B Y\nloop(n,1<<24)\nloop(m,1<<24)\n(m&1) (n&1) ((m^n)&1)\nend loop\nend loop\n"), model);
+        }
+
+        AtomicInteger reported = new AtomicInteger();
+        ExecutorService executor = runner.start(new TestRunner.ResultListener() {
+            @Override
+            public void testFinished(int index, TestExecutor testExecutor) {
+                reported.incrementAndGet();
+            }
+
+            @Override
+            public void testFailed(int index, Exception e) {
+                reported.incrementAndGet();
+            }
+        });
+        Thread.sleep(200);
+        runner.cancel();
+
+        assertTrue(runner.isCancelled());
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(0, reported.get());
+    }
+}
@@ -54,6 +54,10 @@ public class ParserExpressionTest extends TestCase {
         assertEquals(1, new Parser("signExt(4,1)").getValue());
         assertEquals(2, new Parser("signExt(4,2)").getValue());
 
+        assertEquals(7, new Parser("1+2*3").getValue());
+        assertEquals(-7, new Parser("-(1+2*3)").getValue());
+        assertEquals(12, new Parser("(a+1)*(b-1)+signExt(8,a*b)").getValue(new ContextWithVar(new ContextWithVar("a").setValue(2), "b").setValue(3)));
+
     }
 
     public void testVarNotFound() throws IOException {
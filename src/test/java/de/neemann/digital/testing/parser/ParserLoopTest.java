@@ -91,4 +91,35 @@ public class ParserLoopTest extends TestCase {
         }
     }
 
+
+    public void testShadowedLoopVar() throws IOException, ParserException {
+        Parser parser = new Parser("A B\nloop(i,3)\nloop(i,4)\n C (i)\nend loop\n C (i+10)\nend loop").parse();
+        LineCollector td = new LineCollector(parser);
+
+        assertEquals(15, td.getLines().size());
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 4; j++)
+                assertEquals(j, td.getLines().get(i * 5 + j)[1].getValue());
+            assertEquals(i + 10, td.getLines().get(i * 5 + 4)[1].getValue());
+        }
+    }
+
+    public void testLoopVarInFunction() throws IOException, ParserException {
+        Parser parser = new Parser("A B\nloop(i,16)\n C (signExt(4,i)+1-1)\nend loop").parse();
+        LineCollector td = new LineCollector(parser);
+
+        assertEquals(16, td.getLines().size());
+        for (int i = 0; i < 16; i++)
+            assertEquals(i < 8 ? i : i - 16, td.getLines().get(i)[1].getValue());
+    }
+
+    public void testLoopVarInCount() throws IOException, ParserException {
+        Parser parser = new Parser("A B\nloop(i,3)\nloop(j,i)\n C 0\nend loop\nend loop");
+        try {
+            parser.parse();
+            fail();
+        } catch (ParserException e) {
+            assertTrue(true);
+        }
+    }
 }